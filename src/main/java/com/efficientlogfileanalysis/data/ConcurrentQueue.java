@@ -3,6 +3,7 @@ package com.efficientlogfileanalysis.data;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -71,6 +72,36 @@ public class ConcurrentQueue<T>{
         return element;
     }
 
+    /**
+     * Gets the first element of the list<br>
+     * Waits for another thread to add an item until the timeout is reached, if no element is present
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next element in the list or null if the timeout was reached
+     * @throws InterruptedException when the thread is interrupted
+     */
+    public T pop(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanosLeft = unit.toNanos(timeout);
+
+        lock.lock();
+        try
+        {
+            while(queue.isEmpty())
+            {
+                if(nanosLeft <= 0) {
+                    return null;
+                }
+                nanosLeft = notEmpty.awaitNanos(nanosLeft);
+            }
+
+            return queue.poll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
     public boolean isEmpty() {
         return queue.isEmpty();
     }
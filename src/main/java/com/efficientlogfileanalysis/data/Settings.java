@@ -1,11 +1,15 @@
 package com.efficientlogfileanalysis.data;
 
+import com.efficientlogfileanalysis.logs.LogLayout;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * A class that stores server side configurations.
@@ -13,6 +17,22 @@ import java.io.IOException;
  */
 public class Settings {
     private static final String configFileName = "efficientLogFileAnalysis.conf";
+
+    /**
+     * The directory where the index gets created.
+     */
+    public static final Path PATH_TO_INDEX = Paths.get("index");
+
+    /**
+     * The directory containing the checkpoint files of compressed logfiles
+     */
+    public static final Path PATH_TO_CHECKPOINTS = PATH_TO_INDEX.resolve("compressed");
+
+    /**
+     * The directory containing the positions of the entries of every logfile
+     */
+    public static final Path PATH_TO_ENTRY_OFFSETS = PATH_TO_INDEX.resolve("offsets");
+
     private static Settings instance;
     
     /**
@@ -21,10 +41,40 @@ public class Settings {
     private String logFilePath;
 
     /**
-     * The approximated max size the cache file should have. 0 means unlimited size.
+     * The approximated max size of the index in MB, the shards with the oldest entries are deleted once it is reached. 0 means unlimited size.
      */
     private long maxSizeOfCacheFile; 
 
+    /**
+     * The amount of files that are indexed at the same time when the index is recreated. 0 means one file per processor.
+     */
+    private int numberOfIndexingThreads;
+
+    /**
+     * The log4j pattern layout of the entries inside the logfiles.
+     */
+    private String logLayout;
+
+    /**
+     * The maximum amount of memory used by recently read logEntries in MB. 0 disables the cache.
+     */
+    private long entryCacheSize;
+
+    /**
+     * The maximum amount of seconds between two commits of the index while new entries are indexed.
+     */
+    private long commitInterval;
+
+    /**
+     * The amount of MB of logfiles which can be indexed before the index is committed, even if the commit interval hasn't passed.
+     */
+    private long commitSize;
+
+    /**
+     * The time range covered by one shard of the index, either day or hour.
+     */
+    private String shardDuration;
+
     private Settings() {
         File confFile = new File(configFileName);
 
@@ -51,6 +101,12 @@ public class Settings {
             File.separator +
             "logs";
         maxSizeOfCacheFile = 0;
+        numberOfIndexingThreads = 0;
+        logLayout = LogLayout.DEFAULT_PATTERN;
+        entryCacheSize = 64;
+        commitInterval = 60;
+        commitSize = 64;
+        shardDuration = "day";
     }
 
     /**
@@ -68,9 +124,33 @@ public class Settings {
         bw.write("\n");
         bw.write("path_to_log_files=" + logFilePath);
         bw.write("\n");
-        bw.write("# The maximum size of the created index in bytes. 0 means unlimited size.");
+        bw.write("# The maximum size of the created index in MB, the shards with the oldest entries are deleted once it is reached. 0 means unlimited size.");
         bw.write("\n");
         bw.write("maxiumum_cache_file_size=" + maxSizeOfCacheFile);
+        bw.write("\n");
+        bw.write("# The amount of files that are indexed at the same time. 0 means one file per processor.");
+        bw.write("\n");
+        bw.write("indexing_threads=" + numberOfIndexingThreads);
+        bw.write("\n");
+        bw.write("# The log4j pattern layout of the logfiles, e.g. %d{ISO8601} %-5p [%t] %c - %m%n");
+        bw.write("\n");
+        bw.write("log_layout=" + logLayout);
+        bw.write("\n");
+        bw.write("# The maximum amount of memory used by recently read logEntries in MB. 0 disables the cache.");
+        bw.write("\n");
+        bw.write("entry_cache_size=" + entryCacheSize);
+        bw.write("\n");
+        bw.write("# The maximum amount of seconds between two commits of the index. New entries are searchable before they are committed.");
+        bw.write("\n");
+        bw.write("commit_interval=" + commitInterval);
+        bw.write("\n");
+        bw.write("# The amount of MB of logfiles which can be indexed before the index is committed.");
+        bw.write("\n");
+        bw.write("commit_size=" + commitSize);
+        bw.write("\n");
+        bw.write("# The time range covered by one shard of the index, day or hour. Searches only read the shards of their time range.");
+        bw.write("\n");
+        bw.write("shard_duration=" + shardDuration);
         
         bw.flush();
         bw.close();
@@ -92,7 +172,7 @@ public class Settings {
                 continue;
             }
 
-            keyValuePair = line.split("=");
+            keyValuePair = line.split("=", 2);
             if(keyValuePair[0].equals("path_to_log_files")) {
 
                 logFilePath = keyValuePair[1];
@@ -101,6 +181,30 @@ public class Settings {
 
                 maxSizeOfCacheFile = Long.parseLong(keyValuePair[1]);
 
+            } else if(keyValuePair[0].equals("indexing_threads")) {
+
+                numberOfIndexingThreads = Integer.parseInt(keyValuePair[1]);
+
+            } else if(keyValuePair[0].equals("log_layout")) {
+
+                logLayout = keyValuePair[1];
+
+            } else if(keyValuePair[0].equals("entry_cache_size")) {
+
+                entryCacheSize = Long.parseLong(keyValuePair[1]);
+
+            } else if(keyValuePair[0].equals("commit_interval")) {
+
+                commitInterval = Long.parseLong(keyValuePair[1]);
+
+            } else if(keyValuePair[0].equals("commit_size")) {
+
+                commitSize = Long.parseLong(keyValuePair[1]);
+
+            } else if(keyValuePair[0].equals("shard_duration")) {
+
+                shardDuration = keyValuePair[1].trim();
+
             }
         }
 
@@ -123,6 +227,49 @@ public class Settings {
         return maxSizeOfCacheFile;
     }
 
+    /**
+     * Returns the amount of files that are indexed at the same time
+     */
+    public int getNumberOfIndexingThreads() {
+        if(numberOfIndexingThreads <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return numberOfIndexingThreads;
+    }
+
+    public String getLogLayout() {
+        return logLayout;
+    }
+
+    /**
+     * Returns the maximum amount of memory used by recently read logEntries in MB
+     */
+    public long getEntryCacheSize() {
+        return entryCacheSize;
+    }
+
+    /**
+     * Returns the maximum amount of seconds between two commits of the index
+     */
+    public long getCommitInterval() {
+        return commitInterval;
+    }
+
+    /**
+     * Returns the amount of MB of logfiles which can be indexed before the index is committed
+     */
+    public long getCommitSize() {
+        return commitSize;
+    }
+
+    /**
+     * Returns the amount of milliseconds covered by one shard of the index, a day unless the shard duration is hour
+     */
+    public long getShardDuration() {
+        return shardDuration.equalsIgnoreCase("hour") ? 60 * 60 * 1000 : 24 * 60 * 60 * 1000;
+    }
+
     public void setLogFilePath(String path) throws IOException {
         logFilePath = path;
         writeConfigFile();
@@ -132,4 +279,39 @@ public class Settings {
         maxSizeOfCacheFile = size;
         writeConfigFile();
     }
-}
\ No newline at end of file
+
+    public void setNumberOfIndexingThreads(int numberOfThreads) throws IOException {
+        numberOfIndexingThreads = numberOfThreads;
+        writeConfigFile();
+    }
+
+    public void setEntryCacheSize(long sizeInMB) throws IOException {
+        entryCacheSize = sizeInMB;
+        writeConfigFile();
+    }
+
+    public void setCommitInterval(long seconds) throws IOException {
+        commitInterval = seconds;
+        writeConfigFile();
+    }
+
+    public void setCommitSize(long sizeInMB) throws IOException {
+        commitSize = sizeInMB;
+        writeConfigFile();
+    }
+
+    public void setShardDuration(String duration) throws IOException {
+        if(!duration.equalsIgnoreCase("day") && !duration.equalsIgnoreCase("hour")) {
+            throw new IllegalArgumentException("The shard duration has to be day or hour");
+        }
+        shardDuration = duration;
+        writeConfigFile();
+    }
+
+    public void setLogLayout(String layout) throws IOException {
+        //throws an IllegalArgumentException if the layout can't be compiled
+        new LogLayout(layout);
+        logLayout = layout;
+        writeConfigFile();
+    }
+}
@@ -1,6 +1,9 @@
 package com.efficientlogfileanalysis.index;
 
 import com.efficientlogfileanalysis.index.data.IndexCreatorTask;
+import com.efficientlogfileanalysis.logs.FileChannelPool;
+import com.efficientlogfileanalysis.logs.LogEntryCache;
+import com.efficientlogfileanalysis.logs.LogReader;
 import lombok.AllArgsConstructor;
 
 import java.io.File;
@@ -27,6 +30,23 @@ public class DirectoryWatcher extends Thread
     private String directoryPath;
     private FileEventListener eventListener;
 
+    /**
+     * Removes the cached entries of a deleted or replaced file
+     */
+    private static void invalidateCachedEntries(String fileName)
+    {
+        Index index = Index.getInstance();
+        short fileID;
+
+        synchronized(index) {
+            fileID = index.getFileData().getKeyOrDefault(fileName, (short)-1);
+        }
+
+        if(fileID != -1) {
+            LogEntryCache.getInstance().invalidate(fileID);
+        }
+    }
+
     @Override
     public void run()
     {
@@ -65,6 +85,15 @@ public class DirectoryWatcher extends Thread
                     Path fileName = (Path) event.context();
                     File file = Paths.get(directoryPath).resolve(fileName).toFile();
 
+                    //a deleted file or a new file with the same name (rotation) must not be read through an old channel
+                    if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY) {
+                        FileChannelPool.getInstance().invalidate(file.toPath());
+                        invalidateCachedEntries(file.getName());
+                    }
+
+                    //the last entry of the file has changed as well
+                    LogReader.invalidateLastEntry(file.toPath());
+
                     tasks.add(new IndexCreatorTask(
                         file.getName(),
                         event.kind() == StandardWatchEventKinds.ENTRY_CREATE ? IndexCreatorTask.TaskType.FILE_CREATED :
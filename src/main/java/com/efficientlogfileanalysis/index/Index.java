@@ -2,23 +2,64 @@ package com.efficientlogfileanalysis.index;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 
+import com.efficientlogfileanalysis.data.Settings;
+import com.efficientlogfileanalysis.logs.FileChannelPool;
+import com.efficientlogfileanalysis.logs.LogEntryCache;
+import com.efficientlogfileanalysis.logs.LogReader;
 import com.efficientlogfileanalysis.index.data.*;
 import lombok.Getter;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 
 public class Index {
 
     /**
      * The directory where the index gets created.
      */
-    public static final Path PATH_TO_INDEX = Paths.get("index");
+    public static final Path PATH_TO_INDEX = Settings.PATH_TO_INDEX;
+
+    /**
+     * The directory containing the shards of the lucene index
+     */
+    static final Path LUCENE_DIRECTORY = PATH_TO_INDEX.resolve("lucene");
+
+    /**
+     * The version of the fields of the lucene documents, it is increased whenever an existing index can't be updated anymore
+     * (e.g. because the type of the doc values of a field changed)<br>
+     * 1: indices created before the version was saved<br>
+     * 2: the metadata of the entries is stored as numeric doc values<br>
+     * 3: the entries are sorted by INDEX_SORT<br>
+     * 4: the entries are split into shards by their date
+     */
+    static final int VERSION = 4;
+
+    /**
+     * The order of the entries in the lucene index: by their date, entries of the same date by their file and their position in it.<br>
+     * Searches sorted by the same fields stop once they have found enough entries, instead of sorting every match.
+     */
+    public static final Sort INDEX_SORT = new Sort(
+        new SortField("date", SortField.Type.LONG),
+        new SortField("fileIndex", SortField.Type.LONG),
+        new SortField("logEntryID", SortField.Type.LONG)
+    );
+
+    /**
+     * The maximum amount of seconds until new entries become searchable
+     */
+    private static final double MAX_STALE_SECONDS = 1.0;
 
     private static Index instance;
 
@@ -37,23 +78,77 @@ public class Index {
     SerializableBiMap<Integer, String> moduleIDManager;
     SerializableBiMap<Integer, String> classIDManager;
     SerializableBiMap<Integer, String> exceptionIDManager;
+    SerializableBiMap<Integer, String> signatureIDManager;
 
     //additional managers for information that have nothing to do with Lucene
     SerializableMap<Short, Set<Byte>> logLevelIndexManager;
     SerializableMap<Short, TimeRange> logDateManager;
     SerializableMap<Short, Long> bytesRead;
 
+    //the keys of the files in the file system when they have been indexed (e.g. their inode), a file with a different key has been replaced
+    SerializableMap<Short, String> fileKeys;
+
+    //the files whose entries have been removed to keep the index below its maximum size, with the time range of the removed entries
+    SerializableMap<Short, TimeRange> evictedFiles;
+
+    //the message templates by their ID and the miner which assigns the messages to them
+    SerializableMap<Integer, String> templateManager;
+    TemplateMiner templateMiner;
+
     private IndexCreationWorker indexCreator;
 
+    /**
+     * The shards of the lucene index by the beginning of their time range, they are read out of the lucene directory the first time they are needed.
+     * Every change of a shard goes through its IndexWriter, which stays open while the shard is changed. New entries are published
+     * to the searchers by reopening them from the writers (near real time) at least every MAX_STALE_SECONDS,
+     * the writers are only committed according to the commit policy in the Settings.
+     */
+    private TreeMap<Long, IndexShard> shards;
+    private ScheduledExecutorService reopenThread;
+
+    /**
+     * Held while the index is committed, shrunk, closed or deleted, which means that these happen one after another.
+     * The lock of the Index is only held while the shards are picked and the dictionaries are copied,
+     * the shards and dictionaries are written without it, so searches and indexing don't wait for the disk.
+     * It always has to be taken before the lock of the Index.
+     */
+    private final Object commitLock = new Object();
+
+    /**
+     * The begin dates of the shards which have been removed but whose directories are still being deleted,
+     * a new shard with the same directory is only created once the old one is gone
+     */
+    private final Set<Long> shardsBeingDeleted = new HashSet<>();
+
+    /**
+     * Writes the copy of a dictionary to its file
+     */
+    private interface DictionaryWriter
+    {
+        void write(String fileName) throws IOException;
+    }
+
+    /**
+     * The time of the last commit and the amount of bytes of logfiles indexed since then
+     */
+    private long timeOfLastCommit = System.currentTimeMillis();
+    long uncommittedBytes;
+
     private Index(){
         fileIDManager           =   new SerializableBiMap<>(I_TypeConverter.SHORT_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
         moduleIDManager         =   new SerializableBiMap<>(I_TypeConverter.INTEGER_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
         classIDManager          =   new SerializableBiMap<>(I_TypeConverter.INTEGER_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
         exceptionIDManager      =   new SerializableBiMap<>(I_TypeConverter.INTEGER_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
+        signatureIDManager      =   new SerializableBiMap<>(I_TypeConverter.INTEGER_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
 
         logLevelIndexManager    =   new SerializableMap<>(I_TypeConverter.SHORT_TYPE_CONVERTER, I_TypeConverter.setConverter(I_TypeConverter.BYTE_TYPE_CONVERTER));
         logDateManager          =   new SerializableMap<>(I_TypeConverter.SHORT_TYPE_CONVERTER, I_TypeConverter.TIME_RANGE_CONVERTER);
         bytesRead               =   new SerializableMap<>(I_TypeConverter.SHORT_TYPE_CONVERTER, I_TypeConverter.LONG_TYPE_CONVERTER);
+        templateManager         =   new SerializableMap<>(I_TypeConverter.INTEGER_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
+        evictedFiles            =   new SerializableMap<>(I_TypeConverter.SHORT_TYPE_CONVERTER, I_TypeConverter.TIME_RANGE_CONVERTER);
+        fileKeys                =   new SerializableMap<>(I_TypeConverter.SHORT_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
+
+        templateMiner = new TemplateMiner(templateManager);
 
         setCurrentState(IndexState.NOT_READY);
     }
@@ -67,15 +162,66 @@ public class Index {
     }
 
     public void saveIndices() throws IOException
+    {
+        synchronized(commitLock) {
+            writeDictionaries(copyDictionaries());
+        }
+    }
+
+    /**
+     * Copies the dictionaries by the names of their files, the copies can be written without holding the lock of the Index
+     */
+    private synchronized Map<String, DictionaryWriter> copyDictionaries()
+    {
+        //the sets of levels and the time ranges are changed while files are indexed, which is why they are copied as well
+        SerializableMap<Short, Set<Byte>> logLevels = logLevelIndexManager.copy();
+        logLevels.replaceAll((fileID, levels) -> new LinkedHashSet<>(levels));
+        SerializableMap<Short, TimeRange> logDates = logDateManager.copy();
+        logDates.replaceAll((fileID, timeRange) -> new TimeRange(timeRange.beginDate, timeRange.endDate));
+
+        Map<String, DictionaryWriter> dictionaries = new LinkedHashMap<>();
+        dictionaries.put("file_id_manager", fileIDManager.copy()::writeIndex);
+        dictionaries.put("module_id_manager", moduleIDManager.copy()::writeIndex);
+        dictionaries.put("class_id_manager", classIDManager.copy()::writeIndex);
+        dictionaries.put("exception_id_manager", exceptionIDManager.copy()::writeIndex);
+        dictionaries.put("signature_id_manager", signatureIDManager.copy()::writeIndex);
+        dictionaries.put("logLevel_index_manager", logLevels::writeIndex);
+        dictionaries.put("log_date_manager", logDates::writeIndex);
+        dictionaries.put("bytes_read", bytesRead.copy()::writeIndex);
+        //the templates are changed by the indexing threads while holding the lock of the dictionary instead of the Index
+        dictionaries.put("template_manager", templateMiner.copyTemplates()::writeIndex);
+        dictionaries.put("evicted_files", evictedFiles.copy()::writeIndex);
+        dictionaries.put("file_keys", fileKeys.copy()::writeIndex);
+
+        return dictionaries;
+    }
+
+    private static void writeDictionaries(Map<String, DictionaryWriter> dictionaries) throws IOException
     {
         String path = "index" + File.separator;
-        fileIDManager.writeIndex(path + "file_id_manager");
-        moduleIDManager.writeIndex(path + "module_id_manager");
-        classIDManager.writeIndex(path + "class_id_manager");
-        exceptionIDManager.writeIndex(path + "exception_id_manager");
-        logLevelIndexManager.writeIndex(path + "logLevel_index_manager");
-        logDateManager.writeIndex(path + "log_date_manager");
-        bytesRead.writeIndex(path + "bytes_read");
+
+        for(Map.Entry<String, DictionaryWriter> dictionary : dictionaries.entrySet()) {
+            dictionary.getValue().write(path + dictionary.getKey());
+        }
+        Files.write(PATH_TO_INDEX.resolve("version"), String.valueOf(VERSION).getBytes());
+    }
+
+    /**
+     * Checks if there is an index which has been created by an older version of the program, it has to be created again
+     * because new entries can't be added to it
+     * @return true if the index is outdated, false if it is up to date or doesn't exist
+     * @throws IOException if the version of the index can't be read
+     */
+    public boolean isOutdated() throws IOException
+    {
+        if(!LUCENE_DIRECTORY.toFile().exists()) {
+            return false;
+        }
+
+        Path versionFile = PATH_TO_INDEX.resolve("version");
+        int version = versionFile.toFile().exists() ? Integer.parseInt(new String(Files.readAllBytes(versionFile)).trim()) : 1;
+
+        return version < VERSION;
     }
 
     public void readIndices() throws IOException
@@ -92,33 +238,614 @@ public class Index {
         moduleIDManager.readIndex(path + "module_id_manager");
         classIDManager.readIndex(path + "class_id_manager");
         exceptionIDManager.readIndex(path + "exception_id_manager");
+        //indices created before the signatures existed don't have them, their entries simply have no signature
+        if(new File(path + "signature_id_manager").exists()) {
+            signatureIDManager.readIndex(path + "signature_id_manager");
+        }
         logLevelIndexManager.readIndex(path + "logLevel_index_manager");
         logDateManager.readIndex(path + "log_date_manager");
         bytesRead.readIndex(path + "bytes_read");
+        if(new File(path + "template_manager").exists()) {
+            templateManager.readIndex(path + "template_manager");
+        }
+        templateMiner.rebuild();
+        if(new File(path + "evicted_files").exists()) {
+            evictedFiles.readIndex(path + "evicted_files");
+        }
+        if(new File(path + "file_keys").exists()) {
+            fileKeys.readIndex(path + "file_keys");
+        }
+
+        //the samples of the dates of the logfiles written by earlier versions aren't used anymore
+        Path timestamps = PATH_TO_INDEX.resolve("timestamps");
+        if(timestamps.toFile().exists())
+        {
+            try(Stream<Path> paths = Files.walk(timestamps))
+            {
+                paths.map(Path::toFile)
+                    .sorted(Comparator.comparing(File::isDirectory)) //sort so that files are deleted before their directories are
+                    .forEach(File::delete);
+            }
+        }
+
+        LogEntryCache.getInstance().clearFileIDs();
+        for(short fileID : fileIDManager.getKeySet()) {
+            LogEntryCache.getInstance().setFileID(fileIDManager.getValue(fileID), fileID);
+        }
 
         setCurrentState(IndexState.READY);
     }
 
-    public void deleteIndex() throws IOException
+    /**
+     * Reads the shards out of the lucene directory unless they have already been read
+     */
+    private synchronized TreeMap<Long, IndexShard> getLoadedShards() throws IOException
     {
-        //Delete previous directory
+        if(shards == null)
+        {
+            shards = new TreeMap<>();
+
+            //shards which couldn't be deleted completely before the index was closed
+            IndexShard.deleteRemovedShards(LUCENE_DIRECTORY);
+
+            if(LUCENE_DIRECTORY.toFile().exists())
+            {
+                try(Stream<Path> directories = Files.list(LUCENE_DIRECTORY))
+                {
+                    for(Path directory : (Iterable<Path>)directories::iterator)
+                    {
+                        IndexShard shard = directory.toFile().isDirectory() ? IndexShard.open(directory) : null;
+                        if(shard != null) {
+                            shards.put(shard.getTimeRange().beginDate, shard);
+                        }
+                    }
+                }
+            }
+        }
+
+        return shards;
+    }
+
+    /**
+     * Returns the shard an entry belongs to, it is created if there is none yet
+     * @param date the date of the entry
+     * @return the shard, which must not be closed
+     * @throws IOException if the shard can't be opened
+     */
+    synchronized IndexShard getShard(long date) throws IOException
+    {
+        TreeMap<Long, IndexShard> shards = getLoadedShards();
+        startReopenThread();
+
+        //shards created with another duration are used as well
+        Map.Entry<Long, IndexShard> shard = shards.floorEntry(date);
+        if(shard != null && shard.getValue().contains(date)) {
+            return shard.getValue();
+        }
+
+        IndexShard newShard = IndexShard.create(LUCENE_DIRECTORY, date, Settings.getInstance().getShardDuration());
+        while(shardsBeingDeleted.contains(newShard.getTimeRange().beginDate))
+        {
+            try {
+                wait();
+            }
+            catch(InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while the shard " + newShard + " was deleted");
+            }
+        }
+
+        //the shard may have been created by another thread while waiting
+        shard = shards.floorEntry(date);
+        if(shard != null && shard.getValue().contains(date)) {
+            return shard.getValue();
+        }
+        shards.put(newShard.getTimeRange().beginDate, newShard);
+
+        return newShard;
+    }
+
+    /**
+     * Starts the thread which publishes the changes of the shards to their searchers, has to be called before a shard gets changed
+     */
+    private synchronized void startReopenThread()
+    {
+        if(reopenThread != null) {
+            return;
+        }
+
+        timeOfLastCommit = System.currentTimeMillis();
+        uncommittedBytes = 0;
+
+        reopenThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Index reopen thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = (long)(MAX_STALE_SECONDS * 1000);
+        reopenThread.scheduleWithFixedDelay(this::refreshShards, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the shards containing the entries of a time range, the oldest one first
+     * @param beginDate the beginning of the time range
+     * @param endDate the end of the time range
+     * @return the shards overlapping the time range, which must not be closed
+     * @throws IOException if the lucene directory can't be read
+     */
+    public synchronized List<IndexShard> getShards(long beginDate, long endDate) throws IOException
+    {
+        List<IndexShard> overlappingShards = new ArrayList<>();
+
+        if(beginDate > endDate) {
+            return overlappingShards;
+        }
+
+        //shards can't be longer than a day, which means that only the ones beginning in the time range or the day before it can overlap it
+        long firstBeginDate = beginDate > Long.MIN_VALUE + IndexShard.DAY ? beginDate - IndexShard.DAY : Long.MIN_VALUE;
+
+        for(IndexShard shard : getLoadedShards().subMap(firstBeginDate, true, endDate, true).values())
+        {
+            if(shard.overlaps(beginDate, endDate)) {
+                overlappingShards.add(shard);
+            }
+        }
+
+        return overlappingShards;
+    }
+
+    /**
+     * Publishes the changes of the shards to their searchers, runs in the reopen thread
+     */
+    private void refreshShards()
+    {
+        try
+        {
+            List<IndexShard> shardsToRefresh;
+            synchronized(this) {
+                shardsToRefresh = new ArrayList<>(getLoadedShards().values());
+            }
+
+            for(IndexShard shard : shardsToRefresh) {
+                shard.refresh();
+            }
+        }
+        catch(IOException | RuntimeException exception) {
+            //the searchers are refreshed again with the next run
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Deletes the entries matching a query from every shard which may contain them
+     * @param query the query matching the entries
+     * @throws IOException if the index can't be written
+     */
+    synchronized void deleteDocuments(Query query) throws IOException
+    {
+        startReopenThread();
+
+        for(IndexShard shard : getLoadedShards().values())
+        {
+            if(shard.mayContainDocuments(query)) {
+                shard.deleteDocuments(query);
+            }
+        }
+    }
+
+    /**
+     * Deletes every entry of a file from the index
+     */
+    void deleteEntriesOfFile(short fileID) throws IOException
+    {
+        deleteDocuments(IntPoint.newExactQuery("fileIndex", fileID));
+    }
+
+    /**
+     * Commits the shards and saves the dictionaries, which makes the changes durable<br>
+     * The writers of shards which haven't been changed since the last commit are closed.
+     * @throws IOException if the index can't be written
+     */
+    public void commit() throws IOException
+    {
+        synchronized(commitLock)
+        {
+            List<IndexShard> shardsToCommit;
+            Map<String, DictionaryWriter> dictionaries;
+
+            synchronized(this)
+            {
+                shardsToCommit = shards == null ? new ArrayList<>() : new ArrayList<>(shards.values());
+                dictionaries = copyDictionaries();
+
+                timeOfLastCommit = System.currentTimeMillis();
+                uncommittedBytes = 0;
+            }
+
+            for(IndexShard shard : shardsToCommit)
+            {
+                //searches started after the commit see everything that has been committed
+                if(!shard.commit()) {
+                    shard.closeIndexWriter(true);
+                }
+            }
+            writeDictionaries(dictionaries);
+        }
+    }
+
+    /**
+     * Commits the index if the commit interval has passed since the last commit
+     * or more than the commit size has been indexed since then
+     * @return true if the index has been committed
+     * @throws IOException if the index can't be written
+     */
+    boolean commitIfNecessary() throws IOException
+    {
+        synchronized(this)
+        {
+            boolean hasUncommittedChanges = uncommittedBytes > 0;
+            for(IndexShard shard : shards == null ? Collections.<IndexShard>emptyList() : shards.values()) {
+                hasUncommittedChanges |= shard.hasUncommittedChanges();
+            }
+
+            if(!hasUncommittedChanges) {
+                return false;
+            }
+
+            Settings settings = Settings.getInstance();
+            boolean intervalPassed = System.currentTimeMillis() - timeOfLastCommit >= settings.getCommitInterval() * 1000;
+            boolean sizeReached = uncommittedBytes >= settings.getCommitSize() * 1024 * 1024;
+
+            if(!intervalPassed && !sizeReached) {
+                return false;
+            }
+        }
+
+        //the commit takes the commit lock, which must not be taken while holding the lock of the Index
+        commit();
+        return true;
+    }
+
+    /**
+     * Closes the IndexWriters of the shards and stops reopening their searchers, the shards can still be searched afterwards
+     * @param commit true if the changes should be committed, false if they should be discarded
+     * @throws IOException if the index can't be written
+     */
+    void closeIndexWriter(boolean commit) throws IOException
+    {
+        synchronized(commitLock)
+        {
+            List<IndexShard> shardsToClose;
+            synchronized(this)
+            {
+                if(shards == null) {
+                    return;
+                }
+                shardsToClose = new ArrayList<>(shards.values());
+            }
+
+            try
+            {
+                if(commit) {
+                    commit();
+                }
+
+                for(IndexShard shard : shardsToClose) {
+                    shard.closeIndexWriter(commit);
+                }
+            }
+            finally
+            {
+                synchronized(this)
+                {
+                    //a running refresh is finished first, the thread isn't interrupted while it reads the index
+                    if(reopenThread != null)
+                    {
+                        reopenThread.shutdown();
+                        reopenThread = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of bytes the index uses on the disk, which are the files of the shards and the dictionaries<br>
+     * The offsets of the entries of the logfiles aren't part of it, they are needed to read the logfiles.
+     * @throws IOException if the index directory can't be read
+     */
+    public long getSizeOfIndex() throws IOException
+    {
+        long size = 0;
+
         if(PATH_TO_INDEX.toFile().exists())
         {
-            try(Stream<Path> paths = Files.walk(PATH_TO_INDEX))
+            try(Stream<Path> files = Files.list(PATH_TO_INDEX))
             {
-                paths.map(Path::toFile)
-                    .sorted(Comparator.comparing(File::isDirectory)) //sort so that files are deleted before their directories are
-                    .forEach(File::delete);
+                for(Path file : (Iterable<Path>)files::iterator)
+                {
+                    File indexFile = file.toFile();
+                    if(indexFile.isFile()) {
+                        size += indexFile.length();
+                    }
+                }
+            }
+        }
+
+        List<IndexShard> allShards;
+        synchronized(this) {
+            allShards = new ArrayList<>(getLoadedShards().values());
+        }
+
+        for(IndexShard shard : allShards) {
+            size += shard.getSize();
+        }
+
+        return size;
+    }
+
+    /**
+     * Deletes the oldest shards until the index is smaller than the maximum size in the Settings<br>
+     * The newest shard is never deleted. The names and dictionaries of the files are kept so that they don't get indexed again,
+     * the time range of their removed entries is kept as well. Entries which are appended to a file later on are indexed again.
+     * @return the names of the files whose entries have been removed
+     * @throws IOException if the index can't be written
+     */
+    List<String> enforceMaximumSize() throws IOException
+    {
+        long maximumSize = Settings.getInstance().getMaxSizeOfCache() * 1024 * 1024;
+        List<String> evictedFileNames = new ArrayList<>();
+
+        if(maximumSize <= 0) {
+            return evictedFileNames;
+        }
+
+        synchronized(commitLock)
+        {
+            IndexShard.deleteRemovedShards(LUCENE_DIRECTORY);
+
+            long size = getSizeOfIndex();
+            if(size <= maximumSize) {
+                return evictedFileNames;
+            }
+
+            List<IndexShard> allShards;
+            synchronized(this) {
+                allShards = new ArrayList<>(getLoadedShards().values());
+            }
+
+            //the sizes are read without the lock, the newest shard is never deleted
+            List<IndexShard> oldestShards = new ArrayList<>();
+            for(int i = 0; i < allShards.size() - 1 && size > maximumSize; i++)
+            {
+                size -= allShards.get(i).getSize();
+                oldestShards.add(allShards.get(i));
+            }
+
+            if(oldestShards.isEmpty()) {
+                return evictedFileNames;
+            }
+
+            synchronized(this)
+            {
+                for(IndexShard shard : oldestShards)
+                {
+                    long beginDate = shard.getTimeRange().beginDate;
+                    shards.remove(beginDate, shard);
+                    shardsBeingDeleted.add(beginDate);
+                }
+            }
+
+            //a shard is deleted with its directory, which frees its space at once
+            List<IndexShard> remainingShards = new ArrayList<>();
+            try
+            {
+                for(IndexShard shard : oldestShards)
+                {
+                    try
+                    {
+                        shard.delete();
+                        System.out.println("Deleted shard " + shard);
+                    }
+                    catch(IOException exception)
+                    {
+                        //the shard is still on the disk, so its entries are kept in the index
+                        System.out.println("Could not delete shard " + shard + ": " + exception);
+                        remainingShards.add(shard.reopen());
+                    }
+                }
+            }
+            finally
+            {
+                synchronized(this)
+                {
+                    for(IndexShard shard : remainingShards) {
+                        shards.put(shard.getTimeRange().beginDate, shard);
+                    }
+                    for(IndexShard shard : oldestShards) {
+                        shardsBeingDeleted.remove(shard.getTimeRange().beginDate);
+                    }
+                    notifyAll();
+                }
+            }
+
+            synchronized(this)
+            {
+                //every entry before the oldest remaining shard has been removed
+                long beginOfIndex = shards.firstKey();
+
+                for(Map.Entry<Short, TimeRange> file : logDateManager.entrySet())
+                {
+                    TimeRange timeRange = file.getValue();
+                    if(timeRange.beginDate >= beginOfIndex) {
+                        continue;
+                    }
+
+                    TimeRange evictedTimeRange = new TimeRange(timeRange.beginDate, Math.min(timeRange.endDate, beginOfIndex - 1));
+                    TimeRange previousTimeRange = evictedFiles.put(file.getKey(), evictedTimeRange);
+
+                    if(previousTimeRange == null || previousTimeRange.endDate != evictedTimeRange.endDate) {
+                        evictedFileNames.add(fileIDManager.getValue(file.getKey()));
+                    }
+                }
+            }
+
+            commit();
+        }
+
+        return evictedFileNames;
+    }
+
+    /**
+     * Returns the files whose entries have been removed from the index to keep it below its maximum size
+     * @return the time range of the removed entries by the name of the file
+     */
+    public synchronized Map<String, TimeRange> getEvictedFiles()
+    {
+        Map<String, TimeRange> files = new LinkedHashMap<>();
+        for(Map.Entry<Short, TimeRange> evictedFile : evictedFiles.entrySet()) {
+            files.put(fileIDManager.getValue(evictedFile.getKey()), evictedFile.getValue());
+        }
+        return files;
+    }
+
+    /**
+     * Returns the time range of the entries of a file which have been removed from the index to keep it below its maximum size
+     * @return the time range or null if no entries of the file have been removed
+     */
+    public synchronized TimeRange getEvictedTimeRange(short fileID)
+    {
+        return evictedFiles.get(fileID);
+    }
+
+    public void deleteIndex() throws IOException
+    {
+        synchronized(commitLock)
+        {
+            closeIndexWriter(false);
+
+            //the files of the index can't be deleted while the writers use them
+            TreeMap<Long, IndexShard> removedShards;
+            synchronized(this)
+            {
+                removedShards = shards;
+                shards = null;
+            }
+
+            if(removedShards != null)
+            {
+                for(IndexShard shard : removedShards.values()) {
+                    shard.close();
+                }
+            }
+
+            //Delete previous directory
+            if(PATH_TO_INDEX.toFile().exists())
+            {
+                try(Stream<Path> paths = Files.walk(PATH_TO_INDEX))
+                {
+                    paths.map(Path::toFile)
+                        .sorted(Comparator.comparing(File::isDirectory)) //sort so that files are deleted before their directories are
+                        .forEach(File::delete);
+                }
+            }
+
+            synchronized(this)
+            {
+                fileIDManager.clear();
+                moduleIDManager.clear();
+                classIDManager.clear();
+                exceptionIDManager.clear();
+                signatureIDManager.clear();
+                logLevelIndexManager.clear();
+                logDateManager.clear();
+                bytesRead.clear();
+                templateManager.clear();
+                templateMiner.rebuild();
+                evictedFiles.clear();
+                fileKeys.clear();
             }
+
+            //the files get new IDs
+            LogEntryCache.getInstance().invalidateAll();
+            LogEntryCache.getInstance().clearFileIDs();
+        }
+    }
+
+    /**
+     * Returns the ID of a file, a file which isn't part of the index yet gets the smallest unused ID
+     * @param filename the name of the file in the log folder
+     * @return the ID of the file
+     */
+    synchronized short addFile(String filename)
+    {
+        short fileID = fileIDManager.getKeyOrDefault(filename, (short)-1);
+
+        if(fileID == -1)
+        {
+            //the IDs of removed files are used again, which keeps the IDs close to 0
+            fileID = 0;
+            while(fileIDManager.containsKey(fileID)) {
+                fileID++;
+            }
+
+            fileIDManager.addIfAbsent(fileID, filename);
+            LogEntryCache.getInstance().setFileID(filename, fileID);
+        }
+
+        return fileID;
+    }
+
+    /**
+     * Removes the entries of a file from the index together with everything that has been stored about its content
+     * (its log levels, dates, indexed bytes, offsets, cached entries and open channels), the file keeps its ID and gets indexed
+     * from the beginning the next time it is updated
+     * @param fileID the ID of the file
+     * @throws IOException if the index can't be written
+     */
+    synchronized void resetFile(short fileID) throws IOException
+    {
+        String filename = fileIDManager.getValue(fileID);
+
+        deleteEntriesOfFile(fileID);
+
+        logLevelIndexManager.remove(fileID);
+        logDateManager.remove(fileID);
+        bytesRead.remove(fileID);
+        evictedFiles.remove(fileID);
+        fileKeys.remove(fileID);
+
+        Files.deleteIfExists(LogReader.getEntryOffsetFile(filename));
+        Files.deleteIfExists(LogReader.getCheckpointFile(filename));
+
+        LogEntryCache.getInstance().invalidate(fileID);
+
+        //the file may have been replaced by a new one which must not be read through the channel of the old one
+        Path logFile = Paths.get(Settings.getInstance().getLogFilePath(), filename);
+        FileChannelPool.getInstance().invalidate(logFile);
+        LogReader.invalidateLastEntry(logFile);
+    }
+
+    /**
+     * Removes a file which has been deleted from the index, its ID is given to the next new file
+     * @param filename the name of the file in the log folder
+     * @return true if the file has been part of the index
+     * @throws IOException if the index can't be written
+     */
+    synchronized boolean removeFile(String filename) throws IOException
+    {
+        short fileID = fileIDManager.getKeyOrDefault(filename, (short)-1);
+
+        if(fileID == -1) {
+            return false;
         }
 
-        fileIDManager.clear();
-        moduleIDManager.clear();
-        classIDManager.clear();
-        exceptionIDManager.clear();
-        logLevelIndexManager.clear();
-        logDateManager.clear();
-        bytesRead.clear();
+        resetFile(fileID);
+        fileIDManager.removeKey(fileID);
+        LogEntryCache.getInstance().removeFileID(filename);
+
+        return true;
     }
 
     void setCurrentState(IndexState state)
@@ -200,8 +927,11 @@ public class Index {
         return fileIDManager.getKey(fileName);
     }
 
-    public Set<Short> getFileIDs() {
-        return fileIDManager.getKeySet();
+    /**
+     * Returns a copy of the IDs of all files, files can be added and removed while the copy is used
+     */
+    public synchronized Set<Short> getFileIDs() {
+        return new HashSet<>(fileIDManager.getKeySet());
     }
 
     public BiMap<Short, String> getFileData() {
@@ -215,8 +945,11 @@ public class Index {
     }
 
     //----- LogLevelIndexManager -----//
-    public Set<Byte> getLogLevelsOfFile(short fileID) {
-        return logLevelIndexManager.getOrDefault(fileID, new LinkedHashSet<>());
+    /**
+     * Returns a copy of the log levels of a file, the levels are added to while the file is indexed
+     */
+    public synchronized Set<Byte> getLogLevelsOfFile(short fileID) {
+        return new LinkedHashSet<>(logLevelIndexManager.getOrDefault(fileID, Collections.emptySet()));
     }
     //----- LogLevelIndexManager -----//
 
@@ -226,6 +959,10 @@ public class Index {
         return moduleIDManager.getKey(module);
     }
 
+    public String getModuleName(int moduleID) {
+        return moduleIDManager.getValue(moduleID);
+    }
+
     public Set<String> getModuleNames() {
         return moduleIDManager.getValueSet();
     }
@@ -243,11 +980,58 @@ public class Index {
     //----- ClassIDManager -----//
 
 
+    //----- SignatureIDManager -----//
+    public int getSignatureID(String signature) {
+        return signatureIDManager.getKey(signature);
+    }
+
+    public String getSignature(int signatureID) {
+        return signatureIDManager.getValue(signatureID);
+    }
+
+    public Set<String> getSignatures() {
+        return signatureIDManager.getValueSet();
+    }
+
+    /**
+     * Returns the amount of different stack trace signatures, all signature IDs are smaller than it
+     */
+    public int getAmountOfSignatures() {
+        return signatureIDManager.size();
+    }
+    //----- SignatureIDManager -----//
+
+
+    //----- TemplateManager -----//
+    public String getTemplate(int templateID) {
+        return templateMiner.getTemplate(templateID);
+    }
+
+    /**
+     * Returns a copy of all templates by their ID
+     */
+    public Map<Integer, String> getTemplates() {
+        return templateMiner.getTemplates();
+    }
+
+    /**
+     * Returns the amount of message templates, all template IDs are smaller than it
+     */
+    public int getAmountOfTemplates() {
+        return templateMiner.getAmountOfTemplates();
+    }
+    //----- TemplateManager -----//
+
+
     //----- ClassIDManager -----//
     public int getClassID(String className) {
         return classIDManager.getKey(className);
     }
 
+    public String getClassName(int classID) {
+        return classIDManager.getValue(classID);
+    }
+
     public Set<String> getClassNames() {
         return classIDManager.getValueSet();
     }
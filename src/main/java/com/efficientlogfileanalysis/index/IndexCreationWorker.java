@@ -9,19 +9,35 @@ import com.efficientlogfileanalysis.util.Timer;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Thread which performs Indexing Operations
  */
 class IndexCreationWorker extends Thread{
 
+    /**
+     * How many seconds the worker waits for a new task before it checks if the index has to be committed
+     */
+    private static final long COMMIT_CHECK_INTERVAL = 1;
+
     private Index index;
 
     private ConcurrentQueue<IndexCreatorTask> tasks = new ConcurrentQueue<>();
     private DirectoryWatcher fileChangeChecker;
 
-    private boolean directoryChanged = false;
-    private boolean interrupted = false;
+    /**
+     * The worker isn't interrupted to stop the indexing, an interrupt during a write would close the IndexWriter of a shard.
+     * Instead the IndexCreators check these flags before every entry.
+     */
+    private volatile boolean directoryChanged = false;
+    private volatile boolean stopped = false;
 
     public IndexCreationWorker(Index index)
     {
@@ -37,29 +53,51 @@ class IndexCreationWorker extends Thread{
         try
         {
             index.setCurrentState(IndexState.INDEXING);
-            index.readIndices();
-            checkAllFilesForUpdates();
-            index.setCurrentState(IndexState.READY);
+
+            if(index.isOutdated())
+            {
+                //entries can't be added to an index with different fields, it gets created again
+                directoryChanged = true;
+            }
+            else
+            {
+                index.readIndices();
+                checkAllFilesForUpdates();
+                index.setCurrentState(IndexState.READY);
+            }
         }
-        catch (InterruptedException e) {interrupted = true;}
+        catch (InterruptedException e) {stopped = true;}
+        catch (CancellationException e) {/* the index gets created again or the worker stops */}
         catch (IOException e) {index.setCurrentState(IndexState.NOT_READY);}
 
-        while(!interrupted || directoryChanged)
+        while(!stopped || directoryChanged)
         {
             try
             {
                 while(directoryChanged){
-                    interrupted = false;
                     System.out.println("Recreating Index");
                     directoryChanged = false;
                     index.setCurrentState(IndexState.INDEXING);
                     Timer timer = new Timer();
                     createNewIndex();
-                    System.out.println("Index Creation took: " + timer.time());
-                    index.setCurrentState(IndexState.READY);
+
+                    if(!isCancelled())
+                    {
+                        System.out.println("Index Creation took: " + timer.time());
+                        index.setCurrentState(IndexState.READY);
+                    }
                 }
 
-                IndexCreatorTask task = tasks.pop();
+                //wake up regularly to commit changes once the commit interval has passed
+                IndexCreatorTask task = tasks.pop(COMMIT_CHECK_INTERVAL, TimeUnit.SECONDS);
+
+                if(task == null)
+                {
+                    if(index.commitIfNecessary()) {
+                        enforceMaximumSize();
+                    }
+                    continue;
+                }
 
                 index.setCurrentState(IndexState.INDEXING);
                 switch(task.getTaskType())
@@ -70,6 +108,13 @@ class IndexCreationWorker extends Thread{
                     case FILE_APPENDED:
                         fileChanged(task.getFilename());
                         break;
+                    case FILE_DELETED:
+                        fileDeleted(task.getFilename());
+                        break;
+                }
+
+                if(index.commitIfNecessary()) {
+                    enforceMaximumSize();
                 }
 
                 if(tasks.isEmpty()){
@@ -78,7 +123,11 @@ class IndexCreationWorker extends Thread{
             }
             catch (InterruptedException e) {
                 index.setCurrentState(IndexState.INTERRUPTED);
-                interrupted = true;
+                stopped = true;
+            }
+            catch (CancellationException e) {
+                //the index gets created again or the worker stops, which is checked by the loop
+                index.setCurrentState(IndexState.INTERRUPTED);
             }
             catch (IOException e){
                 //--- An error occurred --//
@@ -88,6 +137,16 @@ class IndexCreationWorker extends Thread{
                 return;
             }
         }
+
+        index.setCurrentState(IndexState.INTERRUPTED);
+
+        try
+        {
+            index.closeIndexWriter(true);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     private void fileCreated(String filename) throws IOException, InterruptedException {
@@ -100,47 +159,115 @@ class IndexCreationWorker extends Thread{
         updateFile(filename);
     }
 
+    /**
+     * Removes a deleted file from the index, its entries are deleted without creating the index again
+     */
+    private void fileDeleted(String filename) throws IOException, InterruptedException
+    {
+        //the file has been created again in the meantime (e.g. rotated), it is indexed again if it has been replaced
+        if(new File(Settings.getInstance().getLogFilePath() + File.separator + filename).exists())
+        {
+            updateFile(filename);
+            return;
+        }
+
+        if(index.removeFile(filename)) {
+            System.out.println("Removed " + filename + " from the index");
+        }
+    }
+
+    /**
+     * Stops the current indexing after the entry which is being indexed and creates the index again,
+     * a previous shutdown of the worker is revoked
+     */
     public void redoIndex()
     {
+        stopped = false;
         directoryChanged = true;
-        this.interrupt();
     }
 
+    /**
+     * Stops the current indexing after the entry which is being indexed, the worker finishes within the commit check interval
+     */
     public void shutdown()
     {
-        this.interrupt();
+        stopped = true;
         fileChangeChecker.interrupt();
     }
 
+    /**
+     * Tells the IndexCreators to stop, because the index gets created again or the worker gets shut down
+     */
+    private boolean isCancelled()
+    {
+        return directoryChanged || stopped;
+    }
+
     private void createNewIndex()
     {
         try
         {
             index.deleteIndex();
 
-            try(IndexCreator indexCreator = new IndexCreator(index))
-            {
-                fileChangeChecker = fileChangeChecker.switchDirectory(
-                        Settings.getInstance().getLogFilePath()
-                );
-
-                String logFolder = Settings.getInstance().getLogFilePath();
+            fileChangeChecker = fileChangeChecker.switchDirectory(
+                    Settings.getInstance().getLogFilePath()
+            );
 
-                LogReader.forEachLogFile(logFolder,
-                    filePath -> indexCreator.indexSingleLogFile(filePath.toFile().getName())
-                );
+            String logFolder = Settings.getInstance().getLogFilePath();
 
-                index.saveIndices();
+            List<String> filenames;
+            try(Stream<Path> files = LogReader.getAllLogFilesAsStream(logFolder))
+            {
+                filenames = files.map(filePath -> filePath.toFile().getName()).collect(Collectors.toList());
             }
+
+            IndexCreator.indexLogFilesInParallel(index, filenames, Settings.getInstance().getNumberOfIndexingThreads(), this::isCancelled);
+
+            //a new index is committed at once, it would have to be created again otherwise
+            index.commit();
+            enforceMaximumSize();
         }
         catch(IOException ex)
         {
             ex.printStackTrace();
         }
+        catch(InterruptedException ex)
+        {
+            stopped = true;
+        }
+        catch(CancellationException ex)
+        {
+            //the index gets recreated again or the worker gets shut down
+        }
+    }
+
+    /**
+     * Deletes the oldest shards of the index if it has grown beyond its maximum size
+     */
+    private void enforceMaximumSize() throws IOException
+    {
+        List<String> evictedFiles = index.enforceMaximumSize();
+
+        if(!evictedFiles.isEmpty()) {
+            System.out.println("Evicted entries of " + evictedFiles + " to keep the index below its maximum size");
+        }
     }
 
     private void checkAllFilesForUpdates() throws IOException, InterruptedException
     {
+        //files which have been deleted while the worker wasn't running
+        List<String> indexedFiles;
+        synchronized(index) {
+            indexedFiles = new ArrayList<>(index.getFileData().getValueSet());
+        }
+
+        for(String filename : indexedFiles)
+        {
+            if(!new File(Settings.getInstance().getLogFilePath() + File.separator + filename).exists()) {
+                fileDeleted(filename);
+            }
+        }
+
         LogReader.forEachLogFile(Settings.getInstance().getLogFilePath(),
             filePath -> updateFile(filePath.getFileName().toString())
         );
@@ -150,16 +277,11 @@ class IndexCreationWorker extends Thread{
     {
         File file = new File(Settings.getInstance().getLogFilePath() + File.separator + filename);
 
-        //ignore all files that don't end in .log
-        if(!file.exists() || file.isDirectory() || !file.getName().endsWith(".log")){
+        //ignore all files that aren't logfiles
+        if(!file.exists() || file.isDirectory() || !LogReader.isLogFile(file.getName())){
             return;
         }
 
-        try(IndexCreator indexCreator = new IndexCreator(index))
-        {
-            indexCreator.repeatablyTryAndUpdateFile(file);
-        }
-
-        index.saveIndices();
+        new IndexCreator(index, this::isCancelled).repeatablyTryAndUpdateFile(file);
     }
 }
@@ -1,68 +1,106 @@
 package com.efficientlogfileanalysis.index;
 
 import com.efficientlogfileanalysis.data.Settings;
+import com.efficientlogfileanalysis.index.data.SerializableBiMap;
 import com.efficientlogfileanalysis.index.data.TimeRange;
+import com.efficientlogfileanalysis.logs.EntryOffsetIndex;
+import com.efficientlogfileanalysis.logs.ExceptionExtractor;
+import com.efficientlogfileanalysis.logs.LogEntryCache;
+import com.efficientlogfileanalysis.logs.LogFileParser;
 import com.efficientlogfileanalysis.logs.LogReader;
-import com.efficientlogfileanalysis.logs.data.LogEntry;
-import com.efficientlogfileanalysis.logs.data.LogFileData;
-import com.efficientlogfileanalysis.util.ByteConverter;
+import com.efficientlogfileanalysis.logs.StackTraceFingerprint;
+import com.efficientlogfileanalysis.logs.data.LogEntryView;
+import com.efficientlogfileanalysis.util.ByteSequence;
 import com.efficientlogfileanalysis.util.Timer;
 import lombok.Getter;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.*;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
-import org.apache.lucene.util.BytesRef;
-
-import java.io.Closeable;
+
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileSystemException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Adds the entries of the logfiles to the index<br>
+ * The documents are added to the shard of their date, whose IndexWriter is shared by all IndexCreators and stays open.
+ * They are committed by the Index according to its commit policy.
+ */
 @Getter
-public class IndexCreator implements Closeable {
-
-    private static final Path LUCENE_DIRECTORY = Index.PATH_TO_INDEX.resolve("lucene");
+public class IndexCreator {
 
     private Index index;
 
-    private Directory indexDirectory;
-    private Analyzer analyzer;
-    private IndexWriterConfig indexWriterConfig;
-    private IndexWriter indexWriter;
+    /**
+     * The shard of the last indexed entry, the following entries of a file usually belong to the same one
+     */
+    private IndexShard currentShard;
 
-    public IndexCreator(Index index) throws IOException
-    {
-        this.index = index;
+    private final LogEntryDocument document = new LogEntryDocument();
+    private final Map<ByteSequence, Integer> classIDs = new HashMap<>();
+    private final Map<ByteSequence, Integer> moduleIDs = new HashMap<>();
+    private final Map<ByteSequence, Integer> exceptionIDs = new HashMap<>();
 
-        //Open the index directory (creates the directory if it doesn't exist)
-        indexDirectory = FSDirectory.open(LUCENE_DIRECTORY);
+    /**
+     * The ids of the exceptions in the currently indexed entry
+     */
+    private int[] exceptionIDsOfEntry = new int[8];
+
+    /**
+     * The ids of the stack trace signatures by their hash
+     */
+    private final Map<Long, Integer> signatureIDs = new HashMap<>();
+    private final StackTraceFingerprint fingerprint = new StackTraceFingerprint();
 
-        //Create Analyzer object
-        //The analyzer removes useless tokens ( words like a, an is etc.)
-        analyzer = new StandardAnalyzer();
+    /**
+     * The file of the last indexed entry and a copy of the log levels that appear in it,
+     * new levels are added to the index while holding its lock
+     */
+    private short currentFileID = -1;
+    private Set<Byte> logLevelsOfCurrentFile;
 
-        //The IndexWriter is used to create an Index
-        indexWriterConfig = new IndexWriterConfig(analyzer);
+    /**
+     * Tells if the indexing should be stopped, it is checked before every entry.<br>
+     * The thread isn't interrupted instead, an interrupt during a write would close the IndexWriter or the file.
+     */
+    private final BooleanSupplier isCancelled;
 
-        //Specify the Index to be written to and the config
-        indexWriter = new IndexWriter(indexDirectory, indexWriterConfig);
+    /**
+     * Creates an IndexCreator which adds its documents to the shards of the index
+     * @param index the index the dictionaries belong to
+     */
+    public IndexCreator(Index index)
+    {
+        this(index, () -> false);
     }
 
-    @Override
-    public void close() throws IOException
+    /**
+     * Creates an IndexCreator which can be stopped while it indexes a file
+     * @param index the index the dictionaries belong to
+     * @param isCancelled returns true once the indexing should be stopped
+     */
+    public IndexCreator(Index index, BooleanSupplier isCancelled)
     {
-        indexWriter.close();
-        analyzer.close();
-        indexDirectory.close();
+        this.index = index;
+        this.isCancelled = isCancelled;
     }
 
     /**
@@ -93,113 +131,308 @@ public class IndexCreator implements Closeable {
         }
     }
 
+    /**
+     * Indexes multiple files at the same time<br>
+     * Every file is read by one of the worker threads, which all add their documents to the shards of the index.
+     * The files get their IDs in the order of their names before indexing starts,
+     * which means that the IDs don't depend on which file is finished first.<br>
+     * If a file can't be indexed or the indexing is cancelled, the other workers stop after their current entry
+     * and this method returns once all of them have finished.
+     * @param index the index the files are added to
+     * @param filenames the names of the files in the log folder
+     * @param numberOfThreads how many files are read at the same time
+     * @param isCancelled returns true once the indexing should be stopped
+     * @throws IOException if one of the files can't be indexed
+     * @throws CancellationException if the indexing has been cancelled
+     * @throws InterruptedException if the thread gets interrupted while waiting for the workers
+     */
+    public static void indexLogFilesInParallel(Index index, List<String> filenames, int numberOfThreads, BooleanSupplier isCancelled) throws IOException, InterruptedException
+    {
+        List<String> sortedFilenames = filenames.stream().distinct().sorted().collect(Collectors.toList());
+
+        for(String filename : sortedFilenames) {
+            index.addFile(filename);
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        BooleanSupplier isStopped = () -> failed.get() || isCancelled.getAsBoolean();
+
+        ExecutorService workers = Executors.newFixedThreadPool(numberOfThreads);
+        try
+        {
+            List<Future<?>> results = new ArrayList<>(sortedFilenames.size());
+            for(String filename : sortedFilenames)
+            {
+                results.add(workers.submit(() -> {
+                    if(isStopped.getAsBoolean()) {
+                        throw new CancellationException("Indexing has been cancelled");
+                    }
+
+                    try {
+                        new IndexCreator(index, isStopped).indexSingleLogFile(filename);
+                    }
+                    catch(IOException | RuntimeException exception)
+                    {
+                        failed.set(true);
+                        throw exception;
+                    }
+                    return null;
+                }));
+            }
+
+            for(Future<?> result : results) {
+                result.get();
+            }
+        }
+        catch(ExecutionException exception)
+        {
+            if(exception.getCause() instanceof IOException) {
+                throw (IOException) exception.getCause();
+            }
+            if(exception.getCause() instanceof CancellationException) {
+                throw (CancellationException) exception.getCause();
+            }
+            throw new IOException("Logfile could not be indexed", exception.getCause());
+        }
+        finally
+        {
+            //the workers stop on their own, interrupting them could close the IndexWriter of a shard
+            failed.set(true);
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Indexes all entries of a file that haven't been indexed yet<br>
+     * The dictionaries of the index are only accessed while holding the lock of the index,
+     * which means that multiple files can be indexed at the same time.<br>
+     * A file which is smaller than the indexed part of it (truncated) or which has been replaced by another file with the same name
+     * (rotated) is removed from the index and indexed from the beginning.
+     * @param filename the name of the file in the log folder
+     * @throws IOException if the file can't be read
+     * @throws CancellationException if the indexing has been cancelled, the entries indexed until then are kept
+     */
     public void indexSingleLogFile(String filename) throws IOException
     {
-        //add the file id to the index
-        index.fileIDManager.addIfAbsent((short)index.fileIDManager.size(), filename);
-        short fileID = index.fileIDManager.getKey(filename);
+        short fileID;
+        long bytesIndexed;
+        TimeRange timeRange;
+
+        String path = Settings.getInstance().getLogFilePath() + File.separator + filename;
+        boolean isCompressed = LogReader.isCompressed(filename);
+        String fileKey = getFileKey(Paths.get(path));
+        long sizeOfFile = new File(path).length();
+
+        synchronized(index)
+        {
+            //add the file id to the index
+            fileID = index.addFile(filename);
+
+            index.bytesRead.putIfAbsent(fileID, 0L);
+            bytesIndexed = index.bytesRead.get(fileID);
+
+            //the size of a compressed file can't be compared with the amount of decompressed bytes
+            String indexedFileKey = index.fileKeys.get(fileID);
+            boolean isReplaced = fileKey != null && indexedFileKey != null && !fileKey.equals(indexedFileKey);
+            boolean isTruncated = !isCompressed && sizeOfFile < bytesIndexed;
+
+            if(bytesIndexed > 0 && (isReplaced || isTruncated))
+            {
+                System.out.println(filename + " has been " + (isReplaced ? "replaced" : "truncated") + ", indexing it again");
+                index.resetFile(fileID);
+                index.bytesRead.put(fileID, 0L);
+                bytesIndexed = 0;
+                currentFileID = -1;
+            }
 
-        index.bytesRead.putIfAbsent(fileID, 0L);
-        long bytesIndexed = index.bytesRead.get(fileID);
+            if(fileKey != null) {
+                index.fileKeys.put(fileID, fileKey);
+            }
 
-        LogFileData fileData = LogReader.readSingleFile(
-                Settings.getInstance().getLogFilePath() + File.separator + filename,
-                bytesIndexed
-        );
+            //TODO - not really needed anymore due to the getTimeRangeOfFile method in LogReader
+            //save the beginning and end date of each file
+            timeRange = index.logDateManager.get(fileID);
+        }
 
-        if(fileData.getEntries().size() <= 0){
+        //compressed files don't change after they have been rotated
+        if(isCompressed && bytesIndexed > 0) {
             return;
         }
 
-        index.bytesRead.put(fileID, bytesIndexed + fileData.getBytesRead());
+        //the file is read from the beginning, its entries may have changed
+        if(bytesIndexed == 0) {
+            LogEntryCache.getInstance().invalidate(fileID);
+        }
 
-        TimeRange previousTimeRange = index.logDateManager.get(fileID);
+        TimeRange[] timeRangeOfFile = {timeRange};
+        long[] endOfIndexedEntries = {bytesIndexed};
 
-        if(previousTimeRange == null){
-            previousTimeRange = new TimeRange();
-            previousTimeRange.beginDate = fileData.getEntries().get(0).getTime();
+        //compressed files are decompressed once and copied into a checkpoint file which allows reading them at any position
+        try(LogFileParser parser = isCompressed ?
+            new LogFileParser(path, LogReader.getCheckpointFile(filename)) :
+            new LogFileParser(path);
+            EntryOffsetIndex.Writer entryOffsets = new EntryOffsetIndex.Writer(LogReader.getEntryOffsetFile(filename), bytesIndexed))
+        {
+            parser.parse(
+                bytesIndexed,
+                (LogEntryView logEntry) -> {
+                    if(isCancelled.getAsBoolean()) {
+                        throw new CancellationException("Indexing of " + filename + " has been cancelled");
+                    }
+
+                    indexLogEntry(logEntry, fileID);
+                    entryOffsets.add(logEntry.getEntryID());
+
+                    if(timeRangeOfFile[0] == null){
+                        timeRangeOfFile[0] = new TimeRange();
+                        timeRangeOfFile[0].beginDate = logEntry.getTime();
+                    }
+                    timeRangeOfFile[0].endDate = logEntry.getTime();
+
+                    endOfIndexedEntries[0] = logEntry.getEndOfEntry();
+                }
+            );
         }
-        previousTimeRange.endDate = fileData.getEntries().get(fileData.getEntries().size() - 1).getTime();
-
-        //TODO - not really needed anymore due to the getTimeRangeOfFile method in LogReader
-        //save the beginning and end date of each file
-        index.logDateManager.put(
-                fileID,
-                previousTimeRange
-        );
+        catch(EOFException exception)
+        {
+            if(!isCompressed) {
+                throw exception;
+            }
 
-        for(LogEntry logEntry : fileData.getEntries()) {
-            indexLogEntry(logEntry, fileID);
+            //the compressed file is still being written, it gets indexed again once it has been changed
+            System.out.println("Compressed file " + filename + " is incomplete");
+            index.deleteEntriesOfFile(fileID);
+            Files.deleteIfExists(LogReader.getEntryOffsetFile(filename));
+            Files.deleteIfExists(LogReader.getCheckpointFile(filename));
+            timeRangeOfFile[0] = timeRange;
+            endOfIndexedEntries[0] = 0;
+        }
+        finally
+        {
+            synchronized(index)
+            {
+                if(timeRangeOfFile[0] != null) {
+                    index.logDateManager.put(fileID, timeRangeOfFile[0]);
+                }
+                index.bytesRead.put(fileID, endOfIndexedEntries[0]);
+                index.uncommittedBytes += Math.max(0, endOfIndexedEntries[0] - bytesIndexed);
+            }
         }
     }
 
-    public void indexLogEntry(LogEntry logEntry, short fileID) throws IOException
+    /**
+     * Returns the key which identifies a file in the file system (e.g. its inode), it stays the same if the file is renamed
+     * and changes if the file is replaced by a new one with the same name
+     * @return the key or null if the file system doesn't provide one
+     */
+    private static String getFileKey(Path path) throws IOException
     {
-        Document document = new Document();
+        Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        return fileKey == null ? null : fileKey.toString();
+    }
 
-        Set logLevels = index.logLevelIndexManager.get(fileID);
-        if(logLevels == null){
-            logLevels = new LinkedHashSet<>();
-            index.logLevelIndexManager.putIfAbsent(fileID, logLevels);
+    public void indexLogEntry(LogEntryView logEntry, short fileID) throws IOException
+    {
+        if(fileID != currentFileID)
+        {
+            synchronized(index) {
+                logLevelsOfCurrentFile = new LinkedHashSet<>(index.logLevelIndexManager.getOrDefault(fileID, Collections.emptySet()));
+            }
+            currentFileID = fileID;
+        }
+
+        //the levels of the index are only changed while holding its lock, which only happens the first time a level appears in a file
+        byte logLevel = logEntry.getLogLevel().getId();
+        if(logLevelsOfCurrentFile.add(logLevel))
+        {
+            synchronized(index) {
+                index.logLevelIndexManager.computeIfAbsent(fileID, id -> new LinkedHashSet<>()).add(logLevel);
+            }
         }
-        logLevels.add(logEntry.getLogLevel().getId());
 
         //add the classname to the classname index
-        index.classIDManager.addIfAbsent(index.classIDManager.size(), logEntry.getClassName());
-        int classID = index.classIDManager.getKey(logEntry.getClassName());
+        int classID = getID(classIDs, index.classIDManager, logEntry.getClassName());
 
         //add the module to the module index
-        index.moduleIDManager.addIfAbsent(index.moduleIDManager.size(), logEntry.getModule());
-        int moduleID = index.moduleIDManager.getKey(logEntry.getModule());
+        int moduleID = getID(moduleIDs, index.moduleIDManager, logEntry.getModule());
+
+        //add the logged exception and its causes to the exception index
+        ExceptionExtractor exceptions = logEntry.findExceptions();
+        int amountOfExceptions = exceptions.getAmountOfExceptions();
+
+        if(exceptionIDsOfEntry.length < amountOfExceptions) {
+            exceptionIDsOfEntry = new int[amountOfExceptions];
+        }
+
+        for(int i = 0; i < amountOfExceptions; i++) {
+            exceptionIDsOfEntry[i] = getID(exceptionIDs, index.exceptionIDManager, exceptions.getName(i));
+        }
 
-        Optional<String> exception = logEntry.findException();
-        if(exception.isPresent())
+        //add the fingerprint of the stack trace to the signature index
+        int signatureID = -1;
+        if(amountOfExceptions > 0)
         {
-            index.exceptionIDManager.addIfAbsent(index.exceptionIDManager.size(), exception.get());
-            int exceptionID = index.exceptionIDManager.getKey(exception.get());
-
-            document.add(new IntPoint("exception", exceptionID));
-        }
-
-        //Add main parts of a log entry
-        document.add(new LongPoint("date", logEntry.getTime()));
-        document.add(new LongPoint("logLevel", logEntry.getLogLevel().getId()));
-        document.add(new TextField("message", logEntry.getMessage(), Field.Store.NO));
-        document.add(new IntPoint("classname", classID));
-        document.add(new IntPoint("module", moduleID));
-        //add the fileIndex as a IntPoint so that lucene can search for entries in a specific file
-        document.add(new IntPoint("fileIndex", fileID));
-
-        //store data for latter retrieval
-        document.add(new StoredField("logEntryID", logEntry.getEntryID()));
-        document.add(new StoredField("fileIndex", fileID));
-
-        //add the file index as a sortedField so that lucene can group by it
-        document.add(new SortedDocValuesField(
-                "fileIndex",
-                new BytesRef(ByteConverter.shortToByte(fileID)))
-        );
-        document.add(new SortedDocValuesField(
-                "logLevel",
-                new BytesRef(new byte[] {
-                        logEntry.getLogLevel().getId()
-                })
-        ));
-
-        indexWriter.addDocument(document);
+            long hash = fingerprint.compute(logEntry.getMessage(), exceptions);
+            Integer id = signatureIDs.get(hash);
+
+            if(id == null)
+            {
+                String signature = fingerprint.describe();
+                synchronized(index)
+                {
+                    index.signatureIDManager.addIfAbsent(index.signatureIDManager.size(), signature);
+                    id = index.signatureIDManager.getKey(signature);
+                }
+                signatureIDs.put(hash, id);
+            }
+            signatureID = id;
+        }
+
+        //assign the message to its template
+        int templateID = index.templateMiner.match(logEntry.getMessage());
+
+        if(currentShard == null || !currentShard.contains(logEntry.getTime())) {
+            currentShard = index.getShard(logEntry.getTime());
+        }
+
+        currentShard.addDocument(document.set(logEntry, fileID, classID, moduleID, exceptionIDsOfEntry, amountOfExceptions, signatureID, templateID));
     }
 
-    public static void main(String[] args) throws IOException {
+    /**
+     * Looks up the id of a value without decoding it into a String<br>
+     * The value only gets decoded and added to the dictionary the first time it appears
+     * @param cache the ids of the values which have already been looked up
+     * @param idManager the dictionary containing all values
+     * @param value the value pointing into the currently read logfile
+     * @return the id of the value
+     */
+    private int getID(Map<ByteSequence, Integer> cache, SerializableBiMap<Integer, String> idManager, ByteSequence value)
+    {
+        Integer id = cache.get(value);
 
-        LogFileData file = LogReader.readSingleFile("C:\\Users\\AndiK\\3D Objects\\Diplomarbeit\\log-files\\test_logs\\DesktopClient-DEGFF-N-0165.haribo.dom.log");
-        List<LogEntry> entries = file.getEntries();
+        if(id == null)
+        {
+            String name = value.toString();
+            synchronized(index)
+            {
+                idManager.addIfAbsent(idManager.size(), name);
+                id = idManager.getKey(name);
+            }
 
+            cache.put(value.copy(), id);
+        }
+
+        return id;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        String path = args.length > 0 ? args[0] : "C:\\Users\\AndiK\\3D Objects\\Diplomarbeit\\log-files\\test_logs\\DesktopClient-DEGFF-N-0165.haribo.dom.log";
 
         IndexCreator indexCreator = new IndexCreator(Index.getInstance());
         Timer.timeIt(() -> {
-            for (LogEntry entry : entries) {
-                indexCreator.indexLogEntry(entry, (short)0);
-            }
+            LogReader.readSingleFile(path, 0, (LogEntryView entry) -> indexCreator.indexLogEntry(entry, (short)0));
         }, 20);
     }
 
@@ -0,0 +1,484 @@
+package com.efficientlogfileanalysis.index;
+
+import com.efficientlogfileanalysis.index.data.TimeRange;
+import lombok.Getter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A part of the lucene index which contains the entries of a day or an hour<br>
+ * Every shard is a lucene index of its own, its directory is named after the beginning of its time range in UTC
+ * (e.g. 2022-07-04 for a day or 2022-07-04_14 for an hour). Searches only read the shards overlapping their time range
+ * and old entries are removed by deleting whole shards.<br>
+ * The IndexWriter of a shard is opened when entries are added to it or deleted from it and is closed by the Index once the shard
+ * hasn't been changed for a whole commit interval, the entries of a shard without a writer are read out of its last commit.
+ */
+public class IndexShard {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH").withZone(ZoneOffset.UTC);
+
+    static final long HOUR = 60 * 60 * 1000;
+    static final long DAY = 24 * HOUR;
+
+    /**
+     * Appended to the name of the directory of a deleted shard, which isn't opened as a shard anymore
+     */
+    private static final String REMOVED_SUFFIX = ".removed";
+
+    @Getter
+    private final Path path;
+
+    /**
+     * The dates of the entries which belong to the shard
+     */
+    @Getter
+    private final TimeRange timeRange;
+
+    private final Directory directory;
+    private Analyzer analyzer;
+    private volatile IndexWriter indexWriter;
+
+    /**
+     * Provides the searchers of the shard, they are reopened from the writer while it is open (near real time)
+     * and read the last commit otherwise
+     */
+    private SearcherManager searcherManager;
+
+    /**
+     * Entries are added and deleted while holding the read lock, the writer is only closed while holding the write lock
+     */
+    private final ReadWriteLock writerLock = new ReentrantReadWriteLock();
+
+    private volatile boolean changedSinceRefresh;
+    private volatile boolean changedSinceCommit;
+
+    private IndexShard(Path path, TimeRange timeRange) throws IOException
+    {
+        this.path = path;
+        this.timeRange = timeRange;
+        this.directory = FSDirectory.open(path);
+    }
+
+    /**
+     * Creates the shard containing a date
+     * @param parentDirectory the directory containing all shards
+     * @param date the date of an entry
+     * @param duration the amount of milliseconds covered by a shard, a day or an hour
+     * @return the new shard, its directory is created once entries are added to it
+     * @throws IOException if the directory of the shard can't be opened
+     */
+    static IndexShard create(Path parentDirectory, long date, long duration) throws IOException
+    {
+        long beginDate = Math.floorDiv(date, duration) * duration;
+        DateTimeFormatter format = duration < DAY ? HOUR_FORMAT : DAY_FORMAT;
+
+        return new IndexShard(
+            parentDirectory.resolve(format.format(Instant.ofEpochMilli(beginDate))),
+            new TimeRange(beginDate, beginDate + duration - 1)
+        );
+    }
+
+    /**
+     * Opens an existing shard, its time range is read out of the name of its directory
+     * @param directory the directory of the shard
+     * @return the shard or null if the directory isn't a shard
+     * @throws IOException if the directory of the shard can't be opened
+     */
+    static IndexShard open(Path directory) throws IOException
+    {
+        String name = directory.getFileName().toString();
+        long duration = name.length() == 10 ? DAY : HOUR;
+
+        long beginDate;
+        try
+        {
+            beginDate = duration == DAY ?
+                LocalDate.parse(name, DAY_FORMAT).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli() :
+                LocalDateTime.parse(name, HOUR_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        catch(DateTimeParseException exception) {
+            return null;
+        }
+
+        return new IndexShard(directory, new TimeRange(beginDate, beginDate + duration - 1));
+    }
+
+    /**
+     * Checks if an entry with the given date belongs to the shard
+     */
+    boolean contains(long date)
+    {
+        return timeRange.beginDate <= date && date <= timeRange.endDate;
+    }
+
+    /**
+     * Checks if the time range of the shard overlaps the given one
+     */
+    public boolean overlaps(long beginDate, long endDate)
+    {
+        return timeRange.beginDate <= endDate && beginDate <= timeRange.endDate;
+    }
+
+    /**
+     * Returns the IndexWriter of the shard, it is opened the first time it is needed and replaces the searchers of the last commit
+     * with near real time searchers
+     */
+    private synchronized IndexWriter getIndexWriter() throws IOException
+    {
+        if(indexWriter == null)
+        {
+            //The analyzer removes useless tokens ( words like a, an is etc.)
+            analyzer = new StandardAnalyzer();
+            indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer).setIndexSort(Index.INDEX_SORT));
+
+            //searchers which are still in use stay open until they are released
+            if(searcherManager != null) {
+                searcherManager.close();
+            }
+            searcherManager = new SearcherManager(indexWriter, null);
+        }
+
+        return indexWriter;
+    }
+
+    void addDocument(Iterable<? extends IndexableField> document) throws IOException
+    {
+        writerLock.readLock().lock();
+        try
+        {
+            IndexWriter writer = indexWriter;
+            (writer == null ? getIndexWriter() : writer).addDocument(document);
+            changedSinceRefresh = true;
+            changedSinceCommit = true;
+        }
+        finally {
+            writerLock.readLock().unlock();
+        }
+    }
+
+    void deleteDocuments(Query query) throws IOException
+    {
+        writerLock.readLock().lock();
+        try
+        {
+            getIndexWriter().deleteDocuments(query);
+            changedSinceRefresh = true;
+            changedSinceCommit = true;
+        }
+        finally {
+            writerLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the shard may contain entries matching a query, shards with an open writer always may
+     * because their latest entries haven't been published to the searchers yet
+     */
+    boolean mayContainDocuments(Query query) throws IOException
+    {
+        if(indexWriter != null) {
+            return true;
+        }
+
+        IndexSearcher searcher = acquire();
+        if(searcher == null) {
+            return false;
+        }
+
+        try {
+            return searcher.count(query) > 0;
+        }
+        finally {
+            release(searcher);
+        }
+    }
+
+    /**
+     * Acquires the current searcher of the shard, it has to be released once it isn't needed anymore
+     * @return the searcher or null if nothing has been added to the shard yet
+     * @throws IOException if the shard can't be read
+     */
+    public synchronized IndexSearcher acquire() throws IOException
+    {
+        if(searcherManager == null)
+        {
+            if(!DirectoryReader.indexExists(directory)) {
+                return null;
+            }
+            searcherManager = new SearcherManager(directory, null);
+        }
+
+        return searcherManager.acquire();
+    }
+
+    /**
+     * Releases a searcher returned by <code>acquire</code>, even if the searchers of the shard have been replaced in the meantime
+     */
+    public void release(IndexSearcher searcher) throws IOException
+    {
+        searcher.getIndexReader().decRef();
+    }
+
+    /**
+     * Publishes the entries which have been changed since the last refresh to the searchers
+     */
+    void refresh() throws IOException
+    {
+        if(!changedSinceRefresh) {
+            return;
+        }
+
+        writerLock.readLock().lock();
+        try
+        {
+            SearcherManager manager;
+            synchronized(this) {
+                manager = searcherManager;
+            }
+
+            if(manager != null)
+            {
+                changedSinceRefresh = false;
+                manager.maybeRefresh();
+            }
+        }
+        finally {
+            writerLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Commits the changes of the shard and publishes them to the searchers
+     * @return true if the shard has been changed since the last commit
+     * @throws IOException if the shard can't be written
+     */
+    boolean commit() throws IOException
+    {
+        if(!changedSinceCommit) {
+            return false;
+        }
+
+        writerLock.readLock().lock();
+        try
+        {
+            changedSinceCommit = false;
+            indexWriter.commit();
+            refresh();
+        }
+        finally {
+            writerLock.readLock().unlock();
+        }
+
+        return true;
+    }
+
+    boolean hasIndexWriter()
+    {
+        return indexWriter != null;
+    }
+
+    boolean hasUncommittedChanges()
+    {
+        return changedSinceCommit;
+    }
+
+    /**
+     * Closes the IndexWriter of the shard, it is opened again once the shard gets changed
+     * @param commit true if the changes should be committed, false if they should be discarded
+     * @throws IOException if the shard can't be written
+     */
+    void closeIndexWriter(boolean commit) throws IOException
+    {
+        writerLock.writeLock().lock();
+        try
+        {
+            synchronized(this)
+            {
+                if(indexWriter == null) {
+                    return;
+                }
+
+                try
+                {
+                    //searchers which are still in use stay open until they are released
+                    searcherManager.close();
+
+                    if(commit) {
+                        indexWriter.close();
+                    }
+                    else {
+                        indexWriter.rollback();
+                    }
+                }
+                finally
+                {
+                    analyzer.close();
+
+                    indexWriter = null;
+                    searcherManager = null;
+                    changedSinceRefresh = false;
+                    changedSinceCommit = false;
+                }
+            }
+        }
+        finally {
+            writerLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the writer and the searchers of the shard without committing it
+     */
+    void close() throws IOException
+    {
+        closeIndexWriter(false);
+
+        synchronized(this)
+        {
+            if(searcherManager != null)
+            {
+                searcherManager.close();
+                searcherManager = null;
+            }
+        }
+
+        directory.close();
+    }
+
+    /**
+     * Opens the directory of the shard again after it has been closed
+     * @return a new shard with the same directory and time range
+     */
+    IndexShard reopen() throws IOException
+    {
+        return new IndexShard(path, timeRange);
+    }
+
+    /**
+     * Closes the shard and deletes its directory, searchers which are still in use can be used until they are released<br>
+     * The directory is renamed first, so it isn't opened as a shard again if some of its files can't be deleted.
+     * Those files are deleted by {@link #deleteRemovedShards(Path)} later on.
+     * @throws IOException if the directory can't be renamed, the shard stays on the disk in that case
+     */
+    void delete() throws IOException
+    {
+        close();
+
+        if(!path.toFile().exists()) {
+            return;
+        }
+
+        //a new shard with the same name can be created as soon as the directory has been renamed
+        Path removedPath = path.resolveSibling(path.getFileName() + "." + System.currentTimeMillis() + REMOVED_SUFFIX);
+        Files.move(path, removedPath, StandardCopyOption.ATOMIC_MOVE);
+
+        deleteDirectory(removedPath);
+    }
+
+    /**
+     * Deletes the directories of shards whose files couldn't be deleted before
+     * @param parentDirectory the directory containing all shards
+     * @throws IOException if the directory can't be read
+     */
+    static void deleteRemovedShards(Path parentDirectory) throws IOException
+    {
+        if(!parentDirectory.toFile().exists()) {
+            return;
+        }
+
+        try(Stream<Path> directories = Files.list(parentDirectory))
+        {
+            for(Path directory : (Iterable<Path>)directories::iterator)
+            {
+                if(directory.getFileName().toString().endsWith(REMOVED_SUFFIX)) {
+                    deleteDirectory(directory);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory with its files, the files which can't be deleted are kept together with the directory
+     */
+    private static void deleteDirectory(Path directory) throws IOException
+    {
+        List<Path> files;
+        try(Stream<Path> paths = Files.walk(directory))
+        {
+            files = paths
+                .sorted(Comparator.comparing(Files::isDirectory)) //sort so that files are deleted before their directories are
+                .collect(Collectors.toList());
+        }
+
+        for(Path file : files)
+        {
+            try {
+                Files.delete(file);
+            }
+            catch(IOException exception)
+            {
+                System.out.println("Could not delete " + file + ": " + exception);
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of bytes the shard uses on the disk
+     */
+    long getSize() throws IOException
+    {
+        long size = 0;
+
+        if(!path.toFile().exists()) {
+            return size;
+        }
+
+        try(Stream<Path> files = Files.list(path))
+        {
+            for(Path file : (Iterable<Path>)files::iterator)
+            {
+                //files can be deleted by lucene in the meantime
+                File shardFile = file.toFile();
+                if(shardFile.isFile()) {
+                    size += shardFile.length();
+                }
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return path.getFileName().toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.efficientlogfileanalysis.index;
+
+import com.efficientlogfileanalysis.logs.data.LogEntryView;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexableField;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reusable lucene document for a single log entry.<br>
+ * All fields are created once and only get new values for every entry,
+ * which means that indexing an entry doesn't create a new Document with a dozen Field objects.
+ */
+class LogEntryDocument {
+
+    private final LongPoint date = new LongPoint("date", 0);
+    private final LongPoint logLevel = new LongPoint("logLevel", 0);
+    private final TextField message = new TextField("message", new StringReader(""));
+    private final IntPoint classname = new IntPoint("classname", 0);
+    private final IntPoint module = new IntPoint("module", 0);
+    private final IntPoint fileIndex = new IntPoint("fileIndex", 0);
+
+    /**
+     * One field per exception in the message, a message containing an exception and its causes can be found by each of them
+     */
+    private final List<IntPoint> exceptions = new ArrayList<>();
+    private final IntPoint signature = new IntPoint("signature", 0);
+
+    /**
+     * The signature as doc values, so that entries can be counted and grouped by their signature
+     */
+    private final NumericDocValuesField signatureValue = new NumericDocValuesField("signature", 0);
+
+    /**
+     * The template of the message, the doc values are used to group and count the entries by their template
+     */
+    private final IntPoint template = new IntPoint("template", 0);
+    private final NumericDocValuesField templateValue = new NumericDocValuesField("template", 0);
+
+    /**
+     * The metadata of the entry as doc values, a search reads the file, position, date and logLevel of its hits out of them
+     * instead of loading the stored fields or reading the logfiles. The values are also used to sort, group and count the entries.
+     */
+    private final NumericDocValuesField dateValue = new NumericDocValuesField("date", 0);
+    private final NumericDocValuesField logLevelValue = new NumericDocValuesField("logLevel", 0);
+    private final NumericDocValuesField classnameValue = new NumericDocValuesField("classname", 0);
+    private final NumericDocValuesField moduleValue = new NumericDocValuesField("module", 0);
+    private final NumericDocValuesField fileIndexValue = new NumericDocValuesField("fileIndex", 0);
+    private final NumericDocValuesField logEntryIDValue = new NumericDocValuesField("logEntryID", 0);
+
+    private final List<IndexableField> fields = new ArrayList<>();
+
+    private short currentFileID = -1;
+
+    /**
+     * Fills the fields with the values of the given entry
+     * @param logEntry the entry which should be indexed
+     * @param fileID the id of the file containing the entry
+     * @param classID the id of the class name of the entry
+     * @param moduleID the id of the module of the entry
+     * @param exceptionIDs the ids of the exceptions in the message
+     * @param amountOfExceptions the amount of exceptions in the message, 0 if the message doesn't contain one
+     * @param signatureID the id of the stack trace signature of the exceptions or -1 if the message doesn't contain one
+     * @param templateID the id of the template of the message
+     * @return the fields of the document
+     */
+    public List<IndexableField> set(LogEntryView logEntry, short fileID, int classID, int moduleID, int[] exceptionIDs, int amountOfExceptions, int signatureID, int templateID)
+    {
+        fields.clear();
+
+        for(int i = 0; i < amountOfExceptions; i++)
+        {
+            if(i == exceptions.size()) {
+                exceptions.add(new IntPoint("exception", 0));
+            }
+
+            IntPoint exception = exceptions.get(i);
+            exception.setIntValue(exceptionIDs[i]);
+            fields.add(exception);
+        }
+
+        if(signatureID != -1)
+        {
+            signature.setIntValue(signatureID);
+            signatureValue.setLongValue(signatureID);
+            fields.add(signature);
+            fields.add(signatureValue);
+        }
+
+        //Add main parts of a log entry
+        date.setLongValue(logEntry.getTime());
+        logLevel.setLongValue(logEntry.getLogLevel().getId());
+        message.setReaderValue(logEntry.getMessageReader());
+        classname.setIntValue(classID);
+        module.setIntValue(moduleID);
+        fields.add(date);
+        fields.add(logLevel);
+        fields.add(message);
+        fields.add(classname);
+        fields.add(module);
+
+        dateValue.setLongValue(logEntry.getTime());
+        logLevelValue.setLongValue(logEntry.getLogLevel().getId());
+        classnameValue.setLongValue(classID);
+        moduleValue.setLongValue(moduleID);
+        fields.add(dateValue);
+        fields.add(logLevelValue);
+        fields.add(classnameValue);
+        fields.add(moduleValue);
+
+        template.setIntValue(templateID);
+        templateValue.setLongValue(templateID);
+        fields.add(template);
+        fields.add(templateValue);
+
+        //add the fileIndex as a IntPoint so that lucene can search for entries in a specific file
+        if(fileID != currentFileID)
+        {
+            currentFileID = fileID;
+            fileIndex.setIntValue(fileID);
+            fileIndexValue.setLongValue(fileID);
+        }
+        fields.add(fileIndex);
+        fields.add(fileIndexValue);
+
+        //the position of the entry in its file, which is needed to read it
+        logEntryIDValue.setLongValue(logEntry.getEntryID());
+        fields.add(logEntryIDValue);
+
+        return fields;
+    }
+}
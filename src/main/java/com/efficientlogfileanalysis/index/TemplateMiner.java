@@ -0,0 +1,469 @@
+package com.efficientlogfileanalysis.index;
+
+import com.efficientlogfileanalysis.index.data.SerializableMap;
+import com.efficientlogfileanalysis.util.ByteSequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Groups messages into templates while they are indexed, e.g. "hide end: MAP036 timestamp: 1656937674040"
+ * and "hide end: MAP012 timestamp: 1656937690111" both belong to the template "hide end: &lt;*&gt; timestamp: &lt;*&gt;".<br>
+ * The templates are found with a parse tree of fixed depth (like Drain): the first level separates the messages by their amount of tokens,
+ * the next TOKEN_LEVELS levels by their first tokens. Tokens containing digits are treated as variables and are routed through &lt;*&gt;.
+ * A leaf holds the templates of its messages, a message belongs to the most similar template if at least SIMILARITY_THRESHOLD of its tokens
+ * are the same, otherwise it creates a new template. The tokens of a template which differ from the message are replaced by &lt;*&gt;.<br>
+ * The templates are stored in the given dictionary by their ID, which never changes even if the template becomes more general.
+ * The tree is created out of the dictionary again when the index is read. Only the first line of a message is used, the following lines
+ * (e.g. a stack trace) don't change the template.<br>
+ * Messages are matched by multiple indexing threads at the same time. Each subtree of an amount of tokens has its own lock,
+ * most messages match a template which doesn't change and only need its read lock.
+ * The dictionary is only accessed while holding its own lock.
+ */
+class TemplateMiner {
+
+    static final String WILDCARD = "<*>";
+    private static final byte[] WILDCARD_BYTES = WILDCARD.getBytes();
+    private static final ByteSequence WILDCARD_SEQUENCE = new ByteSequence(WILDCARD_BYTES);
+
+    /**
+     * The amount of levels of the tree which separate the messages by their first tokens
+     */
+    private static final int TOKEN_LEVELS = 2;
+
+    /**
+     * The maximum amount of children of a node, further tokens are routed through the &lt;*&gt; child
+     */
+    private static final int MAX_CHILDREN = 100;
+
+    /**
+     * The minimum share of equal tokens of a message and a template
+     */
+    private static final double SIMILARITY_THRESHOLD = 0.4;
+
+    private static class Node
+    {
+        private final Map<ByteSequence, Node> children = new HashMap<>();
+        private final List<Template> templates = new ArrayList<>();
+    }
+
+    /**
+     * The subtree of the messages with the same amount of tokens, it is only read while holding the read lock
+     * and only changed while holding the write lock
+     */
+    private static class Bucket extends Node
+    {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    }
+
+    private static class Template
+    {
+        private final int templateID;
+
+        /**
+         * The tokens of the template, variables are WILDCARD_BYTES
+         */
+        private final byte[][] tokens;
+
+        private Template(int templateID, byte[][] tokens)
+        {
+            this.templateID = templateID;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * The tokens of the message which is currently matched by a thread, relative to the start of the message
+     */
+    private static class Tokens
+    {
+        private int amountOfTokens;
+        private int[] tokenStarts = new int[64];
+        private int[] tokenEnds = new int[64];
+        private boolean[] variables = new boolean[64];
+
+        private ByteSequence message;
+        private final ByteSequence token = new ByteSequence();
+
+        /**
+         * Splits the first line of the message at spaces and tabs
+         */
+        private void tokenize(ByteSequence message)
+        {
+            this.message = message;
+            amountOfTokens = 0;
+
+            int length = message.length();
+            int position = 0;
+
+            while(position < length)
+            {
+                byte character = message.byteAt(position);
+
+                if(character == '\n' || character == '\r') {
+                    break;
+                }
+
+                if(character == ' ' || character == '\t')
+                {
+                    position++;
+                    continue;
+                }
+
+                int start = position;
+                boolean variable = false;
+
+                while(position < length)
+                {
+                    character = message.byteAt(position);
+
+                    if(character == ' ' || character == '\t' || character == '\n' || character == '\r') {
+                        break;
+                    }
+
+                    variable |= character >= '0' && character <= '9';
+                    position++;
+                }
+
+                if(amountOfTokens == tokenStarts.length)
+                {
+                    tokenStarts = Arrays.copyOf(tokenStarts, amountOfTokens * 2);
+                    tokenEnds = Arrays.copyOf(tokenEnds, amountOfTokens * 2);
+                    variables = Arrays.copyOf(variables, amountOfTokens * 2);
+                }
+
+                tokenStarts[amountOfTokens] = start;
+                tokenEnds[amountOfTokens] = position;
+                //wildcards are variables as well, they are read when the tree is created out of the templates
+                variables[amountOfTokens] = variable || isEqual(amountOfTokens, WILDCARD_BYTES);
+                amountOfTokens++;
+            }
+        }
+
+        private boolean isEqual(int index, byte[] value)
+        {
+            int length = tokenEnds[index] - tokenStarts[index];
+
+            if(length != value.length) {
+                return false;
+            }
+
+            for(int i = 0; i < length; i++)
+            {
+                if(message.byteAt(tokenStarts[index] + i) != value[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Copies the tokens of the message, variables are replaced by wildcards
+         */
+        private byte[][] copyTokens()
+        {
+            byte[][] tokens = new byte[amountOfTokens][];
+
+            for(int i = 0; i < amountOfTokens; i++)
+            {
+                if(variables[i]) {
+                    tokens[i] = WILDCARD_BYTES;
+                    continue;
+                }
+
+                tokens[i] = new byte[tokenEnds[i] - tokenStarts[i]];
+                for(int j = 0; j < tokens[i].length; j++) {
+                    tokens[i][j] = message.byteAt(tokenStarts[i] + j);
+                }
+            }
+
+            return tokens;
+        }
+    }
+
+    /**
+     * The templates by their ID, it is also the lock of the dictionary
+     */
+    private final SerializableMap<Integer, String> templateManager;
+
+    /**
+     * The first level of the tree by the amount of tokens of the messages
+     */
+    private final Map<Integer, Bucket> root = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextTemplateID = new AtomicInteger();
+
+    private final ThreadLocal<Tokens> tokensOfThread = ThreadLocal.withInitial(Tokens::new);
+
+    /**
+     * Creates a miner which stores its templates in the given dictionary
+     * @param templateManager the templates by their ID, templates which are already in it are used for the following messages
+     */
+    TemplateMiner(SerializableMap<Integer, String> templateManager)
+    {
+        this.templateManager = templateManager;
+        rebuild();
+    }
+
+    /**
+     * Creates the tree out of the templates in the dictionary, has to be called if the dictionary has been read or cleared
+     * while no messages are matched
+     */
+    void rebuild()
+    {
+        TreeMap<Integer, String> templates;
+        synchronized(templateManager) {
+            templates = new TreeMap<>(templateManager);
+        }
+
+        root.clear();
+        Tokens tokens = tokensOfThread.get();
+
+        for(Map.Entry<Integer, String> template : templates.entrySet())
+        {
+            tokens.tokenize(new ByteSequence(template.getValue().getBytes()));
+
+            Bucket bucket = root.computeIfAbsent(tokens.amountOfTokens, amount -> new Bucket());
+            getLeaf(bucket, tokens, true).templates.add(new Template(template.getKey(), tokens.copyTokens()));
+        }
+
+        nextTemplateID.set(templates.isEmpty() ? 0 : templates.lastKey() + 1);
+    }
+
+    /**
+     * Finds the template of a message and adds or generalises the template if necessary
+     * @param message the message of an entry
+     * @return the ID of the template
+     */
+    int match(ByteSequence message)
+    {
+        Tokens tokens = tokensOfThread.get();
+        tokens.tokenize(message);
+
+        Bucket bucket = root.computeIfAbsent(tokens.amountOfTokens, amount -> new Bucket());
+
+        //look for a template which matches without changing it first
+        bucket.lock.readLock().lock();
+        try
+        {
+            Node leaf = getLeaf(bucket, tokens, false);
+            Template template = leaf == null ? null : findTemplate(leaf, tokens);
+
+            if(template != null && !needsGeneralisation(template, tokens)) {
+                return template.templateID;
+            }
+        }
+        finally {
+            bucket.lock.readLock().unlock();
+        }
+
+        //the tree may have changed after the read lock has been released, which is why the template is looked up again
+        bucket.lock.writeLock().lock();
+        try
+        {
+            Node leaf = getLeaf(bucket, tokens, true);
+            Template template = findTemplate(leaf, tokens);
+
+            if(template != null)
+            {
+                generalise(template, tokens);
+                return template.templateID;
+            }
+
+            template = new Template(nextTemplateID.getAndIncrement(), tokens.copyTokens());
+            leaf.templates.add(template);
+
+            synchronized(templateManager) {
+                templateManager.put(template.templateID, toString(template));
+            }
+
+            return template.templateID;
+        }
+        finally {
+            bucket.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the current text of a template, the templates can change while entries are indexed
+     */
+    String getTemplate(int templateID)
+    {
+        synchronized(templateManager) {
+            return templateManager.get(templateID);
+        }
+    }
+
+    /**
+     * Returns a copy of all templates by their ID
+     */
+    Map<Integer, String> getTemplates()
+    {
+        synchronized(templateManager) {
+            return new HashMap<>(templateManager);
+        }
+    }
+
+    /**
+     * Returns a copy of the dictionary of the templates which can be written while templates are added
+     */
+    SerializableMap<Integer, String> copyTemplates()
+    {
+        synchronized(templateManager) {
+            return templateManager.copy();
+        }
+    }
+
+    int getAmountOfTemplates()
+    {
+        synchronized(templateManager) {
+            return templateManager.size();
+        }
+    }
+
+    /**
+     * Finds the most similar template of the leaf
+     * @return the template or null if no template is similar enough
+     */
+    private static Template findTemplate(Node leaf, Tokens tokens)
+    {
+        Template bestTemplate = null;
+        double bestSimilarity = -1;
+        int bestAmountOfWildcards = -1;
+
+        for(Template template : leaf.templates)
+        {
+            int equalTokens = 0;
+            int wildcards = 0;
+
+            for(int i = 0; i < tokens.amountOfTokens; i++)
+            {
+                if(template.tokens[i] == WILDCARD_BYTES) {
+                    wildcards++;
+                }
+                else if(!tokens.variables[i] && tokens.isEqual(i, template.tokens[i])) {
+                    equalTokens++;
+                }
+            }
+
+            double similarity = tokens.amountOfTokens == 0 ? 1 : (double)equalTokens / tokens.amountOfTokens;
+
+            if(similarity > bestSimilarity || similarity == bestSimilarity && wildcards > bestAmountOfWildcards)
+            {
+                bestTemplate = template;
+                bestSimilarity = similarity;
+                bestAmountOfWildcards = wildcards;
+            }
+        }
+
+        //templates consisting only of variables match every message with the same amount of tokens
+        if(bestTemplate != null && (bestSimilarity >= SIMILARITY_THRESHOLD || bestAmountOfWildcards == tokens.amountOfTokens)) {
+            return bestTemplate;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if some tokens of the template differ from the message and have to be replaced with wildcards
+     */
+    private static boolean needsGeneralisation(Template template, Tokens tokens)
+    {
+        for(int i = 0; i < tokens.amountOfTokens; i++)
+        {
+            if(template.tokens[i] != WILDCARD_BYTES && (tokens.variables[i] || !tokens.isEqual(i, template.tokens[i]))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Replaces the tokens of the template which differ from the message with wildcards
+     */
+    private void generalise(Template template, Tokens tokens)
+    {
+        if(!needsGeneralisation(template, tokens)) {
+            return;
+        }
+
+        for(int i = 0; i < tokens.amountOfTokens; i++)
+        {
+            if(template.tokens[i] != WILDCARD_BYTES && (tokens.variables[i] || !tokens.isEqual(i, template.tokens[i]))) {
+                template.tokens[i] = WILDCARD_BYTES;
+            }
+        }
+
+        synchronized(templateManager) {
+            templateManager.put(template.templateID, toString(template));
+        }
+    }
+
+    /**
+     * Walks down the subtree along the first tokens of the message
+     * @param create true if missing nodes should be created, which requires the write lock of the bucket
+     * @return the leaf or null if it doesn't exist and shouldn't be created
+     */
+    private static Node getLeaf(Bucket bucket, Tokens tokens, boolean create)
+    {
+        Node node = bucket;
+
+        for(int level = 0; level < TOKEN_LEVELS && level < tokens.amountOfTokens; level++)
+        {
+            ByteSequence key = WILDCARD_SEQUENCE;
+
+            if(!tokens.variables[level])
+            {
+                tokens.token.set(tokens.message, tokens.tokenStarts[level], tokens.tokenEnds[level]);
+                key = tokens.token;
+            }
+
+            Node child = node.children.get(key);
+
+            if(child == null && key != WILDCARD_SEQUENCE && node.children.size() >= MAX_CHILDREN)
+            {
+                key = WILDCARD_SEQUENCE;
+                child = node.children.get(key);
+            }
+
+            if(child == null)
+            {
+                if(!create) {
+                    return null;
+                }
+
+                child = new Node();
+                node.children.put(key.copy(), child);
+            }
+
+            node = child;
+        }
+
+        return node;
+    }
+
+    private static String toString(Template template)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for(byte[] token : template.tokens)
+        {
+            if(builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(new String(token));
+        }
+
+        return builder.toString();
+    }
+}
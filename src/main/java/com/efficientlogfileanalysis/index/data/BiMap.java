@@ -125,6 +125,21 @@ public class BiMap<K, V>{
         return true;
     }
 
+    /**
+     * Removes the key and its value from the map
+     * @param key the key which should be removed
+     * @return the value of the key or null if the key isn't inside the map
+     */
+    public V removeKey(K key) {
+        V value = map1.remove(key);
+
+        if(value != null) {
+            map2.remove(value);
+        }
+
+        return value;
+    }
+
     public void clear() {
         map1.clear();
         map2.clear();
@@ -26,6 +26,18 @@ public class SerializableBiMap<K, V> extends BiMap<K, V> {
         this.valueConverter = valueConverter;
     }
 
+    /**
+     * Returns a copy of the map which can be written while the map is changed, the keys and values themselves aren't copied
+     */
+    public SerializableBiMap<K, V> copy()
+    {
+        SerializableBiMap<K, V> copy = new SerializableBiMap<>(keyConverter, valueConverter);
+        for(K key : getKeySet()) {
+            copy.putValue(key, getValue(key));
+        }
+        return copy;
+    }
+
     /**
      * Reads the Index to a file with the specified name<br>
      * The same as <code>readIndex(new RandomAccessFile(fileName, "r"))</code> with the additional benefit of actually closing the file
@@ -23,6 +23,16 @@ public class SerializableMap<K, V> extends HashMap<K, V> {
         this.valueConverter = valueConverter;
     }
 
+    /**
+     * Returns a copy of the map which can be written while the map is changed, the keys and values themselves aren't copied
+     */
+    public SerializableMap<K, V> copy()
+    {
+        SerializableMap<K, V> copy = new SerializableMap<>(keyConverter, valueConverter);
+        copy.putAll(this);
+        return copy;
+    }
+
     /**
      * Reads the Index to a file with the specified name<br>
      * The same as <code>readIndex(new RandomAccessFile(fileName, "r"))</code> with the additional benefit of actually closing the file
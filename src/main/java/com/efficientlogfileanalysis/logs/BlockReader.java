@@ -0,0 +1,183 @@
+package com.efficientlogfileanalysis.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads a file in blocks of <code>BLOCK_SIZE</code> bytes using positional reads and keeps the last read blocks.<br>
+ * Reading many entries which lie close to each other (e.g. the hits of a search) only needs one
+ * <code>FileChannel.read</code> per block instead of one call per entry or even per byte.<br>
+ * The reader doesn't have a position and the cached blocks are never modified,
+ * which means that any number of threads can use the same reader at the same time.
+ */
+class BlockReader {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * The amount of blocks which are kept in memory
+     */
+    private static final int MAX_CACHED_BLOCKS = 16;
+
+    private final FileChannel channel;
+
+    /**
+     * The cached blocks by their index, the least recently used one first<br>
+     * A block at the end of the file may be shorter than BLOCK_SIZE
+     */
+    private final LinkedHashMap<Long, ByteBuffer> blocks = new LinkedHashMap<Long, ByteBuffer>(MAX_CACHED_BLOCKS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ByteBuffer> eldest)
+        {
+            return size() > MAX_CACHED_BLOCKS;
+        }
+    };
+
+    /**
+     * The amount of FileChannel.read calls, used to measure how well the blocks are reused
+     */
+    private long amountOfReads;
+
+    BlockReader(FileChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    long size() throws IOException
+    {
+        return channel.size();
+    }
+
+    synchronized long getAmountOfReads()
+    {
+        return amountOfReads;
+    }
+
+    /**
+     * Reads a part of the file
+     * @param position the position of the first byte in the file
+     * @param length how many bytes should be read
+     * @return a buffer whose first byte (index 0) is at the given position, it may share its bytes with the cached blocks
+     * and must not be modified. It is shorter than requested if the end of the file is reached.
+     * @throws IOException If an IOError occurs
+     */
+    ByteBuffer read(long position, int length) throws IOException
+    {
+        long firstBlock = position / BLOCK_SIZE;
+        long lastBlock = (position + Math.max(length, 1) - 1) / BLOCK_SIZE;
+        int offsetInBlock = (int)(position - firstBlock * BLOCK_SIZE);
+
+        if(firstBlock == lastBlock)
+        {
+            //the bytes can be used without copying them
+            ByteBuffer block = getBlock(firstBlock, offsetInBlock + length).duplicate();
+            block.position(Math.min(offsetInBlock, block.limit()));
+            block.limit(Math.min(offsetInBlock + length, block.limit()));
+            return block.slice();
+        }
+
+        ByteBuffer result = ByteBuffer.allocate(length);
+
+        for(long index = firstBlock; index <= lastBlock && result.hasRemaining(); index++)
+        {
+            int start = index == firstBlock ? offsetInBlock : 0;
+            ByteBuffer block = getBlock(index, start + result.remaining()).duplicate();
+
+            if(block.limit() <= start) {
+                break;
+            }
+
+            block.position(start);
+            block.limit(Math.min(block.limit(), start + result.remaining()));
+            boolean isLastBlockOfFile = block.capacity() < BLOCK_SIZE;
+            result.put(block);
+
+            if(isLastBlockOfFile) {
+                break;
+            }
+        }
+
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Reads a large part of the file with as few positional reads as possible<br>
+     * Parts which fit into a single block are read through the cached blocks, larger parts neither use nor replace them
+     * @param position the position of the first byte in the file
+     * @param length how many bytes should be read
+     * @return a buffer whose first byte (index 0) is at the given position,
+     * it is shorter than requested if the end of the file is reached
+     * @throws IOException If an IOError occurs
+     */
+    ByteBuffer readSequentially(long position, int length) throws IOException
+    {
+        if(position / BLOCK_SIZE == (position + length - 1) / BLOCK_SIZE) {
+            return read(position, length);
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        int reads = 0;
+        int bytesRead;
+
+        do {
+            bytesRead = channel.read(bytes, position + bytes.position());
+            reads++;
+        }
+        while(bytesRead > 0 && bytes.hasRemaining());
+
+        synchronized(this) {
+            amountOfReads += reads;
+        }
+
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Returns a cached block or reads it<br>
+     * Blocks at the end of the file are read again if the file has grown and more bytes are needed
+     * @param index the index of the block
+     * @param neededBytes how many bytes of the block are needed
+     */
+    private ByteBuffer getBlock(long index, int neededBytes) throws IOException
+    {
+        ByteBuffer block;
+
+        synchronized(this)
+        {
+            block = blocks.get(index);
+        }
+
+        if(block != null && (block.capacity() >= Math.min(neededBytes, BLOCK_SIZE) || block.capacity() >= channel.size() - index * BLOCK_SIZE)) {
+            return block;
+        }
+
+        //read the block outside of the lock, other threads can use the cached blocks in the meantime
+        long start = index * BLOCK_SIZE;
+        ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+        int reads = 0;
+        int bytesRead;
+
+        do {
+            bytesRead = channel.read(bytes, start + bytes.position());
+            reads++;
+        }
+        while(bytesRead > 0 && bytes.hasRemaining());
+
+        bytes.flip();
+        block = bytes.limit() == BLOCK_SIZE ? bytes : ByteBuffer.allocate(bytes.limit()).put(bytes);
+        block.clear();
+
+        synchronized(this)
+        {
+            amountOfReads += reads;
+            blocks.put(index, block);
+        }
+
+        return block;
+    }
+}
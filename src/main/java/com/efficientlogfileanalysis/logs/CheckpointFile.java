@@ -0,0 +1,333 @@
+package com.efficientlogfileanalysis.logs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A copy of a compressed logfile which can be read at any position.<br>
+ * A gzip stream can only be decompressed from its beginning, which means that reading an entry near the end
+ * of a large .gz file would require decompressing the whole file.
+ * While a compressed file gets indexed, its content is therefore split into blocks of BLOCK_SIZE bytes,
+ * which get compressed independently of each other.
+ * The positions of the blocks (the checkpoints) are stored at the end of the file,
+ * so that reading a position only requires decompressing a single block.<br>
+ * Layout: [compressed blocks][position of every block (long)][uncompressed size (long)][block size (int)][amount of blocks (int)]
+ */
+class CheckpointFile {
+
+    /**
+     * The amount of uncompressed bytes in a block
+     */
+    static final int BLOCK_SIZE = 256 * 1024;
+
+    private static final int LENGTH_OF_TRAILER = Long.BYTES + 2 * Integer.BYTES;
+
+    /**
+     * The amount of decompressed blocks that are kept in memory
+     */
+    private static final int CACHED_BLOCKS = 8;
+
+    /**
+     * Creates a checkpoint file while the uncompressed content of a logfile is passed to it
+     */
+    static class Writer implements Closeable
+    {
+        private final Path path;
+        private final Path temporaryPath;
+        private final FileChannel fileChannel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private int blockLength = 0;
+        private byte[] compressedBlock = new byte[BLOCK_SIZE];
+
+        private long[] checkpoints = new long[64];
+        private int amountOfBlocks = 0;
+        private long uncompressedSize = 0;
+        private long compressedSize = 0;
+
+        private boolean finished = false;
+
+        /**
+         * The file is written to a temporary file, which is moved to the given path once it is complete
+         * @param path the path of the checkpoint file
+         * @throws IOException if the file can't be created
+         */
+        Writer(Path path) throws IOException
+        {
+            this.path = path;
+            this.temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            fileChannel = FileChannel.open(
+                temporaryPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+            );
+        }
+
+        /**
+         * Appends uncompressed bytes
+         */
+        void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            while(length > 0)
+            {
+                int copied = Math.min(length, BLOCK_SIZE - blockLength);
+                System.arraycopy(bytes, offset, block, blockLength, copied);
+
+                blockLength += copied;
+                offset += copied;
+                length -= copied;
+
+                if(blockLength == BLOCK_SIZE) {
+                    writeBlock();
+                }
+            }
+        }
+
+        private void writeBlock() throws IOException
+        {
+            if(amountOfBlocks == checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, amountOfBlocks * 2);
+            }
+            checkpoints[amountOfBlocks++] = compressedSize;
+
+            deflater.reset();
+            deflater.setInput(block, 0, blockLength);
+            deflater.finish();
+
+            int length = 0;
+            while(!deflater.finished())
+            {
+                if(length == compressedBlock.length) {
+                    compressedBlock = Arrays.copyOf(compressedBlock, length * 2);
+                }
+                length += deflater.deflate(compressedBlock, length, compressedBlock.length - length);
+            }
+
+            writeFully(ByteBuffer.wrap(compressedBlock, 0, length));
+
+            compressedSize += length;
+            uncompressedSize += blockLength;
+            blockLength = 0;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException
+        {
+            while(buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+        }
+
+        /**
+         * Writes the checkpoints and moves the file to its final path
+         */
+        void finish() throws IOException
+        {
+            if(blockLength > 0) {
+                writeBlock();
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(amountOfBlocks * Long.BYTES + LENGTH_OF_TRAILER);
+            for(int i = 0; i < amountOfBlocks; i++) {
+                trailer.putLong(checkpoints[i]);
+            }
+            trailer.putLong(uncompressedSize);
+            trailer.putInt(BLOCK_SIZE);
+            trailer.putInt(amountOfBlocks);
+            trailer.flip();
+
+            writeFully(trailer);
+            fileChannel.force(true);
+            fileChannel.close();
+
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        /**
+         * Deletes the temporary file if the checkpoint file hasn't been finished
+         */
+        @Override
+        public void close() throws IOException
+        {
+            deflater.end();
+
+            if(!finished)
+            {
+                fileChannel.close();
+                Files.deleteIfExists(temporaryPath);
+            }
+        }
+    }
+
+    /**
+     * Reads the uncompressed content of a logfile out of its checkpoint file
+     */
+    static class Reader implements LogFileSource
+    {
+        private final FileChannel fileChannel;
+        private final Inflater inflater = new Inflater(true);
+
+        private final long[] checkpoints;
+        private final long uncompressedSize;
+        private final int blockSize;
+        private final long endOfBlocks;
+
+        private byte[] compressedBlock = new byte[BLOCK_SIZE];
+
+        /**
+         * The last read blocks in the order in which they have been used
+         */
+        private final Map<Integer, byte[]> cachedBlocks = new LinkedHashMap<Integer, byte[]>(CACHED_BLOCKS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest)
+            {
+                return size() > CACHED_BLOCKS;
+            }
+        };
+
+        /**
+         * Opens a checkpoint file and reads the positions of its blocks
+         * @param path the path of the checkpoint file
+         * @throws IOException if the file can't be read
+         */
+        Reader(Path path) throws IOException
+        {
+            fileChannel = FileChannel.open(path);
+
+            long fileSize = fileChannel.size();
+            ByteBuffer trailer = readFully(fileSize - LENGTH_OF_TRAILER, LENGTH_OF_TRAILER);
+            uncompressedSize = trailer.getLong();
+            blockSize = trailer.getInt();
+            int amountOfBlocks = trailer.getInt();
+
+            endOfBlocks = fileSize - LENGTH_OF_TRAILER - (long)amountOfBlocks * Long.BYTES;
+            ByteBuffer checkpointBuffer = readFully(endOfBlocks, amountOfBlocks * Long.BYTES);
+            checkpoints = new long[amountOfBlocks];
+            for(int i = 0; i < amountOfBlocks; i++) {
+                checkpoints[i] = checkpointBuffer.getLong();
+            }
+        }
+
+        private ByteBuffer readFully(long position, int length) throws IOException
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+
+            while(buffer.hasRemaining())
+            {
+                if(fileChannel.read(buffer, position + buffer.position()) == -1) {
+                    throw new IOException("Checkpoint file is incomplete");
+                }
+            }
+
+            buffer.flip();
+            return buffer;
+        }
+
+        /**
+         * Returns the decompressed content of a block
+         * @param index the index of the block
+         */
+        private byte[] readBlock(int index) throws IOException
+        {
+            byte[] block = cachedBlocks.get(index);
+            if(block != null) {
+                return block;
+            }
+
+            long start = checkpoints[index];
+            long end = index + 1 < checkpoints.length ? checkpoints[index + 1] : endOfBlocks;
+            int compressedLength = (int)(end - start);
+
+            //the inflater needs an additional byte at the end if the zlib header is omitted
+            if(compressedBlock.length < compressedLength + 1) {
+                compressedBlock = new byte[compressedLength + 1];
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(compressedBlock, 0, compressedLength);
+            while(buffer.hasRemaining())
+            {
+                if(fileChannel.read(buffer, start + buffer.position()) == -1) {
+                    throw new IOException("Checkpoint file is incomplete");
+                }
+            }
+
+            long blockStart = (long)index * blockSize;
+            block = new byte[(int)Math.min(blockSize, uncompressedSize - blockStart)];
+
+            try
+            {
+                inflater.reset();
+                inflater.setInput(compressedBlock, 0, compressedLength + 1);
+
+                int length = 0;
+                while(length < block.length && !inflater.finished()) {
+                    length += inflater.inflate(block, length, block.length - length);
+                }
+            }
+            catch(DataFormatException exception) {
+                throw new IOException("Checkpoint file is corrupted", exception);
+            }
+
+            cachedBlocks.put(index, block);
+            return block;
+        }
+
+        @Override
+        public ByteBuffer read(long position, int length) throws IOException
+        {
+            long end = Math.min(position + length, uncompressedSize);
+
+            if(position >= end) {
+                return ByteBuffer.allocate(0);
+            }
+
+            byte[] bytes = new byte[(int)(end - position)];
+
+            for(int index = (int)(position / blockSize); (long)index * blockSize < end; index++)
+            {
+                byte[] block = readBlock(index);
+                long blockStart = (long)index * blockSize;
+
+                int from = (int)Math.max(position - blockStart, 0);
+                int to = (int)Math.min(end - blockStart, block.length);
+
+                System.arraycopy(block, from, bytes, (int)(blockStart + from - position), to - from);
+            }
+
+            return ByteBuffer.wrap(bytes);
+        }
+
+        @Override
+        public long size()
+        {
+            return uncompressedSize;
+        }
+
+        @Override
+        public boolean supportsParallelReads()
+        {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            inflater.end();
+            fileChannel.close();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.util.Timer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A compact list of the positions (IDs) of every entry in a logfile, which allows finding the entries
+ * before and after an entry without scanning the logfile for the beginning of the entries.<br>
+ * The positions are stored in pages of PAGE_SIZE bytes. Every page starts with the absolute position of its first entry (long),
+ * followed by the distances to the next entries encoded as varints (7 bits per byte, the highest bit is set
+ * if another byte follows). Entries are rarely more than 16KB apart, so most positions need one or two bytes instead of eight.
+ * The rest of a page is filled with zeros, which can't be a distance between two entries.<br>
+ * Because every page has the same size, the page containing an entry is found with a binary search over the first position of each page.
+ * Layout: [first position (long)][distances (varints)][zeros] per page
+ */
+public class EntryOffsetIndex {
+
+    static final int PAGE_SIZE = 4 * 1024;
+
+    /**
+     * Appends the positions of the entries of a logfile while it gets indexed
+     */
+    public static class Writer implements Closeable
+    {
+        private final FileChannel fileChannel;
+
+        /**
+         * The page which is currently filled, it is written once it is full and when the writer gets closed
+         */
+        private final ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        private long indexOfPage = 0;
+        private long lastEntryID = -1;
+
+        /**
+         * Opens the positions of a logfile to add the entries starting at a given position<br>
+         * Positions which are already stored at or after the given position are removed,
+         * e.g. because the file has been indexed from the beginning again or the indexing has been interrupted
+         * @param path the path of the file containing the positions
+         * @param startOfNewEntries the position of the first entry which will be added
+         * @throws IOException if the file can't be opened
+         */
+        public Writer(Path path, long startOfNewEntries) throws IOException
+        {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            long pageOfEntry = findPage(fileChannel, startOfNewEntries - 1);
+
+            if(pageOfEntry == -1)
+            {
+                fileChannel.truncate(0);
+                return;
+            }
+
+            //continue filling the last page which only contains entries before the new ones
+            indexOfPage = pageOfEntry;
+            readPages(fileChannel, indexOfPage, page);
+
+            long[] entries = new long[PAGE_SIZE];
+            int amountOfEntries = decodePage(page, 0, entries, 0);
+            int endOfEntries = Long.BYTES;
+            lastEntryID = entries[0];
+
+            for(int i = 1; i < amountOfEntries && entries[i] < startOfNewEntries; i++)
+            {
+                endOfEntries += lengthOfVarint(entries[i] - lastEntryID);
+                lastEntryID = entries[i];
+            }
+
+            Arrays.fill(page.array(), endOfEntries, PAGE_SIZE, (byte)0);
+            page.clear().position(endOfEntries);
+            fileChannel.truncate((indexOfPage + 1) * PAGE_SIZE);
+        }
+
+        /**
+         * Adds the position of an entry, entries have to be added in the order of their position
+         * @param logEntryID the position of the entry
+         */
+        public void add(long logEntryID) throws IOException
+        {
+            if(logEntryID <= lastEntryID) {
+                return;
+            }
+
+            if(page.position() > 0 && page.remaining() < lengthOfVarint(logEntryID - lastEntryID))
+            {
+                writePage();
+                indexOfPage++;
+                Arrays.fill(page.array(), (byte)0);
+                page.clear();
+            }
+
+            if(page.position() == 0) {
+                page.putLong(logEntryID);
+            }
+            else {
+                putVarint(page, logEntryID - lastEntryID);
+            }
+
+            lastEntryID = logEntryID;
+        }
+
+        private void writePage() throws IOException
+        {
+            ByteBuffer bytes = ByteBuffer.wrap(page.array());
+
+            while(bytes.hasRemaining()) {
+                fileChannel.write(bytes, indexOfPage * PAGE_SIZE + bytes.position());
+            }
+        }
+
+        /**
+         * Writes the last page, which may not be full yet
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                if(page.position() > 0) {
+                    writePage();
+                }
+            }
+            finally
+            {
+                fileChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Finds the positions of the entries around an entry<br>
+     * The page containing the entry is found with a binary search, the pages around it are read with a single read
+     * unless the entries before or after it span more pages than expected.
+     * @param path the path of the file containing the positions
+     * @param logEntryID the position of the entry
+     * @param entriesBefore the maximum amount of entries before the entry
+     * @param entriesAfter the maximum amount of entries after the entry
+     * @return the positions of the entries before the entry, the entry itself and the entries after it in ascending order,
+     * or null if the file doesn't exist or doesn't contain the entry
+     * @throws IOException if the file can't be read
+     */
+    public static long[] findSurroundingEntries(Path path, long logEntryID, int entriesBefore, int entriesAfter) throws IOException
+    {
+        if(!Files.exists(path)) {
+            return null;
+        }
+
+        try(FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long amountOfPages = fileChannel.size() / PAGE_SIZE;
+            long pageOfEntry = findPage(fileChannel, logEntryID);
+
+            if(pageOfEntry == -1) {
+                return null;
+            }
+
+            long pagesBefore = 0;
+            long pagesAfter = 0;
+
+            while(true)
+            {
+                long firstPage = Math.max(0, pageOfEntry - pagesBefore);
+                int amountOfReadPages = (int)(Math.min(amountOfPages - 1, pageOfEntry + pagesAfter) - firstPage + 1);
+                ByteBuffer pages = ByteBuffer.allocate(amountOfReadPages * PAGE_SIZE);
+                readPages(fileChannel, firstPage, pages);
+
+                long[] entries = new long[amountOfReadPages * PAGE_SIZE];
+                int amountOfEntries = 0;
+
+                for(int i = 0; i < amountOfReadPages; i++) {
+                    amountOfEntries = decodePage(pages, i * PAGE_SIZE, entries, amountOfEntries);
+                }
+
+                int indexOfEntry = Arrays.binarySearch(entries, 0, amountOfEntries, logEntryID);
+
+                if(indexOfEntry < 0) {
+                    return null;
+                }
+
+                boolean enoughBefore = indexOfEntry >= entriesBefore || firstPage == 0;
+                boolean enoughAfter = amountOfEntries - indexOfEntry - 1 >= entriesAfter || firstPage + amountOfReadPages == amountOfPages;
+
+                if(enoughBefore && enoughAfter)
+                {
+                    return Arrays.copyOfRange(
+                        entries,
+                        Math.max(0, indexOfEntry - entriesBefore),
+                        (int)Math.min(amountOfEntries, (long)indexOfEntry + entriesAfter + 1)
+                    );
+                }
+
+                //the entries span more pages than have been read
+                if(!enoughBefore) {
+                    pagesBefore = pagesBefore * 2 + 1;
+                }
+                if(!enoughAfter) {
+                    pagesAfter = pagesAfter * 2 + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the last page whose first entry lies at or before a position
+     * @return the index of the page or -1 if there is no such page
+     */
+    private static long findPage(FileChannel fileChannel, long logEntryID) throws IOException
+    {
+        long low = 0;
+        long high = fileChannel.size() / PAGE_SIZE - 1;
+        long result = -1;
+        ByteBuffer firstEntry = ByteBuffer.allocate(Long.BYTES);
+
+        while(low <= high)
+        {
+            long middle = (low + high) >>> 1;
+            readPages(fileChannel, middle, firstEntry);
+
+            if(firstEntry.getLong(0) <= logEntryID)
+            {
+                result = middle;
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the bytes starting at a page into the buffer, which is filled completely
+     */
+    private static void readPages(FileChannel fileChannel, long firstPage, ByteBuffer buffer) throws IOException
+    {
+        buffer.clear();
+
+        while(buffer.hasRemaining())
+        {
+            if(fileChannel.read(buffer, firstPage * PAGE_SIZE + buffer.position()) == -1) {
+                throw new IOException("The entry offsets are incomplete");
+            }
+        }
+
+        buffer.flip();
+    }
+
+    /**
+     * Decodes the positions stored in a page
+     * @param pages the buffer containing the page
+     * @param start the position of the page within the buffer
+     * @param entries the array receiving the positions
+     * @param amountOfEntries the amount of positions which are already in the array
+     * @return the amount of positions in the array after the page has been decoded
+     */
+    private static int decodePage(ByteBuffer pages, int start, long[] entries, int amountOfEntries)
+    {
+        long logEntryID = pages.getLong(start);
+        entries[amountOfEntries++] = logEntryID;
+
+        int position = start + Long.BYTES;
+        int end = start + PAGE_SIZE;
+
+        while(position < end && pages.get(position) != 0)
+        {
+            long distance = 0;
+            int shift = 0;
+            byte value;
+
+            do {
+                value = pages.get(position++);
+                distance |= (long)(value & 0x7F) << shift;
+                shift += 7;
+            }
+            while((value & 0x80) != 0);
+
+            logEntryID += distance;
+            entries[amountOfEntries++] = logEntryID;
+        }
+
+        return amountOfEntries;
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value)
+    {
+        while((value & ~0x7FL) != 0)
+        {
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte)value);
+    }
+
+    private static int lengthOfVarint(long value)
+    {
+        int length = 1;
+
+        while((value >>>= 7) != 0) {
+            length++;
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes the positions of the entries of a logfile and compares the size of the file with the size of the logfile
+     * and the time needed to find the surrounding entries of every 100th entry
+     * @param args the path to a logfile
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Path path = Paths.get(args[0]);
+        Path offsets = Files.createTempFile("entries", ".offsets");
+        long[][] entryIDs = {new long[1024]};
+        int[] amountOfEntries = {0};
+
+        try(Writer writer = new Writer(offsets, 0))
+        {
+            LogReader.readSingleFile(path.toString(), 0, logEntry -> {
+                writer.add(logEntry.getEntryID());
+
+                if(amountOfEntries[0] == entryIDs[0].length) {
+                    entryIDs[0] = Arrays.copyOf(entryIDs[0], amountOfEntries[0] * 2);
+                }
+                entryIDs[0][amountOfEntries[0]++] = logEntry.getEntryID();
+            });
+        }
+
+        System.out.println(amountOfEntries[0] + " entries, " + Files.size(path) + " bytes, offsets: " + Files.size(offsets) + " bytes");
+
+        Timer.timeIt(() -> {
+            for(int i = 0; i < amountOfEntries[0]; i += 100) {
+                findSurroundingEntries(offsets, entryIDs[0][i], 10, 10);
+            }
+        }, 10);
+
+        Files.delete(offsets);
+    }
+}
@@ -0,0 +1,290 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.util.ByteSequence;
+import com.efficientlogfileanalysis.util.Timer;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the names of all exceptions in a message with a single pass over its bytes instead of running a regex.<br>
+ * A name is a word (letters, digits and _) which contains "Exception" after its first character or ends with "Error"
+ * (e.g. OutOfMemoryError), or the class following "Caused by:", which is found even if it is named differently.
+ * Only the simple name is used, the packages in front of it are skipped like the dots separating them.<br>
+ * Every name is returned once in the order of its first occurrence, which means that the first name is the
+ * exception which has been logged and the following ones are usually its causes.
+ * The extractor is reused for every message, the positions of the names are only valid until the next message is extracted.
+ */
+public class ExceptionExtractor {
+
+    private static final byte[] EXCEPTION = "Exception".getBytes();
+    private static final byte[] ERROR = "Error".getBytes();
+    private static final byte[] CAUSED_BY = "Caused by:".getBytes();
+
+    /**
+     * The characters which can be part of a word, the same ones as \w in a regex
+     */
+    private static final boolean[] WORD_CHARACTERS = new boolean[256];
+
+    static
+    {
+        for(int c = 0; c < 256; c++) {
+            WORD_CHARACTERS[c] = Character.isLetterOrDigit(c) && c < 128 || c == '_';
+        }
+    }
+
+    private ByteBuffer buffer;
+
+    private int amountOfExceptions;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] causes = new boolean[8];
+
+    private final ByteSequence name = new ByteSequence();
+
+    /**
+     * Searches a message for exceptions
+     * @param buffer the buffer containing the message
+     * @param start the position of the first byte of the message
+     * @param end the position after the last byte of the message
+     * @return the amount of different exceptions in the message
+     */
+    public int extract(ByteBuffer buffer, int start, int end)
+    {
+        this.buffer = buffer;
+        amountOfExceptions = 0;
+
+        int position = start;
+
+        while(position < end)
+        {
+            //skip everything until the next word
+            while(position < end && !isWordCharacter(buffer.get(position))) {
+                position++;
+            }
+
+            int wordStart = position;
+            //the first E after the first character, words without one can't be the name of an exception
+            int firstE = -1;
+
+            while(position < end && isWordCharacter(buffer.get(position)))
+            {
+                if(firstE == -1 && position > wordStart && buffer.get(position) == 'E') {
+                    firstE = position;
+                }
+                position++;
+            }
+
+            if(firstE != -1 && isExceptionName(wordStart, firstE, position)) {
+                add(wordStart, position, false);
+            }
+            else if(position - wordStart == 6 && buffer.get(wordStart) == 'C' && matches(wordStart, end, CAUSED_BY)) {
+                position = extractCause(wordStart + CAUSED_BY.length, end);
+            }
+        }
+
+        return amountOfExceptions;
+    }
+
+    /**
+     * Adds the simple name of the class following "Caused by:"
+     * @param position the position after "Caused by:"
+     * @param end the end of the message
+     * @return the position after the name of the class
+     */
+    private int extractCause(int position, int end)
+    {
+        while(position < end && buffer.get(position) == ' ') {
+            position++;
+        }
+
+        int simpleNameStart = position;
+
+        while(position < end)
+        {
+            byte character = buffer.get(position);
+
+            if(character == '.') {
+                simpleNameStart = position + 1;
+            }
+            else if(!isWordCharacter(character) && character != '$') {
+                break;
+            }
+
+            position++;
+        }
+
+        if(position > simpleNameStart) {
+            add(simpleNameStart, position, true);
+        }
+
+        return position;
+    }
+
+    /**
+     * Checks if a word contains Exception after its first character or ends with Error
+     * @param firstE the position of the first E after the first character of the word
+     */
+    private boolean isExceptionName(int start, int firstE, int end)
+    {
+        for(int i = firstE; i <= end - EXCEPTION.length; i++)
+        {
+            if(buffer.get(i) == 'E' && matches(i, end, EXCEPTION)) {
+                return true;
+            }
+        }
+
+        return end - start > ERROR.length && matches(end - ERROR.length, end, ERROR);
+    }
+
+    private boolean matches(int position, int end, byte[] value)
+    {
+        if(end - position < value.length) {
+            return false;
+        }
+
+        for(int i = 0; i < value.length; i++)
+        {
+            if(buffer.get(position + i) != value[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds a name unless it has been found before
+     */
+    private void add(int start, int end, boolean cause)
+    {
+        for(int i = 0; i < amountOfExceptions; i++)
+        {
+            if(ends[i] - starts[i] == end - start && equalBytes(starts[i], start, end - start))
+            {
+                causes[i] |= cause;
+                return;
+            }
+        }
+
+        if(amountOfExceptions == starts.length)
+        {
+            starts = Arrays.copyOf(starts, amountOfExceptions * 2);
+            ends = Arrays.copyOf(ends, amountOfExceptions * 2);
+            causes = Arrays.copyOf(causes, amountOfExceptions * 2);
+        }
+
+        starts[amountOfExceptions] = start;
+        ends[amountOfExceptions] = end;
+        causes[amountOfExceptions] = cause;
+        amountOfExceptions++;
+    }
+
+    private boolean equalBytes(int first, int second, int length)
+    {
+        for(int i = 0; i < length; i++)
+        {
+            if(buffer.get(first + i) != buffer.get(second + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isWordCharacter(byte character)
+    {
+        return WORD_CHARACTERS[character & 0xFF];
+    }
+
+    /**
+     * Returns the amount of different exceptions found by the last call of extract
+     */
+    public int getAmountOfExceptions()
+    {
+        return amountOfExceptions;
+    }
+
+    /**
+     * Returns the position of the first byte of a name in the buffer
+     */
+    public int getStart(int index)
+    {
+        return starts[index];
+    }
+
+    /**
+     * Returns the position after the last byte of a name in the buffer
+     */
+    public int getEnd(int index)
+    {
+        return ends[index];
+    }
+
+    /**
+     * Checks if the exception has been found after "Caused by:"
+     */
+    public boolean isCause(int index)
+    {
+        return causes[index];
+    }
+
+    /**
+     * Returns a name pointing into the buffer<br>
+     * The same ByteSequence is returned for every name
+     * @param index the index of the name, 0 is the first exception in the message
+     */
+    public ByteSequence getName(int index)
+    {
+        name.set(buffer, starts[index], ends[index]);
+        return name;
+    }
+
+    /**
+     * Compares the extractor with the regex used before to find the first exception in every line of a file
+     * @param args the path to a logfile
+     */
+    public static void main(String[] args) throws Exception
+    {
+        byte[] bytes = Files.readAllBytes(Paths.get(args[0]));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        String content = new String(bytes);
+
+        ExceptionExtractor extractor = new ExceptionExtractor();
+        Matcher matcher = Pattern.compile("(\\w+Exception\\w*)").matcher(content);
+        int[] found = new int[2];
+
+        System.out.println("regex:");
+        Timer.timeIt(() -> {
+            found[0] = 0;
+            int start = 0;
+            for(int end = content.indexOf('\n'); end != -1; start = end + 1, end = content.indexOf('\n', start))
+            {
+                matcher.region(start, end);
+                if(matcher.find()) {
+                    found[0]++;
+                }
+            }
+        }, 10);
+
+        System.out.println("ExceptionExtractor:");
+        Timer.timeIt(() -> {
+            found[1] = 0;
+            int start = 0;
+            for(int end = 0; end < bytes.length; end++)
+            {
+                if(bytes[end] == '\n')
+                {
+                    found[1] += extractor.extract(buffer, start, end);
+                    start = end + 1;
+                }
+            }
+        }, 10);
+
+        System.out.println("lines with an exception (regex): " + found[0] + ", exceptions (extractor): " + found[1]);
+    }
+}
@@ -0,0 +1,370 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.util.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A process wide pool of read-only FileChannels, which keeps logfiles open between requests.<br>
+ * A channel is borrowed with <code>acquire</code> and given back by closing the returned Lease.
+ * Any number of Leases can share the same channel, because the channels are only read with positional reads
+ * (<code>FileChannel.read(ByteBuffer, long)</code>), which don't change the position of the channel.<br>
+ * The pool holds at most <code>MAX_OPEN_CHANNELS</code> channels. If it is full, the least recently used channel
+ * which isn't borrowed is closed. Channels which haven't been used for <code>MAX_IDLE_TIME</code> are closed as well.
+ * Deleted or rotated files have to be invalidated, otherwise the pool would keep reading the old file.
+ */
+public class FileChannelPool {
+
+    /**
+     * The maximum amount of channels which are kept open while nobody uses them
+     */
+    public static final int MAX_OPEN_CHANNELS = 64;
+
+    /**
+     * The time after which an unused channel is closed (in milliseconds)
+     */
+    public static final long MAX_IDLE_TIME = 60_000;
+
+    private static FileChannelPool instance;
+
+    /**
+     * An open channel and the amount of Leases using it
+     */
+    private static class PooledChannel
+    {
+        private final Path path;
+        private final FileChannel channel;
+        private int borrowers;
+        private long lastUsed;
+
+        /**
+         * True if the channel has been removed from the pool, it is closed as soon as it isn't borrowed anymore
+         */
+        private boolean removed;
+
+        private PooledChannel(Path path, FileChannel channel)
+        {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * A borrowed channel, has to be closed after being used (ideally within a try with resources block)
+     */
+    public class Lease implements Closeable
+    {
+        private PooledChannel pooledChannel;
+
+        private Lease(PooledChannel pooledChannel)
+        {
+            this.pooledChannel = pooledChannel;
+        }
+
+        /**
+         * Returns the channel of the file<br>
+         * Only use positional reads, the position of the channel is shared with every other Lease of the file
+         */
+        public FileChannel getChannel()
+        {
+            return pooledChannel.channel;
+        }
+
+        /**
+         * Returns the channel to the pool, calling close more than once has no effect
+         */
+        @Override
+        public void close() throws IOException
+        {
+            if(pooledChannel != null)
+            {
+                release(pooledChannel);
+                pooledChannel = null;
+            }
+        }
+    }
+
+    /**
+     * The counters of the pool at a point in time
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Statistics
+    {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int openChannels;
+    }
+
+    /**
+     * The open channels in the order of their last use, the eldest one first
+     */
+    private final LinkedHashMap<Path, PooledChannel> channels = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    private FileChannelPool()
+    {
+        ScheduledExecutorService idleChannelCloser = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FileChannelPool");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        idleChannelCloser.scheduleWithFixedDelay(this::closeIdleChannels, MAX_IDLE_TIME, MAX_IDLE_TIME / 2, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized FileChannelPool getInstance()
+    {
+        if(instance == null) {
+            instance = new FileChannelPool();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Borrows the channel of a file, the file is opened if the pool doesn't contain it yet
+     * @param path the path to the file
+     * @return a Lease which has to be closed after the channel has been used
+     * @throws IOException if the file can't be opened
+     */
+    public Lease acquire(Path path) throws IOException
+    {
+        Path key = path.toAbsolutePath().normalize();
+
+        synchronized(this)
+        {
+            PooledChannel pooledChannel = channels.get(key);
+
+            if(pooledChannel != null && pooledChannel.channel.isOpen())
+            {
+                hits++;
+                pooledChannel.borrowers++;
+                return new Lease(pooledChannel);
+            }
+        }
+
+        //open the file outside of the lock, other files can be borrowed in the meantime
+        FileChannel channel = FileChannel.open(key, StandardOpenOption.READ);
+        List<PooledChannel> channelsToClose = new ArrayList<>();
+        Lease lease;
+
+        synchronized(this)
+        {
+            misses++;
+
+            PooledChannel pooledChannel = channels.get(key);
+
+            if(pooledChannel != null && pooledChannel.channel.isOpen()) {
+                //another thread opened the file at the same time
+                channelsToClose.add(new PooledChannel(key, channel));
+            }
+            else
+            {
+                if(pooledChannel != null) {
+                    removeChannel(pooledChannel, channelsToClose);
+                }
+
+                pooledChannel = new PooledChannel(key, channel);
+                channels.put(key, pooledChannel);
+            }
+
+            pooledChannel.borrowers++;
+            evictLeastRecentlyUsed(channelsToClose);
+            lease = new Lease(pooledChannel);
+        }
+
+        close(channelsToClose);
+        return lease;
+    }
+
+    /**
+     * Removes the channel of a file from the pool, should be called if the file has been deleted, rotated or truncated<br>
+     * Leases which are still using the old channel can continue reading it, the next acquire opens the file again
+     * @param path the path to the file
+     */
+    public void invalidate(Path path)
+    {
+        List<PooledChannel> channelsToClose = new ArrayList<>();
+
+        synchronized(this)
+        {
+            PooledChannel pooledChannel = channels.get(path.toAbsolutePath().normalize());
+
+            if(pooledChannel != null)
+            {
+                invalidations++;
+                removeChannel(pooledChannel, channelsToClose);
+            }
+        }
+
+        close(channelsToClose);
+    }
+
+    /**
+     * Removes every channel from the pool, e.g. when the folder of the logfiles changes
+     */
+    public void invalidateAll()
+    {
+        List<PooledChannel> channelsToClose = new ArrayList<>();
+
+        synchronized(this)
+        {
+            for(PooledChannel pooledChannel : new ArrayList<>(channels.values()))
+            {
+                invalidations++;
+                removeChannel(pooledChannel, channelsToClose);
+            }
+        }
+
+        close(channelsToClose);
+    }
+
+    /**
+     * Closes every channel which isn't borrowed and hasn't been used for <code>MAX_IDLE_TIME</code>
+     */
+    public void closeIdleChannels()
+    {
+        List<PooledChannel> channelsToClose = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        synchronized(this)
+        {
+            Iterator<PooledChannel> iterator = channels.values().iterator();
+
+            while(iterator.hasNext())
+            {
+                PooledChannel pooledChannel = iterator.next();
+
+                if(pooledChannel.borrowers == 0 && now - pooledChannel.lastUsed >= MAX_IDLE_TIME)
+                {
+                    iterator.remove();
+                    pooledChannel.removed = true;
+                    channelsToClose.add(pooledChannel);
+                    evictions++;
+                }
+            }
+        }
+
+        close(channelsToClose);
+    }
+
+    public synchronized Statistics getStatistics()
+    {
+        return new Statistics(hits, misses, evictions, invalidations, channels.size());
+    }
+
+    private void release(PooledChannel pooledChannel) throws IOException
+    {
+        boolean closeChannel;
+
+        synchronized(this)
+        {
+            pooledChannel.borrowers--;
+            pooledChannel.lastUsed = System.currentTimeMillis();
+            closeChannel = pooledChannel.removed && pooledChannel.borrowers == 0;
+        }
+
+        if(closeChannel) {
+            pooledChannel.channel.close();
+        }
+    }
+
+    /**
+     * Removes a channel from the pool, it is closed right away if nobody is using it
+     */
+    private void removeChannel(PooledChannel pooledChannel, List<PooledChannel> channelsToClose)
+    {
+        channels.remove(pooledChannel.path);
+        pooledChannel.removed = true;
+
+        if(pooledChannel.borrowers == 0) {
+            channelsToClose.add(pooledChannel);
+        }
+    }
+
+    /**
+     * Closes the least recently used channels which aren't borrowed until the pool isn't full anymore
+     */
+    private void evictLeastRecentlyUsed(List<PooledChannel> channelsToClose)
+    {
+        Iterator<Map.Entry<Path, PooledChannel>> iterator = channels.entrySet().iterator();
+
+        while(channels.size() > MAX_OPEN_CHANNELS && iterator.hasNext())
+        {
+            PooledChannel pooledChannel = iterator.next().getValue();
+
+            if(pooledChannel.borrowers == 0)
+            {
+                iterator.remove();
+                pooledChannel.removed = true;
+                channelsToClose.add(pooledChannel);
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Closes channels outside of the lock of the pool
+     */
+    private static void close(List<PooledChannel> channelsToClose)
+    {
+        for(PooledChannel pooledChannel : channelsToClose)
+        {
+            try {
+                pooledChannel.channel.close();
+            }
+            catch(IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Compares opening a file for every read with borrowing it from the pool
+     * @param args the path to a file
+     */
+    public static void main(String[] args) throws IOException
+    {
+        Path path = Paths.get(args[0]);
+        FileChannelPool pool = getInstance();
+
+        System.out.println("FileChannel.open:");
+        Timer.timeIt(() -> {
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                channel.size();
+            }
+        }, 100_000);
+
+        System.out.println("FileChannelPool.acquire:");
+        Timer.timeIt(() -> {
+            try(Lease lease = pool.acquire(path)) {
+                lease.getChannel().size();
+            }
+        }, 100_000);
+
+        Statistics statistics = pool.getStatistics();
+        System.out.println("hits: " + statistics.getHits() + ", misses: " + statistics.getMisses());
+    }
+}
@@ -0,0 +1,184 @@
+package com.efficientlogfileanalysis.logs;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses a gzip compressed logfile while it is being read<br>
+ * The file is read from its beginning to its end. Reading a position before the last read position
+ * starts decompressing the file again, which is why a CheckpointFile should be used for random access.<br>
+ * If a CheckpointFile.Writer is given, every decompressed byte is passed to it and the checkpoint file is
+ * finished when the source is closed.
+ */
+class GzipLogFileSource implements LogFileSource {
+
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final CheckpointFile.Writer checkpoints;
+
+    private InputStream input;
+    private boolean endOfFile;
+
+    /**
+     * False if the file couldn't be decompressed (for example because it is still being written)
+     */
+    private boolean readSuccessfully = true;
+
+    /**
+     * The decompressed bytes starting at windowStart
+     */
+    private byte[] window = new byte[0];
+    private long windowStart;
+    private int windowLength;
+
+    /**
+     * @param path the path to the .gz file
+     * @param checkpoints receives the decompressed content (optional)
+     * @throws IOException if the file can't be opened
+     */
+    GzipLogFileSource(Path path, CheckpointFile.Writer checkpoints) throws IOException
+    {
+        this.path = path;
+        this.checkpoints = checkpoints;
+        open();
+    }
+
+    private void open() throws IOException
+    {
+        input = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path), INPUT_BUFFER_SIZE), INPUT_BUFFER_SIZE);
+        endOfFile = false;
+        windowStart = 0;
+        windowLength = 0;
+    }
+
+    /**
+     * Decompresses the next bytes into the window
+     * @param capacity the maximum amount of bytes in the window
+     */
+    private void fill(int capacity) throws IOException
+    {
+        try
+        {
+            int bytesRead = input.read(window, windowLength, capacity - windowLength);
+
+            if(bytesRead == -1) {
+                endOfFile = true;
+                return;
+            }
+
+            if(checkpoints != null) {
+                checkpoints.write(window, windowLength, bytesRead);
+            }
+
+            windowLength += bytesRead;
+        }
+        catch(IOException exception)
+        {
+            readSuccessfully = false;
+            throw exception;
+        }
+    }
+
+    /**
+     * Moves the window so that it starts at the given position
+     */
+    private void moveWindow(long position) throws IOException
+    {
+        if(position < windowStart)
+        {
+            if(checkpoints != null) {
+                throw new IOException("Checkpoints can only be recorded while the file is read from start to end");
+            }
+
+            input.close();
+            open();
+        }
+
+        //drop all bytes before the position
+        while(windowStart + windowLength < position && !endOfFile)
+        {
+            windowStart += windowLength;
+            windowLength = 0;
+            fill((int)Math.min(window.length, position - windowStart));
+        }
+
+        int dropped = (int)Math.min(position - windowStart, windowLength);
+        System.arraycopy(window, dropped, window, 0, windowLength - dropped);
+        windowLength -= dropped;
+        windowStart += dropped;
+    }
+
+    @Override
+    public ByteBuffer read(long position, int length) throws IOException
+    {
+        if(window.length < length)
+        {
+            byte[] largerWindow = new byte[length];
+            System.arraycopy(window, 0, largerWindow, 0, windowLength);
+            window = largerWindow;
+        }
+
+        moveWindow(position);
+
+        while(windowLength < length && !endOfFile) {
+            fill(length);
+        }
+
+        if(windowStart < position) {
+            //the position is after the end of the file
+            return ByteBuffer.allocate(0);
+        }
+
+        return ByteBuffer.wrap(window, 0, Math.min(length, windowLength));
+    }
+
+    @Override
+    public long size()
+    {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean supportsParallelReads()
+    {
+        return false;
+    }
+
+    /**
+     * Decompresses the rest of the file and finishes the checkpoint file
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if(checkpoints != null && readSuccessfully)
+            {
+                if(window.length == 0) {
+                    window = new byte[INPUT_BUFFER_SIZE];
+                }
+
+                while(!endOfFile) {
+                    windowLength = 0;
+                    fill(window.length);
+                }
+
+                checkpoints.finish();
+            }
+        }
+        finally
+        {
+            input.close();
+
+            if(checkpoints != null) {
+                checkpoints.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.logs.data.LogEntry;
+import com.efficientlogfileanalysis.util.ByteSequence;
+import com.efficientlogfileanalysis.util.DateConverter;
+import com.efficientlogfileanalysis.util.Timer;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts a date with a fixed width layout (e.g. <code>dd MMM yyyy HH:mm:ss,SSS</code>) into milliseconds.<br>
+ * Returns exactly the same values as <code>DateConverter.toLong(LocalDateTime.parse(date, formatter))</code>,
+ * but reads the digits directly instead of going through the DateTimeFormatter.
+ * The pattern is compiled once into the positions of its fields, the supported fields are
+ * <code>yyyy, MM, MMM, dd, HH, mm, ss</code> and <code>SSS</code>.<br>
+ * The milliseconds of the current second and the offset of the time zone are cached,
+ * which means that consecutive entries logged within the same second only need to read the milliseconds.
+ * Dates which don't match the layout exactly (invalid days, 24:00, ...) are handed to the DateTimeFormatter.<br>
+ * A decoder is not thread safe, <code>LogDateDecoder.decodeDate</code> uses one decoder per thread.
+ */
+public class LogDateDecoder {
+
+    /**
+     * The layout of the dates written by LogEntry
+     */
+    public static final String DEFAULT_PATTERN = "dd MMM yyyy HH:mm:ss,SSS";
+
+    private static final ThreadLocal<LogDateDecoder> decoders = ThreadLocal.withInitial(LogDateDecoder::new);
+
+    private final String pattern;
+    private final DateTimeFormatter formatter;
+
+    /**
+     * The amount of characters of a date
+     */
+    private final int length;
+
+    /**
+     * The positions of the fields within the date, -1 if the pattern doesn't contain the field
+     */
+    private int yearPosition = -1;
+    private int monthPosition = -1;
+    private int dayPosition = -1;
+    private int hourPosition = -1;
+    private int minutePosition = -1;
+    private int secondPosition = -1;
+    private int millisecondPosition = -1;
+    private boolean monthIsText;
+
+    /**
+     * The characters between the fields and their positions
+     */
+    private final int[] literalPositions;
+    private final char[] literals;
+
+    /**
+     * The characters of the last decoded second, the milliseconds are not compared
+     */
+    private final char[] cachedDate;
+    private boolean dateIsCached = false;
+
+    private final ByteSequence sequence = new ByteSequence();
+
+    /**
+     * The time of the beginning of the cached second in milliseconds
+     */
+    private long cachedSecond;
+
+    private ZoneId zone;
+    private ZoneRules zoneRules;
+
+    /**
+     * The range of local times (in seconds since 1970) in which the time zone has the same offset<br>
+     * Local times that lie in a gap or overlap of a transition are never part of the range
+     */
+    private long offsetValidFrom = Long.MAX_VALUE;
+    private long offsetValidUntil = Long.MIN_VALUE;
+    private int offsetInSeconds;
+
+    /**
+     * Creates a decoder for the dates written by LogEntry (<code>dd MMM yyyy HH:mm:ss,SSS</code>)
+     */
+    public LogDateDecoder()
+    {
+        this(DEFAULT_PATTERN);
+    }
+
+    /**
+     * Compiles the pattern into a decoder
+     * @param pattern a DateTimeFormatter pattern whose fields have a fixed width
+     * @throws IllegalArgumentException if the pattern contains a field which is not supported
+     */
+    public LogDateDecoder(String pattern)
+    {
+        this.pattern = pattern;
+        this.formatter = DateTimeFormatter.ofPattern(pattern).withLocale(Locale.ENGLISH);
+
+        List<Integer> positions = new ArrayList<>();
+        StringBuilder characters = new StringBuilder();
+        int position = 0;
+
+        for(int i = 0; i < pattern.length();)
+        {
+            char letter = pattern.charAt(i);
+
+            if(letter == '\'')
+            {
+                //quoted text like 'T'
+                int endOfQuote = pattern.indexOf('\'', i + 1);
+                if(endOfQuote == -1) {
+                    throw new IllegalArgumentException("Unterminated quote in date pattern " + pattern);
+                }
+                String text = endOfQuote == i + 1 ? "'" : pattern.substring(i + 1, endOfQuote);
+                for(char character : text.toCharArray()) {
+                    positions.add(position++);
+                    characters.append(character);
+                }
+                i = endOfQuote + 1;
+                continue;
+            }
+
+            if(!Character.isLetter(letter))
+            {
+                positions.add(position++);
+                characters.append(letter);
+                i++;
+                continue;
+            }
+
+            int count = 1;
+            while(i + count < pattern.length() && pattern.charAt(i + count) == letter) count++;
+            String field = pattern.substring(i, i + count);
+
+            switch(field)
+            {
+                case "yyyy": case "uuuu": yearPosition = position; break;
+                case "MM": monthPosition = position; break;
+                case "MMM": case "LLL": monthPosition = position; monthIsText = true; break;
+                case "dd": dayPosition = position; break;
+                case "HH": hourPosition = position; break;
+                case "mm": minutePosition = position; break;
+                case "ss": secondPosition = position; break;
+                case "SSS": millisecondPosition = position; break;
+                default:
+                    throw new IllegalArgumentException("The field " + field + " of the date pattern " + pattern + " is not supported");
+            }
+
+            position += count;
+            i += count;
+        }
+
+        if(yearPosition < 0 || monthPosition < 0 || dayPosition < 0 || hourPosition < 0 || minutePosition < 0 || secondPosition < 0) {
+            throw new IllegalArgumentException("The date pattern " + pattern + " needs a year, month, day, hour, minute and second");
+        }
+
+        this.length = position;
+        this.literalPositions = positions.stream().mapToInt(Integer::intValue).toArray();
+        this.literals = characters.toString().toCharArray();
+        this.cachedDate = new char[length];
+    }
+
+    /**
+     * Decodes a date using the decoder of the current thread
+     * @param date a date in the default layout (dd MMM yyyy HH:mm:ss,SSS)
+     * @return the date in milliseconds
+     * @throws DateTimeParseException if the text is not a valid date
+     */
+    public static long decodeDate(CharSequence date)
+    {
+        return decoders.get().decode(date);
+    }
+
+    /**
+     * Returns the amount of characters of a date
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the pattern the decoder was compiled from
+     */
+    public String getPattern()
+    {
+        return pattern;
+    }
+
+    /**
+     * Checks if the character at the given position of a date is a digit
+     * @param position the position within the date
+     * @return true if a digit is expected at this position
+     */
+    public boolean isDigit(int position)
+    {
+        return !isLiteral(position) && !(monthIsText && position >= monthPosition && position < monthPosition + 3);
+    }
+
+    /**
+     * Returns the character expected at the given position of a date
+     * @param position the position within the date
+     * @return the character or 0 if the position belongs to a field
+     */
+    public char getLiteral(int position)
+    {
+        for(int i = 0; i < literalPositions.length; i++)
+        {
+            if(literalPositions[i] == position) {
+                return literals[i];
+            }
+        }
+
+        return 0;
+    }
+
+    private boolean isLiteral(int position)
+    {
+        return getLiteral(position) != 0;
+    }
+
+    /**
+     * Returns the amount of characters of the calendar date (e.g. <code>dd MMM yyyy</code>) at the beginning of the date
+     */
+    public int getLengthOfDay()
+    {
+        int end = Math.max(yearPosition + 4, Math.max(dayPosition + 2, monthPosition + (monthIsText ? 3 : 2)));
+        boolean timeComesFirst = hourPosition < end || minutePosition < end || secondPosition < end;
+
+        return timeComesFirst ? length : end;
+    }
+
+    /**
+     * Converts the date into milliseconds
+     * @param date the characters of the date
+     * @return the date in milliseconds
+     * @throws DateTimeParseException if the text is not a valid date
+     */
+    public long decode(CharSequence date)
+    {
+        if(date.length() != length) {
+            return decodeWithFormatter(date);
+        }
+
+        int millisecond = millisecondPosition < 0 ? 0 : readDigits(date, millisecondPosition, 3);
+        if(millisecond < 0) {
+            return decodeWithFormatter(date);
+        }
+
+        if(dateIsCached && isCachedSecond(date)) {
+            return cachedSecond + millisecond;
+        }
+
+        dateIsCached = false;
+
+        int day = readTwoDigits(date, dayPosition);
+        int month = monthIsText ? readMonth(date, monthPosition) : readTwoDigits(date, monthPosition);
+        int year = readTwoDigits(date, yearPosition) * 100 + readTwoDigits(date, yearPosition + 2);
+        int hour = readTwoDigits(date, hourPosition);
+        int minute = readTwoDigits(date, minutePosition);
+        int second = readTwoDigits(date, secondPosition);
+
+        boolean isValid =
+            hasLiterals(date) &&
+            month > 0 && month <= 12 && year > 0 &&
+            day > 0 && day <= Month.of(month).length(Year.isLeap(year)) &&
+            hour >= 0 && hour < 24 &&
+            minute >= 0 && minute < 60 &&
+            second >= 0 && second < 60;
+
+        if(!isValid) {
+            return decodeWithFormatter(date);
+        }
+
+        long localSecond = LocalDate.of(year, month, day).toEpochDay() * 86400 + hour * 3600 + minute * 60 + second;
+
+        updateZone();
+        if(localSecond < offsetValidFrom || localSecond >= offsetValidUntil) {
+            updateOffset(LocalDateTime.of(year, month, day, hour, minute, second));
+        }
+
+        if(localSecond >= offsetValidFrom && localSecond < offsetValidUntil) {
+            cachedSecond = (localSecond - offsetInSeconds) * 1000;
+        }
+        else {
+            //the time lies in a gap or overlap, let java.time decide how it is resolved
+            cachedSecond = DateConverter.toLong(LocalDateTime.of(year, month, day, hour, minute, second));
+        }
+
+        for(int i = 0; i < length; i++) {
+            cachedDate[i] = date.charAt(i);
+        }
+        dateIsCached = true;
+
+        return cachedSecond + millisecond;
+    }
+
+    /**
+     * Converts the date at the given position of a buffer into milliseconds
+     * @param buffer the buffer containing the date
+     * @param position the position of the first character of the date
+     * @return the date in milliseconds
+     * @throws DateTimeParseException if the text is not a valid date
+     */
+    public long decode(ByteBuffer buffer, int position)
+    {
+        sequence.set(buffer, position, position + length);
+        return decode(sequence);
+    }
+
+    /**
+     * Checks if the characters between the fields match the pattern
+     */
+    private boolean hasLiterals(CharSequence date)
+    {
+        for(int i = 0; i < literals.length; i++)
+        {
+            if(date.charAt(literalPositions[i]) != literals[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if the date lies within the second that was decoded last
+     */
+    private boolean isCachedSecond(CharSequence date)
+    {
+        int endOfPrefix = millisecondPosition < 0 ? length : millisecondPosition;
+
+        for(int i = endOfPrefix - 1; i >= 0; i--)
+        {
+            if(date.charAt(i) != cachedDate[i]) {
+                return false;
+            }
+        }
+
+        for(int i = endOfPrefix + 3; i < length; i++)
+        {
+            if(date.charAt(i) != cachedDate[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Resets the cached offset if the default time zone has been changed
+     */
+    private void updateZone()
+    {
+        ZoneId currentZone = ZoneId.systemDefault();
+
+        if(!currentZone.equals(zone))
+        {
+            zone = currentZone;
+            zoneRules = zone.getRules();
+            offsetValidFrom = Long.MAX_VALUE;
+            offsetValidUntil = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Finds the offset of the time zone at the given time and the range of local times in which it doesn't change
+     * @param time the local time
+     */
+    private void updateOffset(LocalDateTime time)
+    {
+        if(zoneRules.isFixedOffset())
+        {
+            offsetInSeconds = zoneRules.getOffset(Instant.EPOCH).getTotalSeconds();
+            offsetValidFrom = Long.MIN_VALUE;
+            offsetValidUntil = Long.MAX_VALUE;
+            return;
+        }
+
+        if(zoneRules.getTransition(time) != null)
+        {
+            //gap or overlap
+            offsetValidFrom = Long.MAX_VALUE;
+            offsetValidUntil = Long.MIN_VALUE;
+            return;
+        }
+
+        ZoneOffset offset = zoneRules.getOffset(time);
+        Instant instant = time.toInstant(offset);
+        offsetInSeconds = offset.getTotalSeconds();
+
+        //a transition at exactly this instant belongs to the previous transitions
+        ZoneOffsetTransition previousTransition = zoneRules.previousTransition(instant.plusSeconds(1));
+        ZoneOffsetTransition nextTransition = zoneRules.nextTransition(instant);
+
+        offsetValidFrom = previousTransition == null ? Long.MIN_VALUE : Math.max(
+            toLocalSecond(previousTransition.getDateTimeBefore()),
+            toLocalSecond(previousTransition.getDateTimeAfter())
+        );
+        offsetValidUntil = nextTransition == null ? Long.MAX_VALUE : Math.min(
+            toLocalSecond(nextTransition.getDateTimeBefore()),
+            toLocalSecond(nextTransition.getDateTimeAfter())
+        );
+    }
+
+    private static long toLocalSecond(LocalDateTime time)
+    {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Reads a positive number
+     * @return the number or -1 if one of the characters is not a digit
+     */
+    private static int readDigits(CharSequence date, int position, int amount)
+    {
+        int value = 0;
+
+        for(int i = position; i < position + amount; i++)
+        {
+            char character = date.charAt(i);
+            if(character < '0' || character > '9') {
+                return -1;
+            }
+
+            value = value * 10 + (character - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads a number with two digits
+     * @return the number or a negative value if one of the characters is not a digit
+     */
+    private static int readTwoDigits(CharSequence date, int position)
+    {
+        int first = date.charAt(position) - '0';
+        int second = date.charAt(position + 1) - '0';
+
+        if(first < 0 || first > 9 || second < 0 || second > 9) {
+            return -10000;
+        }
+
+        return first * 10 + second;
+    }
+
+    /**
+     * Reads the english abbreviation of the month
+     * @return the number of the month (1 - 12) or -1 if the abbreviation is unknown
+     */
+    private static int readMonth(CharSequence date, int position)
+    {
+        char first = date.charAt(position);
+        char second = date.charAt(position + 1);
+        char third = date.charAt(position + 2);
+
+        switch(first)
+        {
+            case 'J':
+                if(second == 'a' && third == 'n') return 1;
+                if(second == 'u' && third == 'n') return 6;
+                if(second == 'u' && third == 'l') return 7;
+                return -1;
+            case 'F':
+                return second == 'e' && third == 'b' ? 2 : -1;
+            case 'M':
+                if(second == 'a' && third == 'r') return 3;
+                if(second == 'a' && third == 'y') return 5;
+                return -1;
+            case 'A':
+                if(second == 'p' && third == 'r') return 4;
+                if(second == 'u' && third == 'g') return 8;
+                return -1;
+            case 'S':
+                return second == 'e' && third == 'p' ? 9 : -1;
+            case 'O':
+                return second == 'c' && third == 't' ? 10 : -1;
+            case 'N':
+                return second == 'o' && third == 'v' ? 11 : -1;
+            case 'D':
+                return second == 'e' && third == 'c' ? 12 : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Parses dates which don't match the layout exactly
+     */
+    private long decodeWithFormatter(CharSequence date)
+    {
+        return DateConverter.toLong(LocalDateTime.parse(date, formatter));
+    }
+
+    /**
+     * Compares the decoder with the DateTimeFormatter
+     */
+    public static void main(String[] args)
+    {
+        final int AMOUNT_OF_DATES = 1_000_000;
+
+        //a date every 7 milliseconds
+        String[] dates = new String[AMOUNT_OF_DATES];
+        LocalDateTime time = LocalDateTime.of(2022, 7, 4, 12, 0);
+        for(int i = 0; i < dates.length; i++) {
+            dates[i] = time.plusNanos(i * 7_000_000L).format(LogEntry.DTF);
+        }
+
+        LogDateDecoder decoder = new LogDateDecoder();
+        LogDateDecoder isoDecoder = new LogDateDecoder("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        for(String date : dates)
+        {
+            if(decoder.decode(date) != decoder.decodeWithFormatter(date)) {
+                System.out.println("Different result for " + date);
+            }
+
+            String isoDate = LocalDateTime.parse(date, LogEntry.DTF).format(isoDecoder.formatter);
+            if(isoDecoder.decode(isoDate) != decoder.decode(date)) {
+                System.out.println("Different result for " + isoDate);
+            }
+        }
+
+        System.out.println("DateTimeFormatter:");
+        Timer.timeIt(() -> {
+            for(String date : dates) {
+                decoder.decodeWithFormatter(date);
+            }
+        }, 5);
+
+        System.out.println("LogDateDecoder:");
+        Timer.timeIt(() -> {
+            for(String date : dates) {
+                decoder.decode(date);
+            }
+        }, 5);
+    }
+}
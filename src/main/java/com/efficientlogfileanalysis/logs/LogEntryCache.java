@@ -0,0 +1,272 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.data.Settings;
+import com.efficientlogfileanalysis.logs.data.LogEntry;
+import com.efficientlogfileanalysis.util.Timer;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process wide cache of recently read logEntries, which keeps entries that are opened again and again
+ * (e.g. an entry and its neighbours) in memory instead of reading and parsing them out of the logfile every time.<br>
+ * The cache is limited by the approximate amount of memory its entries use, which is set in the Settings.
+ * If it is full, the least recently used entries are removed.<br>
+ * The entries are stored by the ID of their file and their ID, the entries of a file have to be invalidated
+ * if the file gets deleted, rotated or indexed from the beginning again.
+ */
+public class LogEntryCache {
+
+    /**
+     * The approximate amount of memory used by a cached entry without its Strings
+     */
+    private static final int SIZE_OF_ENTRY = 160;
+
+    /**
+     * The approximate amount of memory used by a String without its characters
+     */
+    private static final int SIZE_OF_STRING = 40;
+
+    private static LogEntryCache instance;
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Key
+    {
+        private final short fileID;
+        private final long entryID;
+    }
+
+    /**
+     * The counters of the cache at a point in time
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Statistics
+    {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int cachedEntries;
+        private final long cachedBytes;
+        private final long maxBytes;
+
+        /**
+         * Returns the share of lookups which have been answered by the cache
+         */
+        public double getHitRatio()
+        {
+            return hits + misses == 0 ? 0 : (double)hits / (hits + misses);
+        }
+    }
+
+    /**
+     * The cached entries in the order of their last use, the eldest one first
+     */
+    private final LinkedHashMap<Key, LogEntry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+
+    /**
+     * The IDs of the indexed files by their name, they are set by the Index whenever a file gets or loses its ID,
+     * which means that the ID of a file can be looked up while reading entries without waiting for the Index
+     */
+    private final Map<String, Short> fileIDs = new ConcurrentHashMap<>();
+
+    private final long maxBytes;
+    private long cachedBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates a cache which holds entries using at most the given amount of memory
+     * @param maxBytes the maximum amount of bytes, 0 disables the cache
+     */
+    LogEntryCache(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    public static synchronized LogEntryCache getInstance()
+    {
+        if(instance == null) {
+            instance = new LogEntryCache(Settings.getInstance().getEntryCacheSize() * 1024 * 1024);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns a cached entry
+     * @param fileID the ID of the file
+     * @param entryID the position of the entry
+     * @return a copy of the cached entry or null if the entry isn't cached
+     */
+    public synchronized LogEntry get(short fileID, long entryID)
+    {
+        LogEntry entry = entries.get(new Key(fileID, entryID));
+
+        if(entry == null)
+        {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return copy(entry);
+    }
+
+    /**
+     * Adds an entry to the cache, the least recently used entries are removed if the cache is full afterwards
+     * @param fileID the ID of the file
+     * @param entry the entry, it is copied so that it can still be modified
+     */
+    public synchronized void put(short fileID, LogEntry entry)
+    {
+        long size = sizeOf(entry);
+
+        if(size > maxBytes) {
+            return;
+        }
+
+        LogEntry previousEntry = entries.put(new Key(fileID, entry.getEntryID()), copy(entry));
+        cachedBytes += size - (previousEntry == null ? 0 : sizeOf(previousEntry));
+
+        Iterator<LogEntry> iterator = entries.values().iterator();
+
+        while(cachedBytes > maxBytes && iterator.hasNext())
+        {
+            cachedBytes -= sizeOf(iterator.next());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes every entry of a file, has to be called if the file has been deleted, rotated or gets indexed from the beginning
+     * @param fileID the ID of the file
+     */
+    public synchronized void invalidate(short fileID)
+    {
+        Iterator<Map.Entry<Key, LogEntry>> iterator = entries.entrySet().iterator();
+
+        while(iterator.hasNext())
+        {
+            Map.Entry<Key, LogEntry> entry = iterator.next();
+
+            if(entry.getKey().fileID == fileID)
+            {
+                cachedBytes -= sizeOf(entry.getValue());
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Removes every entry, e.g. when the index is recreated and the files get new IDs
+     */
+    public synchronized void invalidateAll()
+    {
+        invalidations += entries.size();
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * Returns the ID of a file which is used to cache its entries
+     * @param fileName the name of the file in the log folder
+     * @return the ID or -1 if the file hasn't been indexed yet
+     */
+    public short getFileID(String fileName)
+    {
+        return fileIDs.getOrDefault(fileName, (short)-1);
+    }
+
+    public void setFileID(String fileName, short fileID)
+    {
+        fileIDs.put(fileName, fileID);
+    }
+
+    public void removeFileID(String fileName)
+    {
+        fileIDs.remove(fileName);
+    }
+
+    public void clearFileIDs()
+    {
+        fileIDs.clear();
+    }
+
+    public synchronized Statistics getStatistics()
+    {
+        return new Statistics(hits, misses, evictions, invalidations, entries.size(), cachedBytes, maxBytes);
+    }
+
+    private static LogEntry copy(LogEntry entry)
+    {
+        return new LogEntry(
+            entry.getTime(),
+            entry.getLogLevel(),
+            entry.getModule(),
+            entry.getClassName(),
+            entry.getMessage(),
+            entry.getEntryID()
+        );
+    }
+
+    /**
+     * Estimates the amount of memory used by an entry (Strings use up to 2 bytes per character)
+     */
+    private static long sizeOf(LogEntry entry)
+    {
+        return SIZE_OF_ENTRY + sizeOf(entry.getModule()) + sizeOf(entry.getClassName()) + sizeOf(entry.getMessage());
+    }
+
+    private static long sizeOf(String value)
+    {
+        return value == null ? 0 : SIZE_OF_STRING + 2L * value.length();
+    }
+
+    /**
+     * Compares reading entries out of the logfile with reading them out of the cache
+     * @param args the path to the log folder and the name of a logfile
+     */
+    public static void main(String[] args) throws Exception
+    {
+        LogEntryCache cache = new LogEntryCache(64 * 1024 * 1024);
+        List<LogEntry> entries = new ArrayList<>();
+
+        try(LogReader reader = new LogReader(args[0]))
+        {
+            //the entries of the first 256KB of the file
+            entries.addAll(reader.getNearbyEntries(args[1], 0, 256 * 1024));
+
+            System.out.println("LogReader.getLogEntry (" + entries.size() + " entries):");
+            Timer.timeIt(() -> {
+                for(LogEntry entry : entries) {
+                    cache.put((short)0, reader.getLogEntry(args[1], entry.getEntryID()));
+                }
+            }, 10);
+
+            System.out.println("LogEntryCache.get (" + entries.size() + " entries):");
+            Timer.timeIt(() -> {
+                for(LogEntry entry : entries) {
+                    cache.get((short)0, entry.getEntryID());
+                }
+            }, 10);
+        }
+
+        Statistics statistics = cache.getStatistics();
+        System.out.println("hit ratio: " + statistics.getHitRatio() + ", cached bytes: " + statistics.getCachedBytes());
+    }
+}
@@ -0,0 +1,19 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.logs.data.LogEntry;
+
+import java.io.IOException;
+
+/**
+ * A functional interface which receives the logEntries of a file one after another while the file is being read
+ * @param <T> an Optional Exception thrown by the consume method
+ */
+public interface LogEntryConsumer<T extends Exception> {
+
+    /**
+     * Gets called once for every logEntry in the order in which they appear in the file
+     * @param logEntry the read logEntry
+     * @param endOfEntry the position in the file right after the logEntry
+     */
+    void consume(LogEntry logEntry, long endOfEntry) throws T, IOException;
+}
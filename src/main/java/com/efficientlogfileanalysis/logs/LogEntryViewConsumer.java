@@ -0,0 +1,19 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.logs.data.LogEntryView;
+
+import java.io.IOException;
+
+/**
+ * A functional interface which receives the logEntries of a file as reusable views while the file is being read
+ * @param <T> an Optional Exception thrown by the consume method
+ */
+public interface LogEntryViewConsumer<T extends Exception> {
+
+    /**
+     * Gets called once for every logEntry in the order in which they appear in the file<br>
+     * The view is only valid until this method returns
+     * @param logEntry a view of the read logEntry
+     */
+    void consume(LogEntryView logEntry) throws T, IOException;
+}
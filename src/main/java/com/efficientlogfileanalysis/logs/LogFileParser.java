@@ -0,0 +1,616 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.data.Settings;
+import com.efficientlogfileanalysis.logs.data.LogEntry;
+import com.efficientlogfileanalysis.logs.data.LogEntryView;
+import com.efficientlogfileanalysis.logs.data.LogFileData;
+import com.efficientlogfileanalysis.util.Timer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads logEntries directly out of a memory mapped logfile.<br>
+ * The file is scanned byte by byte, which means that the start of an entry is found without
+ * decoding every line into a String and that the entryIDs are exact byte offsets.<br>
+ * Only the bytes of complete entries get decoded.<br>
+ * Compressed (.gz) files are read through a LogFileSource which decompresses them,
+ * their entryIDs are positions in the uncompressed content.
+ */
+public class LogFileParser implements Closeable {
+
+    /**
+     * The amount of bytes that get mapped into memory at once.<br>
+     * Gets doubled temporarily if a single entry is larger than the window.
+     */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The amount of bytes that get mapped at once while searching for the beginning of an entry
+     */
+    private static final int SEARCH_WINDOW_SIZE = 1024 * 1024;
+
+    /**
+     * Files with at least this many unread bytes are read in parallel
+     */
+    private static final long PARALLEL_THRESHOLD = 32 * 1024 * 1024;
+
+    /**
+     * The approximate size of the ranges a file is split into when it is read in parallel
+     */
+    private static final long RANGE_SIZE = 8 * 1024 * 1024;
+
+    private final LogFileSource source;
+
+    /**
+     * The layout of the entries, which also recognizes the beginning of an entry
+     */
+    private final LogLayout layout = LogLayout.getInstance();
+
+    /**
+     * Opens the logfile at the given path<br>
+     * Compressed files are read out of their checkpoint file if they have already been indexed
+     * and decompressed from the beginning otherwise
+     * @param path the path to the logfile
+     * @throws IOException if the file can't be opened
+     */
+    public LogFileParser(String path) throws IOException
+    {
+        Path file = Paths.get(path);
+
+        if(!LogReader.isCompressed(path)) {
+            source = new MappedLogFileSource(file);
+        }
+        else if(Files.exists(LogReader.getCheckpointFile(file.getFileName().toString()))) {
+            source = new CheckpointFile.Reader(LogReader.getCheckpointFile(file.getFileName().toString()));
+        }
+        else {
+            source = new GzipLogFileSource(file, null);
+        }
+    }
+
+    /**
+     * Opens a compressed logfile and records its checkpoint file while the file is read<br>
+     * The checkpoint file is finished when the parser is closed
+     * @param path the path to the compressed logfile
+     * @param checkpointFile the path of the checkpoint file
+     * @throws IOException if the file can't be opened
+     */
+    public LogFileParser(String path, Path checkpointFile) throws IOException
+    {
+        CheckpointFile.Writer checkpoints = new CheckpointFile.Writer(checkpointFile);
+
+        try {
+            source = new GzipLogFileSource(Paths.get(path), checkpoints);
+        }
+        catch(IOException exception) {
+            checkpoints.close();
+            throw exception;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        source.close();
+    }
+
+    /**
+     * Lines before the first entry which start with one of these characters are skipped
+     */
+    private static boolean isWhitespace(byte character)
+    {
+        return character == '\r' || character == ' ' || character == '\n' || character == '\t';
+    }
+
+    /**
+     * Finds the next line break in the buffer
+     * @return the position of the next \n or -1 if the buffer doesn't contain one
+     */
+    private static int indexOfLineBreak(ByteBuffer buffer, int position, int limit)
+    {
+        for(int i = position; i < limit; i++)
+        {
+            if(buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the first line at or after the given position which starts a new logEntry
+     * @param position the position at which the search starts
+     * @param fileSize the size of the file
+     * @return the position of the found line or the size of the file if there is no further entry
+     * @throws IOException If an IOError occurs
+     */
+    private long findNextEntryStart(long position, long fileSize) throws IOException
+    {
+        if(position <= 0) {
+            return 0;
+        }
+
+        //start one byte earlier, so that a line starting exactly at the position is found as well
+        long windowStart = position - 1;
+
+        while(windowStart < fileSize)
+        {
+            int mappedSize = (int)Math.min(fileSize - windowStart, SEARCH_WINDOW_SIZE);
+            ByteBuffer buffer = source.read(windowStart, mappedSize);
+
+            if(buffer.limit() < mappedSize) {
+                //the size of compressed files is only known once the end has been reached
+                mappedSize = buffer.limit();
+                fileSize = windowStart + mappedSize;
+            }
+            boolean windowReachesEndOfFile = windowStart + mappedSize == fileSize;
+
+            int lineBreak = indexOfLineBreak(buffer, 0, mappedSize);
+            while(lineBreak != -1)
+            {
+                int startOfLine = lineBreak + 1;
+
+                //the beginning of the line is in the next window
+                if(startOfLine + layout.getLengthOfEntryPrefix() > mappedSize && !windowReachesEndOfFile && lineBreak > 0) {
+                    break;
+                }
+
+                if(layout.isStartOfEntry(buffer, startOfLine, mappedSize)) {
+                    return windowStart + startOfLine;
+                }
+
+                lineBreak = indexOfLineBreak(buffer, startOfLine, mappedSize);
+            }
+
+            windowStart += lineBreak == -1 ? mappedSize : lineBreak;
+        }
+
+        return fileSize;
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file<br>
+     * Reading stops at the first entry that can't be parsed
+     * @param offset how many bytes should be skipped
+     * @return a logFileData object with all read logEntries as well as how many bytes have been read
+     * @throws IOException If an IOError occurs
+     */
+    public LogFileData parse(long offset) throws IOException
+    {
+        List<LogEntry> entries = new ArrayList<>();
+        long bytesRead = parse(offset, (logEntry, endOfEntry) -> entries.add(logEntry));
+
+        return new LogFileData(entries, bytesRead);
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file and passes them to the consumer one by one<br>
+     * Files with more than PARALLEL_THRESHOLD remaining bytes are split up and read in parallel
+     * @param offset how many bytes should be skipped
+     * @param consumer receives every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public <E extends Exception> long parse(long offset, LogEntryConsumer<E> consumer) throws E, IOException
+    {
+        return parse(offset, toViewConsumer(consumer));
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file and passes views of them to the consumer one by one<br>
+     * Files with more than PARALLEL_THRESHOLD remaining bytes are split up and read in parallel
+     * @param offset how many bytes should be skipped
+     * @param consumer receives a view of every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public <E extends Exception> long parse(long offset, LogEntryViewConsumer<E> consumer) throws E, IOException
+    {
+        int numberOfCores = Runtime.getRuntime().availableProcessors();
+
+        if(numberOfCores > 1 && source.supportsParallelReads() && source.size() - offset >= PARALLEL_THRESHOLD) {
+            return parseInParallel(offset, numberOfCores, consumer);
+        }
+
+        return parseSequentially(offset, consumer);
+    }
+
+    /**
+     * Converts the views into LogEntry objects before they are passed to the consumer
+     */
+    private static <E extends Exception> LogEntryViewConsumer<E> toViewConsumer(LogEntryConsumer<E> consumer)
+    {
+        return view -> consumer.consume(view.toLogEntry(), view.getEndOfEntry());
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file on the current thread<br>
+     * Reading stops at the first entry that can't be parsed
+     * @param offset how many bytes should be skipped
+     * @param consumer receives every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public <E extends Exception> long parseSequentially(long offset, LogEntryConsumer<E> consumer) throws E, IOException
+    {
+        return parseSequentially(offset, toViewConsumer(consumer));
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file on the current thread<br>
+     * Reading stops at the first entry that can't be parsed
+     * @param offset how many bytes should be skipped
+     * @param consumer receives a view of every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public <E extends Exception> long parseSequentially(long offset, LogEntryViewConsumer<E> consumer) throws E, IOException
+    {
+        long fileSize = source.size();
+
+        if(offset >= fileSize) {
+            return 0;
+        }
+
+        ParsedRange range = new ParsedRange();
+        parseRange(range, offset, fileSize, consumer);
+
+        return range.bytesRead - offset;
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file using multiple threads<br>
+     * See <code>parseInParallel(long, int, LogEntryViewConsumer)</code>
+     * @param offset how many bytes should be skipped
+     * @param parallelism how many ranges are read at the same time
+     * @param consumer receives every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public <E extends Exception> long parseInParallel(long offset, int parallelism, LogEntryConsumer<E> consumer) throws E, IOException
+    {
+        return parseInParallel(offset, parallelism, toViewConsumer(consumer));
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file using multiple threads<br>
+     * The file is cut into ranges of about RANGE_SIZE bytes, whose borders are moved to the beginning of the next entry.
+     * The ranges are read on the common fork-join pool and handed to the consumer in the order of the file,
+     * which means that the consumer gets called on the current thread and receives the same entries as with <code>parseSequentially</code>.<br>
+     * The entries of a range are stored in a <code>LogEntryView.Batch</code> and restored into a single view for the consumer.
+     * At most <code>parallelism</code> ranges are held in memory at once.
+     * @param offset how many bytes should be skipped
+     * @param parallelism how many ranges are read at the same time
+     * @param consumer receives a view of every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public <E extends Exception> long parseInParallel(long offset, int parallelism, LogEntryViewConsumer<E> consumer) throws E, IOException
+    {
+        if(!source.supportsParallelReads()) {
+            return parseSequentially(offset, consumer);
+        }
+
+        long fileSize = source.size();
+
+        if(offset >= fileSize) {
+            return 0;
+        }
+
+        Deque<ForkJoinTask<ParsedRange>> tasks = new ArrayDeque<>(parallelism);
+        LogEntryView view = new LogEntryView(layout);
+        long nextBorder = offset;
+        long bytesRead = offset;
+
+        try
+        {
+            boolean stillReading = true;
+            while(stillReading)
+            {
+                //start reading the next ranges
+                while(tasks.size() < parallelism && nextBorder < fileSize)
+                {
+                    long start = nextBorder;
+                    long end = findNextEntryStart(start + RANGE_SIZE, fileSize);
+
+                    tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                        ParsedRange range = new ParsedRange();
+                        parseRange(range, start, end, range.entries::add);
+                        return range;
+                    }));
+
+                    nextBorder = end;
+                }
+
+                if(tasks.isEmpty()) {
+                    break;
+                }
+
+                ParsedRange range = tasks.poll().get();
+
+                //pass the entries of the range to the consumer
+                for(int i = 0; i < range.entries.size(); i++)
+                {
+                    range.entries.restore(i, view);
+                    consumer.consume(view);
+                }
+
+                bytesRead = range.bytesRead;
+
+                //if an entry couldn't be parsed, everything after it is ignored
+                stillReading = range.complete;
+            }
+        }
+        catch(InterruptedException | ExecutionException exception) {
+            throw new IOException("Logfile could not be read", exception);
+        }
+        finally {
+            tasks.forEach(remainingTask -> remainingTask.cancel(true));
+        }
+
+        return bytesRead - offset;
+    }
+
+    /**
+     * Reads the logEntry at a specific position of the file
+     * @param entryID the position of the first byte of the entry
+     * @return the logEntry or null if there is no valid entry at the position
+     * @throws IOException If an IOError occurs
+     */
+    public LogEntry readEntry(long entryID) throws IOException
+    {
+        long end = findNextEntryStart(entryID + 1, source.size());
+
+        LogEntry[] entry = new LogEntry[1];
+        parseRange(new ParsedRange(), entryID, end, view -> {
+            if(entry[0] == null) {
+                entry[0] = view.toLogEntry();
+            }
+        });
+
+        return entry[0];
+    }
+
+    /**
+     * Reads all logEntries which start within a range of the file
+     * @param from the position at which the range starts
+     * @param to the position after the end of the range
+     * @return the read logEntries
+     * @throws IOException If an IOError occurs
+     */
+    public List<LogEntry> readEntries(long from, long to) throws IOException
+    {
+        long start = findNextEntryStart(from, source.size());
+        long end = findNextEntryStart(to, source.size());
+
+        List<LogEntry> entries = new ArrayList<>();
+        parseRange(new ParsedRange(), start, end, view -> entries.add(view.toLogEntry()));
+
+        return entries;
+    }
+
+    /**
+     * The state of reading a range of the file
+     */
+    private class ParsedRange
+    {
+        /**
+         * Only used if the range is read in parallel
+         */
+        private final LogEntryView.Batch entries = new LogEntryView.Batch();
+
+        /**
+         * The position up to which the range has been read successfully
+         */
+        private long bytesRead;
+
+        /**
+         * False if reading stopped because an entry couldn't be parsed
+         */
+        private boolean complete = true;
+
+        /**
+         * The view every entry of the range is parsed into
+         */
+        private final LogEntryView view = new LogEntryView(layout);
+    }
+
+    /**
+     * Reads all entries which start within the given range of the file<br>
+     * The last entry of the range ends at the end of the range.
+     * Reading stops at the first entry that can't be parsed
+     * @param range the state of the range
+     * @param start the position of the first byte of the range
+     * @param end the position after the last byte of the range
+     * @param consumer receives a view of every read logEntry
+     * @throws IOException If an IOError occurs
+     */
+    private <E extends Exception> void parseRange(ParsedRange range, long start, long end, LogEntryViewConsumer<E> consumer) throws E, IOException
+    {
+        LogEntryView view = range.view;
+        range.bytesRead = start;
+
+        //the start of the entry which is currently being read (-1 if no entry has been found yet)
+        long entryStart = -1;
+
+        long windowStart = start;
+        long nextLine = start;
+        int windowSize = WINDOW_SIZE;
+
+        boolean stillReading = start < end;
+        while(stillReading)
+        {
+            int mappedSize = (int)Math.min(end - windowStart, windowSize);
+            ByteBuffer buffer = source.read(windowStart, mappedSize);
+
+            if(buffer.limit() < mappedSize) {
+                //the end of the file has been reached before the end of the range
+                mappedSize = buffer.limit();
+                end = windowStart + mappedSize;
+            }
+            boolean windowReachesEndOfRange = windowStart + mappedSize == end;
+
+            int position = (int)(nextLine - windowStart);
+            while(stillReading && position < mappedSize)
+            {
+                int lineBreak = indexOfLineBreak(buffer, position, mappedSize);
+
+                //the line is continued in the next window
+                if(lineBreak == -1 && !windowReachesEndOfRange) {
+                    break;
+                }
+
+                int endOfLine = lineBreak == -1 ? mappedSize : lineBreak + 1;
+
+                if(entryStart == -1)
+                {
+                    //skip empty lines before the first entry
+                    if(isWhitespace(buffer.get(position))) {
+                        range.bytesRead = windowStart + endOfLine;
+                    }
+                    else {
+                        entryStart = windowStart + position;
+                    }
+                }
+                else if(layout.isStartOfEntry(buffer, position, endOfLine))
+                {
+                    int startInWindow = (int)(entryStart - windowStart);
+
+                    if(view.parse(buffer, startInWindow, position, entryStart))
+                    {
+                        range.bytesRead = windowStart + position;
+                        entryStart = windowStart + position;
+                        consumer.consume(view);
+                    }
+                    else
+                    {
+                        //if the entry can't be parsed stop reading the file
+                        range.complete = false;
+                        stillReading = false;
+                    }
+                }
+
+                position = endOfLine;
+            }
+
+            nextLine = windowStart + position;
+
+            if(stillReading && windowReachesEndOfRange && position >= mappedSize)
+            {
+                //parse the last entry of the range
+                if(entryStart != -1)
+                {
+                    int startInWindow = (int)(entryStart - windowStart);
+
+                    if(view.parse(buffer, startInWindow, mappedSize, entryStart)) {
+                        range.bytesRead = end;
+                        consumer.consume(view);
+                    }
+                    else {
+                        range.complete = false;
+                    }
+                }
+
+                stillReading = false;
+            }
+
+            if(stillReading)
+            {
+                //move the window so that it starts with the unfinished entry
+                long newWindowStart = entryStart == -1 ? nextLine : entryStart;
+
+                if(newWindowStart == windowStart) {
+                    //a single entry is larger than the window
+                    windowSize = (int)Math.min((long)windowSize * 2, Integer.MAX_VALUE - 8);
+                }
+                else {
+                    windowStart = newWindowStart;
+                    windowSize = WINDOW_SIZE;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Compares the throughput of the mapped parser with the Scanner based implementation
+     * @param args optional path to a logfolder, uses the path set in the settings if absent
+     */
+    //the deprecated Scanner based reader is only used as the baseline of the comparison
+    @SuppressWarnings("deprecation")
+    public static void main(String[] args) throws IOException
+    {
+        String logFolder = args.length > 0 ? args[0] : Settings.getInstance().getLogFilePath();
+        File[] files = LogReader.getAllLogFiles(logFolder);
+
+        long totalSize = 0;
+        for(File file : files) {
+            totalSize += file.length();
+        }
+        double megabytes = totalSize / (1024.0 * 1024.0);
+
+        System.out.printf("Reading %d files (%.2f MB)%n", files.length, megabytes);
+
+        Timer.Time scannerTime = Timer.timeIt(() -> {
+            for(File file : files) {
+                LogReader.readSingleFileWithScanner(file.getAbsolutePath(), 0);
+            }
+        }, 5);
+
+        Timer.Time parserTime = Timer.timeIt(() -> {
+            for(File file : files) {
+                try(LogFileParser parser = new LogFileParser(file.getAbsolutePath())) {
+                    parser.parseSequentially(0, (logEntry, endOfEntry) -> {});
+                }
+            }
+        }, 5);
+
+        Timer.Time viewTime = Timer.timeIt(() -> {
+            for(File file : files) {
+                try(LogFileParser parser = new LogFileParser(file.getAbsolutePath())) {
+                    parser.parseSequentially(0, view -> {});
+                }
+            }
+        }, 5);
+
+        int numberOfCores = Runtime.getRuntime().availableProcessors();
+        Timer.Time parallelTime = Timer.timeIt(() -> {
+            for(File file : files) {
+                try(LogFileParser parser = new LogFileParser(file.getAbsolutePath())) {
+                    parser.parseInParallel(0, numberOfCores, view -> {});
+                }
+            }
+        }, 5);
+
+        System.out.printf("Scanner: %.2f MB/s%n", megabytes / (scannerTime.averageTime / 1000));
+        System.out.printf("Mapped parser: %.2f MB/s%n", megabytes / (parserTime.averageTime / 1000));
+        System.out.printf("Mapped parser (views): %.2f MB/s%n", megabytes / (viewTime.averageTime / 1000));
+        System.out.printf("Mapped parser (views, %d threads): %.2f MB/s%n", numberOfCores, megabytes / (parallelTime.averageTime / 1000));
+    }
+}
@@ -0,0 +1,32 @@
+package com.efficientlogfileanalysis.logs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The bytes of a logfile as they are read by the LogFileParser
+ */
+interface LogFileSource extends Closeable {
+
+    /**
+     * Reads a part of the (uncompressed) file<br>
+     * The returned buffer may be shorter than requested if the end of the file is reached.
+     * Its first byte is at index 0 and it is only valid until the next call of this method.
+     * @param position the position of the first byte in the file
+     * @param length how many bytes should be read
+     * @return a buffer containing the bytes
+     * @throws IOException If an IOError occurs
+     */
+    ByteBuffer read(long position, int length) throws IOException;
+
+    /**
+     * Returns the size of the (uncompressed) file or Long.MAX_VALUE if the size is not known before the file has been read
+     */
+    long size() throws IOException;
+
+    /**
+     * Returns true if multiple threads can read different parts of the file at the same time
+     */
+    boolean supportsParallelReads();
+}
@@ -0,0 +1,796 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.data.Settings;
+import com.efficientlogfileanalysis.logs.data.LogLevel;
+import com.efficientlogfileanalysis.util.Timer;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout of the entries of a logfile, described by a log4j pattern (e.g. <code>%d %-5p [%t] %c:%L - %m%n</code>).<br>
+ * The pattern is compiled once into a list of elements (texts, the date, the log level and the fields in between),
+ * an entry is then read by walking through these elements without interpreting the pattern or a regex again.<br>
+ * Supported conversions:
+ * <ul>
+ *     <li>%d / %date with an optional fixed width date pattern or ISO8601, DEFAULT, DATE</li>
+ *     <li>%p / %level with an optional padding like %-5p</li>
+ *     <li>%t / %thread is stored as the module</li>
+ *     <li>%c / %logger / %C / %class is stored as the class name</li>
+ *     <li>%m / %msg / %message has to be the last field, it contains the rest of the entry</li>
+ *     <li>%n is only allowed at the end</li>
+ *     <li>every other conversion (%L, %M, %X, ...) is skipped</li>
+ * </ul>
+ * Fields without a fixed width have to be followed by a text, which marks their end.
+ */
+public class LogLayout {
+
+    /**
+     * The layout of the logfiles the application was written for
+     */
+    public static final String DEFAULT_PATTERN = "%d{dd MMM yyyy HH:mm:ss,SSS} %-5p [%t] %c:%L - %m%n";
+
+    private static LogLayout instance;
+
+    private static final byte[] LINE_BREAK = {'\n'};
+
+    private static final LogLevel[] LOG_LEVELS = LogLevel.values();
+    private static final byte[][] LOG_LEVEL_NAMES = new byte[LOG_LEVELS.length][];
+    private static int lengthOfLongestLogLevel = 0;
+    static
+    {
+        for(int i = 0; i < LOG_LEVELS.length; i++) {
+            LOG_LEVEL_NAMES[i] = LOG_LEVELS[i].name().getBytes(StandardCharsets.US_ASCII);
+            lengthOfLongestLogLevel = Math.max(lengthOfLongestLogLevel, LOG_LEVEL_NAMES[i].length);
+        }
+    }
+
+    private enum Type
+    {
+        TEXT, DATE, LEVEL, MODULE, CLASS_NAME, SKIPPED, MESSAGE
+    }
+
+    private static class Element
+    {
+        private final Type type;
+
+        /**
+         * The bytes of a text or the text which follows a field
+         */
+        private byte[] text;
+
+        /**
+         * True if the field isn't followed by a text and ends at the end of the line
+         */
+        private boolean endsWithLine;
+
+        /**
+         * The padding of the log level
+         */
+        private int width;
+        private boolean leftAligned;
+
+        private Element(Type type)
+        {
+            this.type = type;
+        }
+    }
+
+    /**
+     * The pattern the layout was compiled from
+     */
+    @Getter
+    private final String pattern;
+
+    private final Element[] elements;
+
+    private final String datePattern;
+
+    /**
+     * The elements at the beginning of the layout have a fixed width (texts, the date and a padded log level
+     * like %-5p), they are read at fixed offsets from the start of an entry.
+     * The elements from firstVariableElement on are read one after another.
+     */
+    private int lengthOfFixedPart;
+    private int firstVariableElement;
+    private int dateOffset = -1;
+    private int levelOffset = -1;
+    private int levelWidth;
+    private int[] textOffsets;
+    private byte[][] texts;
+
+    /**
+     * The characters at the beginning of each entry (the texts and the calendar date) are used to find
+     * the start of an entry. 0 marks a digit, 1 a letter or digit, every other value has to match exactly.
+     */
+    private final byte[] prefix;
+    private static final byte DIGIT = 0;
+    private static final byte WORD = 1;
+
+    /**
+     * The prefix as a lookup table, <code>allowedInPrefix[index * 256 + character]</code> is true if the character
+     * may appear at this index of the prefix
+     */
+    private final boolean[] allowedInPrefix;
+
+    /**
+     * Returns the layout configured in the Settings
+     * @return the compiled layout
+     */
+    public static synchronized LogLayout getInstance()
+    {
+        String pattern = Settings.getInstance().getLogLayout();
+
+        if(instance == null || !instance.pattern.equals(pattern)) {
+            instance = new LogLayout(pattern);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Compiles a log4j pattern
+     * @param pattern the conversion pattern of the log4j PatternLayout
+     * @throws IllegalArgumentException if the pattern contains a conversion which can't be read back
+     */
+    public LogLayout(String pattern)
+    {
+        this.pattern = pattern;
+
+        List<Element> elements = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        String datePattern = null;
+        boolean hasLevel = false;
+        boolean hasNewLine = false;
+
+        for(int i = 0; i < pattern.length();)
+        {
+            char character = pattern.charAt(i++);
+
+            if(character != '%' || i == pattern.length() || pattern.charAt(i) == '%')
+            {
+                if(hasNewLine) {
+                    throw new IllegalArgumentException("%n has to be at the end of the layout " + pattern);
+                }
+                text.append(character);
+                if(character == '%' && i < pattern.length()) i++;
+                continue;
+            }
+
+            //--- Format modifier like -5 or .30 ---//
+            boolean leftAligned = pattern.charAt(i) == '-';
+            if(leftAligned) i++;
+
+            int width = 0;
+            while(i < pattern.length() && Character.isDigit(pattern.charAt(i))) {
+                width = width * 10 + (pattern.charAt(i++) - '0');
+            }
+            if(i < pattern.length() && pattern.charAt(i) == '.') {
+                i++;
+                while(i < pattern.length() && Character.isDigit(pattern.charAt(i))) i++;
+            }
+
+            //--- Name and options of the conversion ---//
+            int nameStart = i;
+            while(i < pattern.length() && Character.isLetter(pattern.charAt(i))) i++;
+            String name = pattern.substring(nameStart, i);
+            Type type = getType(name);
+
+            if(type == null && !name.isEmpty() && getType(name.substring(0, 1)) != null)
+            {
+                //e.g. %mfoo is a message followed by the text foo
+                i = nameStart + 1;
+                name = name.substring(0, 1);
+                type = getType(name);
+            }
+
+            String option = null;
+            if(i < pattern.length() && pattern.charAt(i) == '{')
+            {
+                int endOfOption = pattern.indexOf('}', i);
+                if(endOfOption == -1) {
+                    throw new IllegalArgumentException("Unterminated option in layout " + pattern);
+                }
+                option = pattern.substring(i + 1, endOfOption);
+                i = endOfOption + 1;
+            }
+
+            if(name.equals("n")) {
+                hasNewLine = true;
+                continue;
+            }
+            if(hasNewLine) {
+                throw new IllegalArgumentException("%n has to be at the end of the layout " + pattern);
+            }
+
+            if(text.length() > 0) {
+                elements.add(createText(text.toString()));
+                text.setLength(0);
+            }
+
+            Element element = new Element(type == null ? Type.SKIPPED : type);
+
+            if(element.type == Type.DATE)
+            {
+                if(datePattern != null) {
+                    throw new IllegalArgumentException("The layout " + pattern + " contains more than one date");
+                }
+                datePattern = toDatePattern(option);
+            }
+            else if(element.type == Type.LEVEL)
+            {
+                hasLevel = true;
+                element.width = width;
+                element.leftAligned = leftAligned;
+            }
+
+            elements.add(element);
+        }
+
+        if(text.length() > 0) {
+            elements.add(createText(text.toString()));
+        }
+
+        if(datePattern == null || !hasLevel) {
+            throw new IllegalArgumentException("The layout " + pattern + " needs a date (%d) and a log level (%p)");
+        }
+
+        this.datePattern = datePattern;
+        this.elements = linkFieldsWithFollowingText(elements);
+        this.prefix = compilePrefix(new LogDateDecoder(datePattern));
+        compileFixedPart(new LogDateDecoder(datePattern));
+        this.allowedInPrefix = new boolean[prefix.length * 256];
+        for(int i = 0; i < prefix.length; i++)
+        {
+            for(int character = 0; character < 256; character++)
+            {
+                switch(prefix[i])
+                {
+                    case DIGIT:
+                        allowedInPrefix[i << 8 | character] = character >= '0' && character <= '9';
+                        break;
+                    case WORD:
+                        allowedInPrefix[i << 8 | character] = Character.isLetterOrDigit(character) && character < 128 || character == '_';
+                        break;
+                    default:
+                        allowedInPrefix[i << 8 | character] = character == (prefix[i] & 0xFF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the name of a conversion to the type of element
+     * @return the type or null if the conversion is not known
+     */
+    private static Type getType(String name)
+    {
+        switch(name)
+        {
+            case "d": case "date": return Type.DATE;
+            case "p": case "level": return Type.LEVEL;
+            case "t": case "thread": return Type.MODULE;
+            case "c": case "logger": case "C": case "class": return Type.CLASS_NAME;
+            case "m": case "msg": case "message": return Type.MESSAGE;
+            case "n": return Type.TEXT;
+            default: return null;
+        }
+    }
+
+    /**
+     * Converts the option of %d into a DateTimeFormatter pattern
+     */
+    private static String toDatePattern(String option)
+    {
+        if(option == null || option.equals("ISO8601") || option.equals("DEFAULT")) {
+            return "yyyy-MM-dd HH:mm:ss,SSS";
+        }
+        if(option.equals("DATE")) {
+            return LogDateDecoder.DEFAULT_PATTERN;
+        }
+
+        return option;
+    }
+
+    private static Element createText(String text)
+    {
+        Element element = new Element(Type.TEXT);
+        element.text = text.getBytes(StandardCharsets.UTF_8);
+        return element;
+    }
+
+    /**
+     * Merges each field without a fixed width with the text which marks its end
+     * @param elements the elements of the pattern
+     * @return the elements which are read one after another
+     */
+    private Element[] linkFieldsWithFollowingText(List<Element> elements)
+    {
+        List<Element> linkedElements = new ArrayList<>();
+
+        for(int i = 0; i < elements.size(); i++)
+        {
+            Element element = elements.get(i);
+            Element next = i + 1 < elements.size() ? elements.get(i + 1) : null;
+            linkedElements.add(element);
+
+            if(element.type == Type.MESSAGE && next != null) {
+                throw new IllegalArgumentException("The message has to be the last field of the layout " + pattern);
+            }
+
+            if(element.type != Type.MODULE && element.type != Type.CLASS_NAME && element.type != Type.SKIPPED) {
+                continue;
+            }
+
+            if(next != null && next.type == Type.TEXT) {
+                element.text = next.text;
+                i++;
+            }
+            else if(next == null || next.type == Type.MESSAGE) {
+                //the field ends with the first line
+                element.endsWithLine = true;
+            }
+            else {
+                throw new IllegalArgumentException("The fields of the layout " + pattern + " have to be separated by a text");
+            }
+        }
+
+        return linkedElements.toArray(new Element[0]);
+    }
+
+    /**
+     * Computes the offsets of the elements at the beginning of the layout which have a fixed width
+     */
+    private void compileFixedPart(LogDateDecoder dateDecoder)
+    {
+        List<Integer> textOffsets = new ArrayList<>();
+        List<byte[]> texts = new ArrayList<>();
+        int offset = 0;
+        int i = 0;
+
+        for(; i < elements.length; i++)
+        {
+            Element element = elements[i];
+
+            if(element.type == Type.TEXT)
+            {
+                textOffsets.add(offset);
+                texts.add(element.text);
+                offset += element.text.length;
+            }
+            else if(element.type == Type.DATE)
+            {
+                dateOffset = offset;
+                offset += dateDecoder.getLength();
+            }
+            else if(element.type == Type.LEVEL && element.width >= lengthOfLongestLogLevel)
+            {
+                levelOffset = offset;
+                levelWidth = element.width;
+                offset += element.width;
+            }
+            else {
+                break;
+            }
+        }
+
+        this.lengthOfFixedPart = offset;
+        this.firstVariableElement = i;
+        this.textOffsets = textOffsets.stream().mapToInt(Integer::intValue).toArray();
+        this.texts = texts.toArray(new byte[0][]);
+    }
+
+    /**
+     * Collects the texts and the calendar date at the beginning of the layout
+     */
+    private byte[] compilePrefix(LogDateDecoder dateDecoder)
+    {
+        ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+
+        for(Element element : elements)
+        {
+            if(element.type == Type.TEXT)
+            {
+                prefix.write(element.text, 0, element.text.length);
+                continue;
+            }
+
+            if(element.type == Type.DATE)
+            {
+                for(int i = 0; i < dateDecoder.getLengthOfDay(); i++)
+                {
+                    char literal = dateDecoder.getLiteral(i);
+                    prefix.write(literal != 0 ? literal : dateDecoder.isDigit(i) ? DIGIT : WORD);
+                }
+            }
+
+            break;
+        }
+
+        if(prefix.size() == 0) {
+            throw new IllegalArgumentException("The layout " + pattern + " has to start with a date or a text");
+        }
+
+        return prefix.toByteArray();
+    }
+
+    /**
+     * Returns the amount of bytes needed to decide if a line is the start of an entry
+     */
+    public int getLengthOfEntryPrefix()
+    {
+        return prefix.length;
+    }
+
+    /**
+     * Checks if the line at the given position is the beginning of a new log entry
+     * @param buffer the buffer containing the line
+     * @param position the position of the first byte of the line
+     * @param limit the position after the last readable byte
+     * @return true if the line starts like an entry of this layout
+     */
+    public boolean isStartOfEntry(ByteBuffer buffer, int position, int limit)
+    {
+        if(limit - position < prefix.length) {
+            return false;
+        }
+
+        for(int i = 0; i < prefix.length; i++)
+        {
+            if(!allowedInPrefix[i << 8 | (buffer.get(position + i) & 0xFF)]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if the line is the beginning of a new log entry
+     * @param line the line
+     * @return true if the line starts like an entry of this layout
+     */
+    public boolean isStartOfEntry(CharSequence line)
+    {
+        if(line.length() < prefix.length) {
+            return false;
+        }
+
+        for(int i = 0; i < prefix.length; i++)
+        {
+            if(!matchesPrefix(i, line.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean matchesPrefix(int index, int character)
+    {
+        return character < 256 && allowedInPrefix[index << 8 | character];
+    }
+
+    /**
+     * Creates a new extractor which reads entries of this layout<br>
+     * Extractors are not thread safe, every thread needs its own one
+     */
+    public Extractor newExtractor()
+    {
+        return new Extractor();
+    }
+
+    /**
+     * Reads the fields of entries into positions and values which are reused for every entry
+     */
+    public class Extractor
+    {
+        private final LogDateDecoder dateDecoder = new LogDateDecoder(datePattern);
+
+        /**
+         * The values and positions of the fields of the last entry
+         */
+        @Getter private long time;
+        @Getter private LogLevel logLevel;
+        @Getter private int moduleStart;
+        @Getter private int moduleEnd;
+        @Getter private int classNameStart;
+        @Getter private int classNameEnd;
+        @Getter private int messageStart;
+        @Getter private int messageEnd;
+
+        private Extractor() {}
+
+        /**
+         * Reads the fields of an entry
+         * @param buffer the buffer containing the entry
+         * @param start the position of the first byte of the entry
+         * @param end the position after the last byte of the entry
+         * @return false if the entry doesn't match the layout
+         */
+        public boolean extract(ByteBuffer buffer, int start, int end)
+        {
+            if(end - start < lengthOfFixedPart) {
+                return false;
+            }
+
+            moduleStart = moduleEnd = start;
+            classNameStart = classNameEnd = start;
+            messageStart = messageEnd = end;
+
+            if(!readFixedPart(buffer, start, end)) {
+                return false;
+            }
+
+            //--- Elements which follow a field without a fixed width ---//
+            int position = start + lengthOfFixedPart;
+
+            for(int i = firstVariableElement; i < elements.length; i++)
+            {
+                Element element = elements[i];
+
+                switch(element.type)
+                {
+                    case TEXT:
+                        if(!startsWith(buffer, position, end, element.text)) {
+                            return false;
+                        }
+                        position += element.text.length;
+                        break;
+                    case DATE:
+                        position = readDate(buffer, position, end);
+                        break;
+                    case LEVEL:
+                        position = readLevel(buffer, position, end, element);
+                        break;
+                    case MODULE:
+                        moduleStart = position;
+                        moduleEnd = endOfField(buffer, position, end, element);
+                        position = skipText(moduleEnd, element);
+                        break;
+                    case CLASS_NAME:
+                        classNameStart = position;
+                        classNameEnd = endOfField(buffer, position, end, element);
+                        position = skipText(classNameEnd, element);
+                        break;
+                    case SKIPPED:
+                        int endOfField = endOfField(buffer, position, end, element);
+                        if(endOfField == -1)
+                        {
+                            //entries without the text after a skipped field (e.g. no " - " after :?) still have a message
+                            messageStart = position;
+                            return true;
+                        }
+                        position = skipText(endOfField, element);
+                        break;
+                    case MESSAGE:
+                        messageStart = position;
+                        return true;
+                }
+
+                if(position == -1) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Reads the elements at fixed offsets from the start of the entry
+         */
+        private boolean readFixedPart(ByteBuffer buffer, int start, int end)
+        {
+            if(dateOffset >= 0 && readDate(buffer, start + dateOffset, end) == -1) {
+                return false;
+            }
+
+            for(int i = 0; i < texts.length; i++)
+            {
+                if(!startsWith(buffer, start + textOffsets[i], end, texts[i])) {
+                    return false;
+                }
+            }
+
+            return levelOffset < 0 || readPaddedLevel(buffer, start + levelOffset, start + levelOffset + levelWidth);
+        }
+
+        /**
+         * Finds the end of a field without a fixed width
+         * @return the position of the text after the field or -1 if the entry doesn't contain it
+         */
+        private int endOfField(ByteBuffer buffer, int position, int end, Element element)
+        {
+            if(element.endsWithLine)
+            {
+                int endOfLine = indexOf(buffer, position, end, LINE_BREAK);
+                return endOfLine == -1 ? end : endOfLine;
+            }
+
+            return indexOf(buffer, position, end, element.text);
+        }
+
+        /**
+         * Moves behind the text which follows a field
+         */
+        private int skipText(int endOfField, Element element)
+        {
+            if(endOfField == -1 || element.endsWithLine) {
+                return endOfField;
+            }
+
+            return endOfField + element.text.length;
+        }
+
+        private int readDate(ByteBuffer buffer, int position, int end)
+        {
+            int endOfDate = position + dateDecoder.getLength();
+            if(endOfDate > end) {
+                return -1;
+            }
+
+            try {
+                time = dateDecoder.decode(buffer, position);
+            }
+            catch(DateTimeParseException exception) {
+                return -1;
+            }
+
+            return endOfDate;
+        }
+
+        /**
+         * Reads a log level which is padded to a fixed width
+         * @param start the position of the first byte of the padded level
+         * @param end the position after the padding
+         */
+        private boolean readPaddedLevel(ByteBuffer buffer, int start, int end)
+        {
+            while(start < end && buffer.get(start) == ' ') start++;
+            while(end > start && buffer.get(end - 1) == ' ') end--;
+
+            for(int i = 0; i < LOG_LEVELS.length; i++)
+            {
+                if(LOG_LEVEL_NAMES[i].length == end - start && startsWith(buffer, start, end, LOG_LEVEL_NAMES[i]))
+                {
+                    logLevel = LOG_LEVELS[i];
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private int readLevel(ByteBuffer buffer, int position, int end, Element element)
+        {
+            int startOfField = position;
+
+            if(!element.leftAligned) {
+                while(position < end && buffer.get(position) == ' ' && position - startOfField < element.width) position++;
+            }
+
+            logLevel = findLogLevel(buffer, position, end);
+            if(logLevel == null) {
+                return -1;
+            }
+
+            position += logLevel.name().length();
+            if(position < end && isLetter(buffer.get(position))) {
+                return -1;
+            }
+
+            if(element.leftAligned) {
+                while(position < end && buffer.get(position) == ' ' && position - startOfField < element.width) position++;
+            }
+
+            return position;
+        }
+    }
+
+    /**
+     * Finds the LogLevel whose name starts at the given position
+     * @return the LogLevel or null if there is no LogLevel at the position
+     */
+    private static LogLevel findLogLevel(ByteBuffer buffer, int position, int end)
+    {
+        if(position >= end) {
+            return null;
+        }
+
+        byte first = buffer.get(position);
+
+        for(int i = 0; i < LOG_LEVELS.length; i++)
+        {
+            byte[] name = LOG_LEVEL_NAMES[i];
+
+            if(name[0] == first && startsWith(buffer, position, end, name)) {
+                return LOG_LEVELS[i];
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isLetter(byte character)
+    {
+        return (character >= 'A' && character <= 'Z') || (character >= 'a' && character <= 'z');
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int position, int end, byte[] text)
+    {
+        if(position < 0 || position + text.length > end) {
+            return false;
+        }
+
+        if(text.length == 1) {
+            return buffer.get(position) == text[0];
+        }
+
+        for(int i = 0; i < text.length; i++)
+        {
+            if(buffer.get(position + i) != text[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds a text within an entry
+     * @return the position of the text or -1 if the entry doesn't contain it
+     */
+    private static int indexOf(ByteBuffer buffer, int from, int end, byte[] text)
+    {
+        if(from < 0) {
+            return -1;
+        }
+
+        byte first = text[0];
+        int lastStart = end - text.length;
+
+        for(int i = from; i <= lastStart; i++)
+        {
+            if(buffer.get(i) == first && (text.length == 1 || startsWith(buffer, i, end, text))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Measures how fast the entries of a logfile are read with the layout
+     * @param args the path to a logfile and optionally a layout
+     */
+    public static void main(String[] args) throws Exception
+    {
+        LogLayout layout = new LogLayout(args.length > 1 ? args[1] : DEFAULT_PATTERN);
+        Extractor extractor = layout.newExtractor();
+        ByteBuffer buffer = ByteBuffer.wrap(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(args[0])));
+
+        Timer.timeIt(() -> {
+            int entries = 0;
+            int startOfEntry = 0;
+
+            for(int i = 0; i <= buffer.limit(); i++)
+            {
+                boolean isStartOfLine = i == buffer.limit() || (i > 0 && buffer.get(i - 1) == '\n');
+                if(isStartOfLine && (i == buffer.limit() || layout.isStartOfEntry(buffer, i, buffer.limit())))
+                {
+                    if(i > startOfEntry && extractor.extract(buffer, startOfEntry, i)) {
+                        entries++;
+                    }
+                    startOfEntry = i;
+                }
+            }
+
+            System.out.println(entries + " entries");
+        }, 5);
+    }
+}
@@ -5,13 +5,16 @@ import com.efficientlogfileanalysis.index.data.TimeRange;
 import com.efficientlogfileanalysis.logs.data.LogEntry;
 import com.efficientlogfileanalysis.logs.data.LogFile;
 import com.efficientlogfileanalysis.logs.data.LogFileData;
+import com.efficientlogfileanalysis.logs.data.LogEntryView;
 import com.efficientlogfileanalysis.logs.data.LogLevel;
 import com.efficientlogfileanalysis.util.DateConverter;
 import com.efficientlogfileanalysis.util.Timer;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.SneakyThrows;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -20,6 +23,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -30,8 +34,16 @@ import java.util.stream.Stream;
  */
 public class LogReader implements Closeable {
 
+    /**
+     * Detects the start of an entry in <code>readSingleFileWithScanner</code>
+     */
     private static final String REGEX_START_OF_LOG_ENTRY = "^\\d{2} \\w{3} \\d{4}[\\s\\S]*";
 
+    /**
+     * Endings of compressed files which can't be read
+     */
+    private static final String[] UNSUPPORTED_COMPRESSIONS = {".zip", ".bz2", ".xz", ".zst", ".7z", ".lz4"};
+
     /**
      * A functional interface containing an action used by the <code>forEachLogFile</code> method
      * @param <T> an Optional Exception thrown by the performAction method
@@ -69,7 +81,58 @@ public class LogReader implements Closeable {
     public static Stream<Path> getAllLogFilesAsStream(String logFolder) throws IOException {
         return Files.walk(Paths.get(logFolder))
             .filter(Files::isRegularFile)
-            .filter(file -> file.getFileName().toString().contains(".log"));
+            .filter(file -> isLogFile(file.getFileName().toString()));
+    }
+
+    /**
+     * Checks if a file is a (possibly rotated and gzip compressed) logfile
+     * @param fileName the name of the file
+     * @return true if the file can be read
+     */
+    public static boolean isLogFile(String fileName)
+    {
+        if(!fileName.contains(".log")) {
+            return false;
+        }
+
+        for(String ending : UNSUPPORTED_COMPRESSIONS)
+        {
+            if(fileName.endsWith(ending)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if a logfile is gzip compressed
+     * @param fileName the name of (or the path to) the file
+     * @return true if the file ends with .gz
+     */
+    public static boolean isCompressed(String fileName)
+    {
+        return fileName.endsWith(".gz");
+    }
+
+    /**
+     * Returns the path of the checkpoint file which allows reading a compressed logfile at any position
+     * @param fileName the name of the compressed logfile
+     * @return the path of the checkpoint file
+     */
+    public static Path getCheckpointFile(String fileName)
+    {
+        return Settings.PATH_TO_CHECKPOINTS.resolve(fileName + ".checkpoints");
+    }
+
+    /**
+     * Returns the path of the file containing the positions of the entries of a logfile, see <code>EntryOffsetIndex</code>
+     * @param fileName the name of the logfile
+     * @return the path of the file containing the positions
+     */
+    public static Path getEntryOffsetFile(String fileName)
+    {
+        return Settings.PATH_TO_ENTRY_OFFSETS.resolve(fileName + ".offsets");
     }
 
     /**
@@ -135,6 +198,60 @@ public class LogReader implements Closeable {
      * @throws IOException If an IOError occurs
      */
     public static LogFileData readSingleFile(String path, long offset) throws IOException {
+        try(LogFileParser parser = new LogFileParser(path))
+        {
+            return parser.parse(offset);
+        }
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file and passes them to the consumer one by one<br>
+     * The entries are not collected, which means that the memory needed doesn't depend on the size of the file
+     * @param path the path to the logFile
+     * @param offset how many bytes should be skipped
+     * @param consumer receives every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public static <E extends Exception> long readSingleFile(String path, long offset, LogEntryConsumer<E> consumer) throws E, IOException {
+        try(LogFileParser parser = new LogFileParser(path))
+        {
+            return parser.parse(offset, consumer);
+        }
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file and passes views of them to the consumer one by one<br>
+     * The views point directly into the mapped file, which means that no objects are created per entry
+     * @param path the path to the logFile
+     * @param offset how many bytes should be skipped
+     * @param consumer receives a view of every read logEntry
+     * @param <E> the type of the exception which is thrown by the consumer (optional)
+     * @return how many bytes have been read
+     * @throws E if the consumer throws an Exception
+     * @throws IOException If an IOError occurs
+     */
+    public static <E extends Exception> long readSingleFile(String path, long offset, LogEntryViewConsumer<E> consumer) throws E, IOException {
+        try(LogFileParser parser = new LogFileParser(path))
+        {
+            return parser.parse(offset, consumer);
+        }
+    }
+
+    /**
+     * Reads all logEntries after a specific location in the file using a Scanner<br>
+     * Only kept to compare the performance with the LogFileParser, so it is deliberately left as it was before the
+     * parser existed: the regex detects the start of an entry and the entries are split at the fixed offsets of the
+     * default layout. Therefore it only reads files written with the default layout.
+     * @param path the path to the logFile
+     * @param offset how many bytes should be skipped
+     * @return a logFileData object with all read logEntries as well as how many bytes have been read
+     * @throws IOException If an IOError occurs
+     */
+    @Deprecated
+    public static LogFileData readSingleFileWithScanner(String path, long offset) throws IOException {
         Matcher startOfLogEntry = Pattern.compile(REGEX_START_OF_LOG_ENTRY).matcher("");
         List<LogEntry> entries = new ArrayList<>();
 
@@ -168,7 +285,7 @@ public class LogReader implements Closeable {
             try
             {
                 //try to add the new entry
-                LogEntry newLogEntry = new LogEntry(currentEntry, bytesRead);
+                LogEntry newLogEntry = parseWithFixedOffsets(currentEntry, bytesRead);
                 entries.add(newLogEntry);
 
                 //add how many bytes have been read
@@ -194,16 +311,125 @@ public class LogReader implements Closeable {
         return new LogFileData(entries, bytesRead - offset);
     }
 
+    /**
+     * Splits an entry at the fixed offsets of the default layout, the way LogEntry did before the layouts were configurable
+     * @param logEntry the text of the entry
+     * @param entryID the position of the entry in the file
+     * @return the parsed entry
+     */
+    private static LogEntry parseWithFixedOffsets(String logEntry, long entryID)
+    {
+        LogEntry entry = new LogEntry();
+        entry.setTime(DateConverter.toLong(LocalDateTime.parse(logEntry.substring(0, 24), LogEntry.DTF)));
+        entry.setLogLevel(LogLevel.valueOf(logEntry.substring(24, 31).trim()));
+
+        int indexOfClosedParenthesis = logEntry.indexOf("]", 32);
+        entry.setModule(logEntry.substring(32, indexOfClosedParenthesis));
+
+        int indexOfColon = logEntry.indexOf(":", indexOfClosedParenthesis + 2);
+        entry.setClassName(logEntry.substring(indexOfClosedParenthesis + 2, indexOfColon));
+        entry.setMessage(logEntry.substring(logEntry.indexOf(" - ", indexOfColon) + 3));
+        entry.setEntryID(entryID);
+
+        return entry;
+    }
+
     @Getter
     private final String logFolderPath;
-    private final Matcher startOfLogEntry;
-    private final HashMap<String, RandomAccessFile> openFiles;
+    private final LogLayout layout;
+
+    /**
+     * A view per thread which parses the entries read by all LogReaders, it is replaced when the layout changes.<br>
+     * A LogReader is created per request, a ThreadLocal per LogReader would leave a view in every thread of the server.
+     */
+    private static final ThreadLocal<LogEntryView> views = new ThreadLocal<>();
+
+    /**
+     * The size of the first read when looking for the end of an entry or line, doubled until the end is found
+     */
+    private static final int INITIAL_READ_SIZE = 1024;
+
+    /**
+     * The largest read when looking for the end of an entry or line, the size of the largest possible array
+     */
+    private static final int MAX_READ_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Requested entries which lie at most this many bytes apart are read together by <code>readLogEntries</code>
+     */
+    private static final int MAX_GAP_BETWEEN_ENTRIES = 64 * 1024;
+
+    /**
+     * The maximum amount of bytes <code>readLogEntries</code> reads at once
+     */
+    private static final int MAX_BATCH_READ_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * A logfile borrowed from the FileChannelPool and the blocks read out of it
+     */
+    private static class OpenFile implements Closeable
+    {
+        private final FileChannelPool.Lease lease;
+        private final BlockReader reader;
+
+        private OpenFile(FileChannelPool.Lease lease)
+        {
+            this.lease = lease;
+            this.reader = new BlockReader(lease.getChannel());
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            lease.close();
+        }
+    }
+
+    private final Map<String, OpenFile> openFiles;
+    private final Map<String, LogFileParser> openCompressedFiles;
+
+    /**
+     * The recently read entries of all LogReaders
+     */
+    private final LogEntryCache cache = LogEntryCache.getInstance();
+
+    /**
+     * The position and date of the last entry of a file and the size of the file when they were read
+     */
+    @AllArgsConstructor
+    private static class LastEntry
+    {
+        private final long sizeOfFile;
+        private final long logEntryID;
+        private final long date;
+    }
+
+    /**
+     * The last entries of the uncompressed logfiles by the absolute path of the file, shared by every LogReader<br>
+     * An entry is removed by <code>invalidateLastEntry</code> when the file changes and is ignored if the size of the file differs
+     */
+    private static final Map<Path, LastEntry> lastEntries = new ConcurrentHashMap<>();
 
+    /**
+     * Removes the cached last entry of a file, has to be called if the file has been appended to, rotated or deleted
+     * @param path the path to the logfile
+     */
+    public static void invalidateLastEntry(Path path)
+    {
+        lastEntries.remove(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Creates a reader for the logfiles in a folder<br>
+     * The methods of a LogReader can be called by multiple threads at the same time
+     * @param logFolderPath the path to the logFolder
+     */
     public LogReader(String logFolderPath)
     {
         this.logFolderPath = logFolderPath;
-        startOfLogEntry = Pattern.compile(REGEX_START_OF_LOG_ENTRY).matcher("");
-        openFiles = new HashMap<>();
+        layout = LogLayout.getInstance();
+        openFiles = new ConcurrentHashMap<>();
+        openCompressedFiles = new ConcurrentHashMap<>();
     }
 
     /**
@@ -212,47 +438,247 @@ public class LogReader implements Closeable {
      */
     public void close() throws IOException
     {
-        for( RandomAccessFile randomAccessFile : openFiles.values() )
+        for(OpenFile file : openFiles.values())
         {
-            randomAccessFile.close();
+            file.close();
         }
 
         openFiles.clear();
+
+        for(LogFileParser parser : openCompressedFiles.values())
+        {
+            parser.close();
+        }
+
+        openCompressedFiles.clear();
     }
 
     /**
-     * Convenience method. If the file isnt opened inside a RandomAccessFile Object yet, it gets openend.
-     * @param fileName The name of the file that should get checked.
-     * @throws IOException
+     * Convenience method. If the file isnt borrowed from the FileChannelPool yet, it gets borrowed.
+     * @param fileName The name of the file
+     * @return the blocks of the file
+     * @throws IOException if the file can't be opened
      */
-    private void prepareFile(String fileName) throws IOException {
-        if(!openFiles.containsKey(fileName))
+    private BlockReader prepareFile(String fileName) throws IOException {
+        OpenFile file = openFiles.get(fileName);
+
+        if(file == null)
         {
-            openFiles.put(
-                fileName,
-                new RandomAccessFile(logFolderPath + "/" + fileName,"r")
-            );
+            file = new OpenFile(FileChannelPool.getInstance().acquire(Paths.get(logFolderPath, fileName)));
+            OpenFile fileOfOtherThread = openFiles.putIfAbsent(fileName, file);
+
+            if(fileOfOtherThread != null)
+            {
+                file.close();
+                file = fileOfOtherThread;
+            }
         }
+
+        return file.reader;
     }
 
     /**
-     * Convenience method. Prepares a RandomAccessFile object to be ready to be read from.
-     * @param fileName The name of the file
-     * @param logEntryID The nth log entry inside a file
-     * @return a RandomAccessFile whose FilePointer is right before the logEntry
-     * @throws IOException if the log directory can't be accessed
+     * Returns how often the uncompressed files have been read from the disk since the LogReader has been created
+     */
+    public long getAmountOfReads()
+    {
+        long amountOfReads = 0;
+
+        for(OpenFile file : openFiles.values()) {
+            amountOfReads += file.reader.getAmountOfReads();
+        }
+
+        return amountOfReads;
+    }
+
+    /**
+     * Convenience method. Opens a compressed file if it isn't opened yet.<br>
+     * Compressed files are read out of their checkpoint file, which allows reading an entry without decompressing the whole file
+     * @param fileName The name of the compressed file
+     * @return a parser reading the file, which has to be locked while it is used
+     * @throws IOException if the file can't be opened
+     */
+    private LogFileParser prepareCompressedFile(String fileName) throws IOException {
+        LogFileParser parser = openCompressedFiles.get(fileName);
+
+        if(parser == null)
+        {
+            parser = new LogFileParser(logFolderPath + "/" + fileName);
+            LogFileParser parserOfOtherThread = openCompressedFiles.putIfAbsent(fileName, parser);
+
+            if(parserOfOtherThread != null)
+            {
+                parser.close();
+                parser = parserOfOtherThread;
+            }
+        }
+
+        return parser;
+    }
+
+    /**
+     * Reads a single entry of a compressed file
+     * @param fileName The name of the compressed file
+     * @param logEntryID the position of the entry in the uncompressed file
+     * @return the entry
+     * @throws IOException if there is no entry at the position
+     */
+    private LogEntry readCompressedEntry(String fileName, long logEntryID) throws IOException {
+        LogFileParser parser = prepareCompressedFile(fileName);
+        LogEntry entry;
+
+        synchronized(parser) {
+            entry = parser.readEntry(logEntryID);
+        }
+
+        if(entry == null) {
+            throw new IOException("There is no logEntry at " + logEntryID + " in " + fileName);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Finds the end of the entry which starts at the beginning of the buffer
+     * @param bytes the bytes of the file starting with the entry
+     * @param from the position from which the lines are checked
+     * @param isEndOfFile true if the buffer reaches the end of the file
+     * @return the position of the line which starts the next entry, the end of the buffer if the entry is the last one
+     * or -1 if more bytes are needed to find the end
+     */
+    private int findEndOfEntry(ByteBuffer bytes, int from, boolean isEndOfFile)
+    {
+        int lineBreak = indexOfLineBreak(bytes, from, bytes.limit());
+
+        while(lineBreak != -1)
+        {
+            int startOfLine = lineBreak + 1;
+
+            //the beginning of the next line hasn't been read yet
+            if(startOfLine + layout.getLengthOfEntryPrefix() > bytes.limit() && !isEndOfFile) {
+                return -1;
+            }
+
+            if(layout.isStartOfEntry(bytes, startOfLine, bytes.limit())) {
+                return startOfLine;
+            }
+
+            lineBreak = indexOfLineBreak(bytes, startOfLine, bytes.limit());
+        }
+
+        return isEndOfFile ? bytes.limit() : -1;
+    }
+
+    /**
+     * Doubles the size of a read which didn't contain the end of the entry or line<br>
+     * The new size is at most one byte larger than the rest of the file, which means that the next read reaches
+     * the end of the file and stops the search instead of growing further
+     * @param file the blocks of the file
+     * @param position the position of the read
+     * @param length the size of the previous read
+     * @return the size of the next read
+     * @throws IOException if the file can't be read or the previous read already had the largest possible size
      */
-    private RandomAccessFile prepareRandomAccessFile(
-        String fileName,
-        long logEntryID
-    ) throws IOException {
+    private static int growReadSize(BlockReader file, long position, int length) throws IOException
+    {
+        if(length >= MAX_READ_SIZE) {
+            throw new IOException("No end of the logEntry at " + position + " has been found within " + MAX_READ_SIZE + " bytes");
+        }
+
+        long remainingBytes = Math.max(file.size() - position, 0);
+        return (int)Math.min(Math.min(2L * length, remainingBytes + 1), MAX_READ_SIZE);
+    }
+
+    /**
+     * Reads the bytes of a whole entry
+     * @param file the blocks of the file
+     * @param logEntryID the position of the entry
+     * @return a buffer starting with the entry whose limit is the end of the entry
+     * @throws IOException if the file can't be read
+     */
+    private ByteBuffer readEntryBytes(BlockReader file, long logEntryID) throws IOException {
+        int length = INITIAL_READ_SIZE;
+
+        while(true)
+        {
+            ByteBuffer bytes = file.read(logEntryID, length);
+            boolean isEndOfFile = bytes.limit() < length;
+            int endOfEntry = findEndOfEntry(bytes, 0, isEndOfFile);
+
+            if(endOfEntry != -1)
+            {
+                bytes.limit(endOfEntry);
+                return bytes;
+            }
 
-        prepareFile(fileName);
-        
-        RandomAccessFile file = openFiles.get(fileName);
-        file.seek(logEntryID);
-        
-        return file;
+            length = growReadSize(file, logEntryID, length);
+        }
+    }
+
+    /**
+     * Reads the first line of an entry, which contains every field except the rest of the message
+     * @param file the blocks of the file
+     * @param logEntryID the position of the entry
+     * @return a buffer starting with the entry whose limit is the end of the first line
+     * @throws IOException if the file can't be read
+     */
+    private ByteBuffer readFirstLine(BlockReader file, long logEntryID) throws IOException {
+        int length = INITIAL_READ_SIZE;
+
+        while(true)
+        {
+            ByteBuffer bytes = file.read(logEntryID, length);
+            int lineBreak = indexOfLineBreak(bytes, 0, bytes.limit());
+
+            if(lineBreak != -1 || bytes.limit() < length)
+            {
+                bytes.limit(lineBreak == -1 ? bytes.limit() : lineBreak + 1);
+                return bytes;
+            }
+
+            length = growReadSize(file, logEntryID, length);
+        }
+    }
+
+    /**
+     * Parses an entry, the trailing line break is not part of the message
+     * @param bytes a buffer containing the entry from index 0 to its limit
+     * @param fileName the name of the file, used for the error message
+     * @param logEntryID the position of the entry
+     * @return the view of the current thread, which is reused by the next call
+     * @throws IllegalArgumentException if there is no valid entry at the position
+     */
+    private LogEntryView parseEntry(ByteBuffer bytes, String fileName, long logEntryID)
+    {
+        return parseEntry(bytes, 0, bytes.limit(), fileName, logEntryID);
+    }
+
+    /**
+     * Parses an entry within a larger buffer, the trailing line break is not part of the message
+     * @param bytes a buffer containing the entry
+     * @param start the position of the entry within the buffer
+     * @param end the position after the entry
+     * @param fileName the name of the file, used for the error message
+     * @param logEntryID the position of the entry in the file
+     * @return the view of the current thread, which is reused by the next call
+     * @throws IllegalArgumentException if there is no valid entry at the position
+     */
+    private LogEntryView parseEntry(ByteBuffer bytes, int start, int end, String fileName, long logEntryID)
+    {
+        while(end > start && (bytes.get(end - 1) == '\n' || bytes.get(end - 1) == '\r')) end--;
+
+        LogEntryView view = views.get();
+        if(view == null || view.getLayout() != layout)
+        {
+            view = new LogEntryView(layout);
+            views.set(view);
+        }
+
+        if(!view.parse(bytes, start, end, logEntryID)) {
+            throw new IllegalArgumentException("There is no valid logEntry at " + logEntryID + " in " + fileName);
+        }
+
+        return view;
     }
 
     /**
@@ -263,23 +689,34 @@ public class LogReader implements Closeable {
      * @throws IOException if the log directory can't be accessed
      */
     public LogEntry getLogEntry(String fileName, long logEntryID) throws IOException {
-        RandomAccessFile file = prepareRandomAccessFile(fileName, logEntryID);
+        short fileID = cache.getFileID(fileName);
+        LogEntry logEntry = fileID == -1 ? null : cache.get(fileID, logEntryID);
 
-        String line = "";
-        String tempLine = "";
+        if(logEntry != null) {
+            return logEntry;
+        }
 
-        line = file.readLine();
+        //compressed files are only read once they are complete
+        boolean isComplete = true;
 
-        //while there is no date at the beginning of the line
-        while(
-            (tempLine = file.readLine()) != null &&
-            !startOfLogEntry.reset(tempLine).matches()
-        )
-        {
-            line += tempLine;
+        if(isCompressed(fileName)) {
+            logEntry = readCompressedEntry(fileName, logEntryID);
+        }
+        else {
+            BlockReader file = prepareFile(fileName);
+            long sizeOfFile = file.size();
+            ByteBuffer entry = readEntryBytes(file, logEntryID);
+            logEntry = parseEntry(entry, fileName, logEntryID).toLogEntry();
+
+            //an entry ending at the end of the file may still be written, e.g. a stack trace which is logged line by line
+            isComplete = logEntryID + entry.limit() < sizeOfFile;
         }
 
-        return new LogEntry(line, logEntryID);
+        if(fileID != -1 && isComplete) {
+            cache.put(fileID, logEntry);
+        }
+
+        return logEntry;
     }
 
     /**
@@ -290,81 +727,179 @@ public class LogReader implements Closeable {
      * @throws IOException if the log directory can't be accessed
      */
     public LogEntry readLogEntryWithoutMessage(String fileName, long logEntryID) throws IOException {
-        RandomAccessFile file = prepareRandomAccessFile(fileName, logEntryID);
-        StringBuilder stringBuilder = new StringBuilder("");
+        if(isCompressed(fileName)) {
+            LogEntry logEntry = readCompressedEntry(fileName, logEntryID);
+            logEntry.setMessage(null);
+            return logEntry;
+        }
 
-        LogEntry logEntry = new LogEntry();
-        logEntry.setEntryID(logEntryID);
+        return toLogEntryWithoutMessage(readHeaderOfEntry(fileName, logEntryID));
+    }
 
-        //Read the date
-        byte[] bytes = new byte[24];
-        file.read(bytes);
-        logEntry.setDateFromString(new String(bytes));
+    private static LogEntry toLogEntryWithoutMessage(LogEntryView entry)
+    {
+        return new LogEntry(
+            entry.getTime(),
+            entry.getLogLevel(),
+            entry.getModule().toString(),
+            entry.getClassName().toString(),
+            null,
+            entry.getEntryID()
+        );
+    }
 
-        //Read the log level
-        file.readFully(bytes, 0, 7);
-        logEntry.setLogLevel(LogLevel.valueOf(new String(bytes, 0, 7).trim()));
+    /**
+     * Reads multiple entries of a file at once, see <code>readLogEntries</code>
+     * @param fileName The name of the file
+     * @param logEntryIDs the positions of the entries in any order
+     * @return the entries in the same order as their IDs
+     * @throws IOException if the log directory can't be accessed
+     */
+    public List<LogEntry> getLogEntries(String fileName, List<Long> logEntryIDs) throws IOException {
+        return readLogEntries(fileName, logEntryIDs, true);
+    }
 
-        //--- Read the module ---//
-        //skip the first square bracket
-        file.skipBytes(1);
+    /**
+     * Reads multiple entries of a file without their messages at once, see <code>readLogEntries</code>
+     * @param fileName The name of the file
+     * @param logEntryIDs the positions of the entries in any order
+     * @return the entries in the same order as their IDs, their messages are null
+     * @throws IOException if the log directory can't be accessed
+     */
+    public List<LogEntry> readLogEntriesWithoutMessage(String fileName, List<Long> logEntryIDs) throws IOException {
+        return readLogEntries(fileName, logEntryIDs, false);
+    }
 
-        //read the contents of the square bracket (the module)
-        boolean stillReading = true;
-        int character;
-        while(stillReading)
-        {
-            character = file.read();
+    /**
+     * Reads multiple entries of a file at once<br>
+     * The entries are read in the order of their position and entries which lie close to each other
+     * are read with a single sequential read, which means that the file is read almost like it is read from start to end,
+     * no matter in which order the IDs are requested. Entries with their message are looked up in the LogEntryCache first.
+     * @param fileName The name of the file
+     * @param logEntryIDs the positions of the entries in any order
+     * @param withMessage false if only the first line of each entry is needed
+     * @return the entries in the same order as their IDs
+     * @throws IOException if the log directory can't be accessed
+     */
+    private List<LogEntry> readLogEntries(String fileName, List<Long> logEntryIDs, boolean withMessage) throws IOException {
+        short fileID = withMessage ? cache.getFileID(fileName) : -1;
+        LogEntry[] entries = new LogEntry[logEntryIDs.size()];
+        List<Integer> missingEntries = new ArrayList<>(entries.length);
 
-            switch(character)
-            {
-                case ']':
-                case -1:
-                    stillReading = false;
-                    break;
+        for(int i = 0; i < entries.length; i++)
+        {
+            entries[i] = fileID == -1 ? null : cache.get(fileID, logEntryIDs.get(i));
 
-                default:
-                    stringBuilder.append((char)character);
+            if(entries[i] == null) {
+                missingEntries.add(i);
             }
         }
 
-        logEntry.setModule(stringBuilder.toString());
+        long[] ids = new long[missingEntries.size()];
+        Integer[] order = new Integer[ids.length];
 
-        //--- Read the class ---//
-        //skip the whitespace after the bracket
-        file.skipBytes(1);
-        //clear the old string buffer (is faster than newStringBuilder)
-        stringBuilder.setLength(0);
+        for(int i = 0; i < ids.length; i++)
+        {
+            ids[i] = logEntryIDs.get(missingEntries.get(i));
+            order[i] = i;
+        }
 
-        int previousCharacter = ' ';
-        stillReading = true;
-        while(stillReading)
+        //the indices of the missing entries sorted by their position in the file
+        Arrays.sort(order, Comparator.comparingLong(index -> ids[index]));
+        LogEntry[] readEntries = new LogEntry[ids.length];
+        //entries which have been cached by getLogEntry already or which may still be written aren't cached
+        boolean[] isCacheable = new boolean[ids.length];
+
+        if(isCompressed(fileName))
         {
-            character = file.read();
+            for(int index : order) {
+                readEntries[index] = withMessage ? getLogEntry(fileName, ids[index]) : readLogEntryWithoutMessage(fileName, ids[index]);
+            }
+
+            return mergeReadEntries(entries, missingEntries, readEntries, isCacheable, fileID);
+        }
+
+        BlockReader file = prepareFile(fileName);
 
-            switch (character)
+        for(int first = 0, last; first < order.length; first = last + 1)
+        {
+            //merge the following entries into one read as long as they lie close to each other
+            long startOfRead = ids[order[first]];
+            last = first;
+
+            while(
+                last + 1 < order.length &&
+                ids[order[last + 1]] - ids[order[last]] <= MAX_GAP_BETWEEN_ENTRIES &&
+                ids[order[last + 1]] - startOfRead <= MAX_BATCH_READ_SIZE
+            ) {
+                last++;
+            }
+
+            int length = (int)(ids[order[last]] - startOfRead) + INITIAL_READ_SIZE;
+            ByteBuffer bytes = file.readSequentially(startOfRead, length);
+            boolean isEndOfFile = bytes.limit() < length;
+
+            for(int i = first; i <= last; i++)
             {
-                case -1:
-                    stillReading = false;
-                    break;
+                int index = order[i];
+                int startOfEntry = (int)(ids[index] - startOfRead);
+                int endOfEntry = startOfEntry >= bytes.limit() ? -1 : withMessage ?
+                    findEndOfEntry(bytes, startOfEntry, isEndOfFile) :
+                    findEndOfLine(bytes, startOfEntry, isEndOfFile);
+
+                if(endOfEntry == -1)
+                {
+                    //the entry reaches beyond the read bytes
+                    readEntries[index] = withMessage ? getLogEntry(fileName, ids[index]) : readLogEntryWithoutMessage(fileName, ids[index]);
+                    continue;
+                }
 
-                case '?':
-                    if(previousCharacter == ':')
-                    {
-                        stillReading = false;
-                        break;
-                    }
-                default :
-                    previousCharacter = character;
-                    stringBuilder.append((char)character);
-                    break;
+                LogEntryView view = parseEntry(bytes, startOfEntry, endOfEntry, fileName, ids[index]);
+                readEntries[index] = withMessage ? view.toLogEntry() : toLogEntryWithoutMessage(view);
+                isCacheable[index] = !isEndOfFile || endOfEntry < bytes.limit();
+            }
+        }
+
+        return mergeReadEntries(entries, missingEntries, readEntries, isCacheable, fileID);
+    }
+
+    /**
+     * Puts the read entries between the cached ones and adds them to the cache
+     * @param entries the requested entries, the ones which haven't been cached are null
+     * @param missingEntries the indices of the entries which have been read
+     * @param readEntries the read entries in the same order as their indices
+     * @param isCacheable which of the read entries are added to the cache
+     * @param fileID the ID used to cache the entries, -1 if they shouldn't be cached
+     * @return all requested entries
+     */
+    private List<LogEntry> mergeReadEntries(LogEntry[] entries, List<Integer> missingEntries, LogEntry[] readEntries, boolean[] isCacheable, short fileID)
+    {
+        for(int i = 0; i < readEntries.length; i++)
+        {
+            entries[missingEntries.get(i)] = readEntries[i];
+
+            if(fileID != -1 && isCacheable[i]) {
+                cache.put(fileID, readEntries[i]);
             }
         }
 
-        //set the class name as the stringBuilder content without the last character (the last character is always :)
-        logEntry.setClassName(stringBuilder.substring(0, stringBuilder.length()-1));
+        return new ArrayList<>(Arrays.asList(entries));
+    }
 
-        return logEntry;
+    /**
+     * Finds the end of the line which starts at the given position
+     * @return the position after the line break, the end of the buffer if the line is the last one
+     * or -1 if more bytes are needed to find the end
+     */
+    private static int findEndOfLine(ByteBuffer bytes, int from, boolean isEndOfFile)
+    {
+        int lineBreak = indexOfLineBreak(bytes, from, bytes.limit());
+
+        if(lineBreak == -1) {
+            return isEndOfFile ? bytes.limit() : -1;
+        }
+
+        return lineBreak + 1;
     }
 
     /**
@@ -377,54 +912,108 @@ public class LogReader implements Closeable {
      */
     public List<LogEntry> getNearbyEntries(String fileName, long logEntryID, long byteRange) throws IOException
     {
+        if(isCompressed(fileName))
+        {
+            LogFileParser parser = prepareCompressedFile(fileName);
+
+            synchronized(parser) {
+                return parser.readEntries(Math.max(0, logEntryID - byteRange), logEntryID + byteRange);
+            }
+        }
+
+        BlockReader file = prepareFile(fileName);
         List<LogEntry> entries = new ArrayList<>();
-        RandomAccessFile file = prepareRandomAccessFile(fileName, logEntryID);
+        short fileID = cache.getFileID(fileName);
 
-        long startPosition = logEntryID - byteRange;
-        long maxPosition = logEntryID + byteRange;
+        //start one byte earlier, so that an entry starting exactly at the beginning of the range is found as well
+        long startPosition = Math.max(0, logEntryID - byteRange - 1);
+        long maxPosition = Math.min(logEntryID + byteRange, file.size());
 
-        if(startPosition < 0) {
-            startPosition = 0;
-        }
+        //read the whole range at once, the last entry may reach beyond it
+        int length = (int)Math.min(MAX_READ_SIZE, Math.max(maxPosition - startPosition, 0) + INITIAL_READ_SIZE);
 
-        if(maxPosition > file.length()){
-            maxPosition = file.length();
-        }
+        while(true)
+        {
+            ByteBuffer bytes = file.read(startPosition, length);
+            boolean isEndOfFile = bytes.limit() < length;
 
-        file.seek(startPosition);
+            //the first entry starts at the first line which looks like the beginning of an entry
+            int startOfEntry = startPosition == 0 && layout.isStartOfEntry(bytes, 0, bytes.limit()) ? 0 : findEndOfEntry(bytes, 0, isEndOfFile);
+            entries.clear();
 
-        String currentLine = "";
-        long nextEntryID = startPosition;
-        while(!startOfLogEntry.reset(currentLine).matches()){
-            nextEntryID = file.getFilePointer();
-            currentLine = file.readLine();
+            while(startOfEntry != -1 && startOfEntry < bytes.limit())
+            {
+                int endOfEntry = findEndOfEntry(bytes, startOfEntry, isEndOfFile);
+                if(endOfEntry == -1) {
+                    break;
+                }
+
+                long entryID = startPosition + startOfEntry;
+                LogEntry entry = parseEntry(bytes, startOfEntry, endOfEntry, fileName, entryID).toLogEntry();
+                entries.add(entry);
+
+                //the neighbours are likely to be opened next, the last entry of the file may still be written
+                if(fileID != -1 && (!isEndOfFile || endOfEntry < bytes.limit())) {
+                    cache.put(fileID, entry);
+                }
+
+                if(startPosition + endOfEntry >= maxPosition) {
+                    return entries;
+                }
+
+                startOfEntry = endOfEntry;
+            }
+
+            if(startOfEntry != -1 && (isEndOfFile || startOfEntry >= bytes.limit())) {
+                return entries;
+            }
+
+            length = growReadSize(file, startPosition, length);
         }
+    }
+
+    /**
+     * Reads an entry and a given amount of entries before and after it<br>
+     * The positions of the entries are looked up in the <code>EntryOffsetIndex</code> of the file,
+     * which means that the entries are read with a single read no matter how long they are.
+     * Entries which haven't been indexed yet are searched within a range of bytes around the entry instead.
+     * @param fileName the name of the file
+     * @param logEntryID the position of the original logEntry
+     * @param entriesBefore the maximum amount of entries before the original one
+     * @param entriesAfter the maximum amount of entries after the original one
+     * @return a list of logEntries in the order of their position
+     * @throws IOException if the file can't be read
+     */
+    public List<LogEntry> getNearbyEntries(String fileName, long logEntryID, int entriesBefore, int entriesAfter) throws IOException
+    {
+        long[] positions = EntryOffsetIndex.findSurroundingEntries(getEntryOffsetFile(fileName), logEntryID, entriesBefore, entriesAfter);
 
-        String entry;
-        long entryID;
-        do
+        if(positions != null)
         {
-            entry = currentLine;
-            entryID = nextEntryID;
-            nextEntryID = file.getFilePointer();
-            while(
-                    (currentLine = file.readLine()) != null &&
-                            !startOfLogEntry.reset(currentLine).matches()
-            )
-            {
-                nextEntryID = file.getFilePointer();
-                entry += currentLine + "\n";
+            List<Long> logEntryIDs = new ArrayList<>(positions.length);
+
+            for(long position : positions) {
+                logEntryIDs.add(position);
             }
-            entries.add(new LogEntry(entry, entryID));
-        }while(file.getFilePointer() < maxPosition);
 
-        if(currentLine != null && !currentLine.isEmpty() && nextEntryID < maxPosition){
-            entries.add(new LogEntry(currentLine, nextEntryID));
+            return getLogEntries(fileName, logEntryIDs);
         }
 
-        return entries;
-    }
+        //guess the range of bytes using the length of the original entry
+        ByteBuffer entry = isCompressed(fileName) ? null : readEntryBytes(prepareFile(fileName), logEntryID);
+        long lengthOfEntry = entry == null ? INITIAL_READ_SIZE : Math.max(entry.limit(), 1);
+        List<LogEntry> entries = getNearbyEntries(fileName, logEntryID, lengthOfEntry * Math.max(entriesBefore, entriesAfter));
 
+        int indexOfEntry = 0;
+        while(indexOfEntry < entries.size() && entries.get(indexOfEntry).getEntryID() < logEntryID) {
+            indexOfEntry++;
+        }
+
+        return new ArrayList<>(entries.subList(
+            Math.max(0, indexOfEntry - entriesBefore),
+            Math.min(entries.size(), indexOfEntry + entriesAfter + 1)
+        ));
+    }
 
     /**
      * Reads the date of the specified entry and returns it in milliseconds.
@@ -434,17 +1023,11 @@ public class LogReader implements Closeable {
      * @throws IOException if the log directory can't be accessed
      */
     public long readDateOfEntry(String fileName, long logEntryID) throws IOException {
-        RandomAccessFile file = prepareRandomAccessFile(fileName, logEntryID);
-        
-        byte[] bytes = new byte[24];
-        file.read(bytes);
-
-        return DateConverter.toLong(
-            LocalDateTime.parse(
-                new String(bytes),
-                LogEntry.DTF
-            )
-        );
+        if(isCompressed(fileName)) {
+            return readCompressedEntry(fileName, logEntryID).getTime();
+        }
+
+        return readHeaderOfEntry(fileName, logEntryID).getTime();
     }
 
     /**
@@ -455,40 +1038,88 @@ public class LogReader implements Closeable {
      * @throws IOException if the log directory can't be accessed
      */
     public LogLevel readLogLevelOfEntry(String fileName, long logEntryID) throws IOException {
+        if(isCompressed(fileName)) {
+            return readCompressedEntry(fileName, logEntryID).getLogLevel();
+        }
 
-        RandomAccessFile file = prepareRandomAccessFile(fileName, logEntryID);
-        byte[] bytes = new byte[7];
-        
-        file.seek(logEntryID + 24);
-        file.read(bytes);
+        return readHeaderOfEntry(fileName, logEntryID).getLogLevel();
+    }
 
-        return LogLevel.valueOf(new String(bytes).trim());
+    /**
+     * Reads the first line of an entry and parses it using the layout of the logfiles<br>
+     * The returned view is reused by the next call of the same thread, its message only contains the first line
+     * @param fileName The name of the file
+     * @param logEntryID The nth log entry inside a file
+     * @return a view of the first line of the entry
+     * @throws IOException if the log directory can't be accessed
+     * @throws IllegalArgumentException if there is no valid entry at the position
+     */
+    private LogEntryView readHeaderOfEntry(String fileName, long logEntryID) throws IOException {
+        return parseEntry(readFirstLine(prepareFile(fileName), logEntryID), fileName, logEntryID);
+    }
+
+    private static int indexOfLineBreak(ByteBuffer bytes, int from, int to)
+    {
+        for(int i = from; i < to; i++)
+        {
+            if(bytes.get(i) == '\n') {
+                return i;
+            }
+        }
+
+        return -1;
     }
 
     /**
-     * Finds the position (ID) of the last entry in a logfile
+     * Returns the position and date of the last entry in an uncompressed logfile<br>
+     * The result is cached until the file changes, so the end of the file only has to be scanned once
      * @param fileName the name of the file
-     * @return the ID of the last logEntry, or 0 if the file contains no entries
+     * @return the last entry, or null if the file contains no valid entries
+     * @throws IOException if the file can't be read
      */
-    private long getIDOfLastLogEntry(String fileName) throws IOException
+    private LastEntry getLastEntry(String fileName) throws IOException
     {
-        RandomAccessFile file = prepareRandomAccessFile(fileName, 0);
+        Path path = Paths.get(logFolderPath, fileName).toAbsolutePath().normalize();
+        BlockReader file = prepareFile(fileName);
+        long sizeOfFile = file.size();
+        LastEntry lastEntry = lastEntries.get(path);
 
-        for(long position = file.length() - 1; position >= 0; --position)
-        {
-            file.seek(position);
-            byte character = file.readByte();
+        if(lastEntry != null && lastEntry.sizeOfFile == sizeOfFile) {
+            return lastEntry;
+        }
 
-            if(character == '\n'){
+        long logEntryID = getIDOfLastLogEntry(file);
 
-                byte[] bytes = new byte[24];
-                file.read(bytes);
+        try {
+            lastEntry = new LastEntry(sizeOfFile, logEntryID, readHeaderOfEntry(fileName, logEntryID).getTime());
+        }
+        catch(IllegalArgumentException invalidEntry) {
+            return null;
+        }
 
-                String startOfEntry = new String(bytes);
+        lastEntries.put(path, lastEntry);
+        return lastEntry;
+    }
 
-                //check if the line starts with a date
-                if(startOfLogEntry.reset(startOfEntry).matches()){
-                    return ++position;
+    /**
+     * Finds the position (ID) of the last entry in a logfile by reading it backwards in blocks of <code>BLOCK_SIZE</code> bytes
+     * @param file the blocks of the file
+     * @return the ID of the last logEntry, or 0 if the file contains no entries
+     */
+    private long getIDOfLastLogEntry(BlockReader file) throws IOException
+    {
+        int lengthOfPrefix = layout.getLengthOfEntryPrefix();
+
+        //read the file backwards block by block, each block contains the beginning of the lines of the previous one
+        for(long endOfBlock = file.size(); endOfBlock > 0; endOfBlock -= BlockReader.BLOCK_SIZE)
+        {
+            long startOfBlock = Math.max(0, endOfBlock - BlockReader.BLOCK_SIZE);
+            ByteBuffer bytes = file.read(startOfBlock, (int)(endOfBlock - startOfBlock) + lengthOfPrefix);
+
+            for(int position = (int)(endOfBlock - startOfBlock) - 1; position >= 0; --position)
+            {
+                if(bytes.get(position) == '\n' && layout.isStartOfEntry(bytes, position + 1, bytes.limit())) {
+                    return startOfBlock + position + 1;
                 }
             }
         }
@@ -504,11 +1135,17 @@ public class LogReader implements Closeable {
     public TimeRange getTimeRangeOfFile(String fileName) throws IOException
     {
         TimeRange result = new TimeRange();
-        result.endDate = Files.getLastModifiedTime(Paths.get(logFolderPath, fileName)).toMillis();
+        LastEntry lastEntry = isCompressed(fileName) ? null : getLastEntry(fileName);
+
+        //compressed files and files without valid entries fall back to the time of their last modification
+        result.endDate = lastEntry != null ?
+            lastEntry.date :
+            Files.getLastModifiedTime(Paths.get(logFolderPath, fileName)).toMillis();
+
         try {
             result.beginDate = readDateOfEntry(fileName, 0);
         }
-        catch(NumberFormatException | DateTimeParseException | IndexOutOfBoundsException ex) {
+        catch(IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException ex) {
             //LogEntry can not be read
             //File has invalid format
             result.beginDate = result.endDate;
@@ -0,0 +1,49 @@
+package com.efficientlogfileanalysis.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Reads an uncompressed logfile by mapping it into memory
+ */
+class MappedLogFileSource implements LogFileSource {
+
+    private final FileChannel fileChannel;
+
+    MappedLogFileSource(Path path) throws IOException
+    {
+        fileChannel = FileChannel.open(path);
+    }
+
+    @Override
+    public ByteBuffer read(long position, int length) throws IOException
+    {
+        long available = Math.min(length, fileChannel.size() - position);
+
+        if(available <= 0) {
+            return ByteBuffer.allocate(0);
+        }
+
+        return fileChannel.map(FileChannel.MapMode.READ_ONLY, position, available);
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+        return fileChannel.size();
+    }
+
+    @Override
+    public boolean supportsParallelReads()
+    {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        fileChannel.close();
+    }
+}
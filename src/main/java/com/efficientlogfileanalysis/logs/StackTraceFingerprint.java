@@ -0,0 +1,251 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.util.ByteSequence;
+
+import java.util.Arrays;
+
+/**
+ * Computes a signature of the exception in a message, which is the same for every occurrence of the same failure.<br>
+ * The signature is a 64 bit FNV-1a hash of the names of the exception and its causes and of the normalised stack frames.
+ * A frame is normalised to the class and method it points to:
+ * <ul>
+ *     <li>the file name and line number, everything from the (, is removed</li>
+ *     <li>generated classes are reduced to the class they are generated for, everything from $$ until the method is removed
+ *     (e.g. Bar$$Lambda$12/0x0000000800c0b000.run becomes Bar.run)</li>
+ *     <li>the numbers of proxies and generated accessors are removed (e.g. $Proxy12 becomes $Proxy)</li>
+ *     <li>the name of the module or class loader in front of the class is removed (e.g. java.base/)</li>
+ * </ul>
+ * All other lines, e.g. the message of the exception and "... 12 more", are ignored because they differ between occurrences.
+ * The fingerprint is reused for every message.
+ */
+public class StackTraceFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final byte[] AT = "at ".getBytes();
+    private static final byte[] PROXY = "$Proxy".getBytes();
+    private static final byte[] GENERATED = "Generated".getBytes();
+
+    private long hash;
+
+    /**
+     * The normalised frames of the last message, separated by \n
+     */
+    private byte[] frames = new byte[1024];
+    private int lengthOfFrames;
+    private int amountOfFrames;
+
+    /**
+     * The names of the exceptions of the last message, separated by " <- "
+     */
+    private final StringBuilder exceptionNames = new StringBuilder();
+    private ExceptionExtractor exceptions;
+
+    /**
+     * Computes the signature of a message
+     * @param message the message containing the exception
+     * @param exceptions the exceptions found in the message
+     * @return the hash of the signature
+     */
+    public long compute(ByteSequence message, ExceptionExtractor exceptions)
+    {
+        this.exceptions = exceptions;
+        hash = FNV_OFFSET_BASIS;
+        lengthOfFrames = 0;
+        amountOfFrames = 0;
+
+        for(int i = 0; i < exceptions.getAmountOfExceptions(); i++)
+        {
+            ByteSequence name = exceptions.getName(i);
+
+            for(int j = 0; j < name.length(); j++) {
+                hash(name.byteAt(j));
+            }
+            hash((byte)'\n');
+        }
+
+        int length = message.length();
+        int position = 0;
+
+        while(position < length)
+        {
+            int endOfLine = position;
+            while(endOfLine < length && message.byteAt(endOfLine) != '\n') {
+                endOfLine++;
+            }
+
+            int start = position;
+            while(start < endOfLine && (message.byteAt(start) == ' ' || message.byteAt(start) == '\t')) {
+                start++;
+            }
+
+            if(startsWith(message, start, endOfLine, AT)) {
+                addFrame(message, start + AT.length, endOfLine);
+            }
+
+            position = endOfLine + 1;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Normalises a frame, adds it to the frames and the hash
+     * @param start the position after "at "
+     * @param end the end of the line
+     */
+    private void addFrame(ByteSequence message, int start, int end)
+    {
+        if(frames.length < lengthOfFrames + (end - start) + 1) {
+            frames = Arrays.copyOf(frames, Math.max(frames.length * 2, lengthOfFrames + (end - start) + 1));
+        }
+
+        int startOfFrame = lengthOfFrames;
+        int startOfSegment = lengthOfFrames;
+        int position = start;
+
+        while(position < end)
+        {
+            byte character = message.byteAt(position);
+
+            if(character == '(' || character == ' ') {
+                break;
+            }
+
+            if(character == '$' && position + 1 < end && message.byteAt(position + 1) == '$')
+            {
+                //skip the generated part of the class name
+                while(position < end && message.byteAt(position) != '.' && message.byteAt(position) != '(') {
+                    position++;
+                }
+                continue;
+            }
+
+            if(character == '/')
+            {
+                //remove the module in front of the class
+                lengthOfFrames = startOfFrame;
+                startOfSegment = startOfFrame;
+            }
+            else if(character == '.')
+            {
+                removeGeneratedNumber(startOfSegment);
+                frames[lengthOfFrames++] = character;
+                startOfSegment = lengthOfFrames;
+            }
+            else {
+                frames[lengthOfFrames++] = character;
+            }
+
+            position++;
+        }
+
+        removeGeneratedNumber(startOfSegment);
+
+        for(int i = startOfFrame; i < lengthOfFrames; i++) {
+            hash(frames[i]);
+        }
+
+        frames[lengthOfFrames++] = '\n';
+        hash((byte)'\n');
+        amountOfFrames++;
+    }
+
+    /**
+     * Removes the digits at the end of the last part of the frame if it is a proxy or a generated class
+     */
+    private void removeGeneratedNumber(int startOfSegment)
+    {
+        if(startsWith(frames, startOfSegment, lengthOfFrames, PROXY) || startsWith(frames, startOfSegment, lengthOfFrames, GENERATED))
+        {
+            while(lengthOfFrames > startOfSegment && frames[lengthOfFrames - 1] >= '0' && frames[lengthOfFrames - 1] <= '9') {
+                lengthOfFrames--;
+            }
+        }
+    }
+
+    private void hash(byte value)
+    {
+        hash ^= value & 0xFF;
+        hash *= FNV_PRIME;
+    }
+
+    private static boolean startsWith(ByteSequence sequence, int start, int end, byte[] prefix)
+    {
+        if(end - start < prefix.length) {
+            return false;
+        }
+
+        for(int i = 0; i < prefix.length; i++)
+        {
+            if(sequence.byteAt(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean startsWith(byte[] bytes, int start, int end, byte[] prefix)
+    {
+        if(end - start < prefix.length) {
+            return false;
+        }
+
+        for(int i = 0; i < prefix.length; i++)
+        {
+            if(bytes[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the amount of stack frames of the last message
+     */
+    public int getAmountOfFrames()
+    {
+        return amountOfFrames;
+    }
+
+    /**
+     * Returns the normalised stack frames of the last message, one per line
+     */
+    public String getFrames()
+    {
+        return new String(frames, 0, lengthOfFrames);
+    }
+
+    /**
+     * Creates a readable and unique name of the signature of the last message, which contains the exception, its causes,
+     * the first frame and the hash
+     * (e.g. IllegalStateException <- IOException at com.foo.Bar.method #1f2e3d4c5b6a7988)
+     */
+    public String describe()
+    {
+        exceptionNames.setLength(0);
+
+        for(int i = 0; i < exceptions.getAmountOfExceptions(); i++)
+        {
+            if(i > 0) {
+                exceptionNames.append(" <- ");
+            }
+            exceptionNames.append(exceptions.getName(i));
+        }
+
+        if(amountOfFrames > 0)
+        {
+            int endOfFirstFrame = 0;
+            while(frames[endOfFirstFrame] != '\n') {
+                endOfFirstFrame++;
+            }
+
+            exceptionNames.append(" at ").append(new String(frames, 0, endOfFirstFrame));
+        }
+
+        return exceptionNames.append(String.format(" #%016x", hash)).toString();
+    }
+}
@@ -1,11 +1,14 @@
 package com.efficientlogfileanalysis.logs.data;
 
+import com.efficientlogfileanalysis.logs.ExceptionExtractor;
+import com.efficientlogfileanalysis.logs.LogDateDecoder;
 import com.efficientlogfileanalysis.logs.LogReader;
 import com.efficientlogfileanalysis.util.DateConverter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -20,9 +23,6 @@ import java.util.regex.*;
 @NoArgsConstructor
 public class LogEntry
 {
-    //Regex which find an exception name
-    private static final Pattern REGEX_GET_EXCEPTION_NAME = Pattern.compile("(\\w+Exception\\w*)");
-
     //Regex which returns the exception name including all preceding packages
     private static final Pattern REGEX_GET_EXCEPTION_FULL = Pattern.compile("((?:[a-zA-Z_]\\w*\\.)*\\w+Exception\\w*)");
 
@@ -60,17 +60,25 @@ public class LogEntry
         this.entryID = entryID;
     }
 
+    /**
+     * Parses an entry using the layout configured in the Settings
+     * @param logEntry the text of the entry
+     * @throws IllegalArgumentException if the text doesn't match the layout
+     */
     public LogEntry(String logEntry)
     {
-        setDateFromString(logEntry.substring(0, 24));
-        this.logLevel = LogLevel.valueOf(logEntry.substring(24, 31).trim());
+        byte[] bytes = logEntry.getBytes();
 
-        int indexOfClosedParenthesis = logEntry.indexOf("]", 32);
-        this.module = logEntry.substring(32, indexOfClosedParenthesis);
+        LogEntryView view = new LogEntryView();
+        if(!view.parse(ByteBuffer.wrap(bytes), 0, bytes.length, 0)) {
+            throw new IllegalArgumentException("The logEntry doesn't match the layout: " + logEntry);
+        }
 
-        int indexOfColon = logEntry.indexOf(":", indexOfClosedParenthesis + 2);
-        this.className = logEntry.substring(indexOfClosedParenthesis + 2, indexOfColon);
-        this.message = logEntry.substring(logEntry.indexOf(" - ", indexOfColon) + 3);
+        this.time = view.getTime();
+        this.logLevel = view.getLogLevel();
+        this.module = view.getModule().toString();
+        this.className = view.getClassName().toString();
+        this.message = view.getMessage().toString();
     }
 
     public LogEntry(String logEntry, long entryID)
@@ -81,26 +89,35 @@ public class LogEntry
 
     /**
      * Searches the message for a Java Exception
-     * @return the full exception name (including the package)<br>
-     *         null - if the message doesnt contain an exception
+     * @return the simple name of the first exception in the message<br>
+     *         an empty Optional - if the message doesnt contain an exception
      */
     public Optional<String> findException()
     {
-        if(message.contains("Exception"))
-        {
-            Matcher matcher = REGEX_GET_EXCEPTION_NAME.matcher(message);
-            if(matcher.find())
-            {
-                return Optional.ofNullable(matcher.group(1));
-            }
+        List<String> exceptions = findExceptions();
+        return exceptions.isEmpty() ? Optional.empty() : Optional.of(exceptions.get(0));
+    }
+
+    /**
+     * Searches the message for every exception, including the causes of the logged exception
+     * @return the simple names of the exceptions in the order of their first occurrence
+     */
+    public List<String> findExceptions()
+    {
+        List<String> exceptions = new ArrayList<>();
+        ExceptionExtractor extractor = new ExceptionExtractor();
+        byte[] bytes = message.getBytes();
+
+        for(int i = 0, amount = extractor.extract(ByteBuffer.wrap(bytes), 0, bytes.length); i < amount; i++) {
+            exceptions.add(extractor.getName(i).toString());
         }
 
-        return Optional.empty();
+        return exceptions;
     }
 
     public void setDateFromString(String time)
     {
-        this.time = DateConverter.toLong(LocalDateTime.parse(time, DTF));
+        this.time = LogDateDecoder.decodeDate(time);
     }
 
     public void setDateAsLocalDateTime(LocalDateTime ldt) {
@@ -0,0 +1,413 @@
+package com.efficientlogfileanalysis.logs.data;
+
+import com.efficientlogfileanalysis.logs.ExceptionExtractor;
+import com.efficientlogfileanalysis.logs.LogFileParser;
+import com.efficientlogfileanalysis.logs.LogLayout;
+import com.efficientlogfileanalysis.util.ByteSequence;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A reusable, mutable view of a single log entry.<br>
+ * Instead of copying the parts of the entry into Strings, the view only stores where they are located
+ * in the buffer the entry was read from. The module, class name and message can be accessed as CharSequences
+ * pointing into that buffer.<br>
+ * A view is only valid until it is used to parse the next entry.
+ */
+public class LogEntryView
+{
+    /**
+     * The buffer the entry was read from
+     */
+    private ByteBuffer source;
+
+    /**
+     * A duplicate of the source buffer, whose position and limit can be changed without affecting the source
+     */
+    private ByteBuffer buffer;
+
+    private int start;
+    private int end;
+
+    /**
+     * The nth byte at which position the log entry starts in the file
+     */
+    @Getter
+    private long entryID;
+
+    /**
+     * The time the message was logged in miliseconds
+     */
+    @Getter
+    private long time;
+
+    @Getter
+    private LogLevel logLevel;
+
+    private final ByteSequence module = new ByteSequence();
+    private final ByteSequence className = new ByteSequence();
+    private final ByteSequence message = new ByteSequence();
+
+    /**
+     * The layout the view parses the entries with
+     */
+    @Getter
+    private final LogLayout layout;
+    private final LogLayout.Extractor extractor;
+    private final Charset charset = Charset.defaultCharset();
+
+    /**
+     * Created when they are needed for the first time
+     */
+    private MessageReader messageReader;
+    private ExceptionExtractor exceptionExtractor;
+
+    /**
+     * Creates a view which reads entries of the layout configured in the Settings
+     */
+    public LogEntryView()
+    {
+        this(LogLayout.getInstance());
+    }
+
+    /**
+     * Creates a view which reads entries of the given layout
+     * @param layout the layout of the entries
+     */
+    public LogEntryView(LogLayout layout)
+    {
+        this.layout = layout;
+        this.extractor = layout.newExtractor();
+    }
+
+    /**
+     * Points the view to a new entry and parses it using the layout of the view
+     * @param source the buffer containing the entry
+     * @param start the position of the first byte of the entry
+     * @param end the position after the last byte of the entry
+     * @param entryID the position of the entry in the file
+     * @return false if the entry couldn't be parsed
+     */
+    public boolean parse(ByteBuffer source, int start, int end, long entryID)
+    {
+        if(this.source != source)
+        {
+            this.source = source;
+            this.buffer = source.duplicate();
+        }
+
+        this.start = start;
+        this.end = end;
+        this.entryID = entryID;
+
+        if(!extractor.extract(buffer, start, end)) {
+            return false;
+        }
+
+        time = extractor.getTime();
+        logLevel = extractor.getLogLevel();
+        module.set(buffer, extractor.getModuleStart(), extractor.getModuleEnd());
+        className.set(buffer, extractor.getClassNameStart(), extractor.getClassNameEnd());
+        message.set(buffer, extractor.getMessageStart(), extractor.getMessageEnd());
+
+        return true;
+    }
+
+    /**
+     * Returns the position right after the entry in the file
+     */
+    public long getEndOfEntry()
+    {
+        return entryID + (end - start);
+    }
+
+    /**
+     * The thread of the entry (%t), the value between a pair of [] in the default layout
+     */
+    public ByteSequence getModule()
+    {
+        return module;
+    }
+
+    /**
+     * The logger of the entry (%c), the value before :? in the default layout
+     */
+    public ByteSequence getClassName()
+    {
+        return className;
+    }
+
+    /**
+     * The logged message
+     */
+    public ByteSequence getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * Returns a reader which decodes the message<br>
+     * The same reader object is returned for every entry
+     * @return a reader containing the message
+     */
+    public Reader getMessageReader()
+    {
+        if(messageReader == null) {
+            messageReader = new MessageReader();
+        }
+
+        messageReader.reset(message.getStart(), message.getEnd());
+        return messageReader;
+    }
+
+    /**
+     * Searches the message for a Java Exception
+     * @return the simple name of the first exception in the message or an empty Optional if it doesn't contain one
+     */
+    public Optional<String> findException()
+    {
+        ExceptionExtractor exceptions = findExceptions();
+
+        if(exceptions.getAmountOfExceptions() == 0) {
+            return Optional.empty();
+        }
+
+        return Optional.of(exceptions.getName(0).toString(charset));
+    }
+
+    /**
+     * Searches the message for every exception, including the causes of the logged exception<br>
+     * The same extractor is returned for every entry, its names point into the buffer of the entry
+     * @return the extractor containing the names of the exceptions in the order of their first occurrence
+     */
+    public ExceptionExtractor findExceptions()
+    {
+        if(exceptionExtractor == null) {
+            exceptionExtractor = new ExceptionExtractor();
+        }
+
+        exceptionExtractor.extract(buffer, message.getStart(), message.getEnd());
+        return exceptionExtractor;
+    }
+
+    /**
+     * Copies the content of the view into a new LogEntry object
+     * @return a LogEntry with the same content
+     */
+    public LogEntry toLogEntry()
+    {
+        return new LogEntry(
+            time,
+            logLevel,
+            module.toString(charset),
+            className.toString(charset),
+            message.toString(charset),
+            entryID
+        );
+    }
+
+    /**
+     * Reader which decodes the message of the entry into a reusable char[]
+     */
+    private class MessageReader extends Reader
+    {
+        private final CharsetDecoder decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private char[] characters = new char[1024];
+        private CharBuffer characterBuffer = CharBuffer.wrap(characters);
+        private int length;
+        private int position;
+
+        private void reset(int messageStart, int messageEnd)
+        {
+            int messageLength = messageEnd - messageStart;
+            if(characters.length < messageLength) {
+                characters = new char[Math.max(messageLength, characters.length * 2)];
+                characterBuffer = CharBuffer.wrap(characters);
+            }
+
+            position = 0;
+            length = 0;
+
+            //ascii characters can be copied directly
+            while(length < messageLength)
+            {
+                byte character = buffer.get(messageStart + length);
+                if(character < 0) {
+                    break;
+                }
+                characters[length++] = (char) character;
+            }
+
+            if(length < messageLength) {
+                decode(messageStart + length, messageEnd);
+            }
+        }
+
+        /**
+         * Decodes the remaining part of the message which contains non ascii characters
+         */
+        private void decode(int from, int to)
+        {
+            int limit = buffer.limit();
+            buffer.limit(to).position(from);
+
+            characterBuffer.clear().position(length);
+            decoder.reset();
+            decoder.decode(buffer, characterBuffer, true);
+            decoder.flush(characterBuffer);
+            length = characterBuffer.position();
+
+            buffer.limit(limit);
+        }
+
+        @Override
+        public int read(char[] destination, int offset, int amount)
+        {
+            if(position >= length) {
+                return -1;
+            }
+
+            int charactersRead = Math.min(amount, length - position);
+            System.arraycopy(characters, position, destination, offset, charactersRead);
+            position += charactersRead;
+
+            return charactersRead;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * Stores the content of many views in flat arrays, so that they can be restored later on
+     * without creating an object per entry
+     */
+    public static class Batch
+    {
+        private int size;
+
+        private ByteBuffer[] sources = new ByteBuffer[1024];
+        private long[] entryIDs = new long[1024];
+        private long[] times = new long[1024];
+        private LogLevel[] logLevels = new LogLevel[1024];
+
+        /**
+         * start, end, moduleStart, moduleEnd, classNameStart, classNameEnd, messageStart and messageEnd of each entry
+         */
+        private int[] positions = new int[1024 * 8];
+
+        /**
+         * Adds the content of the view to the batch
+         * @param view the view to be stored
+         */
+        public void add(LogEntryView view)
+        {
+            if(size == entryIDs.length)
+            {
+                sources = Arrays.copyOf(sources, size * 2);
+                entryIDs = Arrays.copyOf(entryIDs, size * 2);
+                times = Arrays.copyOf(times, size * 2);
+                logLevels = Arrays.copyOf(logLevels, size * 2);
+                positions = Arrays.copyOf(positions, size * 2 * 8);
+            }
+
+            sources[size] = view.source;
+            entryIDs[size] = view.entryID;
+            times[size] = view.time;
+            logLevels[size] = view.logLevel;
+
+            int i = size * 8;
+            positions[i] = view.start;
+            positions[i + 1] = view.end;
+            positions[i + 2] = view.module.getStart();
+            positions[i + 3] = view.module.getEnd();
+            positions[i + 4] = view.className.getStart();
+            positions[i + 5] = view.className.getEnd();
+            positions[i + 6] = view.message.getStart();
+            positions[i + 7] = view.message.getEnd();
+
+            size++;
+        }
+
+        /**
+         * Restores the content of an entry
+         * @param index the index of the entry within the batch
+         * @param view the view the entry is restored into
+         */
+        public void restore(int index, LogEntryView view)
+        {
+            if(view.source != sources[index])
+            {
+                view.source = sources[index];
+                view.buffer = view.source.duplicate();
+            }
+
+            view.entryID = entryIDs[index];
+            view.time = times[index];
+            view.logLevel = logLevels[index];
+
+            int i = index * 8;
+            view.start = positions[i];
+            view.end = positions[i + 1];
+            view.module.set(view.buffer, positions[i + 2], positions[i + 3]);
+            view.className.set(view.buffer, positions[i + 4], positions[i + 5]);
+            view.message.set(view.buffer, positions[i + 6], positions[i + 7]);
+        }
+
+        /**
+         * Returns the amount of stored entries
+         */
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Measures how many bytes are allocated per entry when a file is read into views and into LogEntry objects
+     * @param args the path to a logfile
+     */
+    public static void main(String[] args) throws IOException
+    {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+        long[] entryCount = new long[1];
+
+        try(LogFileParser parser = new LogFileParser(args[0]))
+        {
+            //warm up
+            parser.parseSequentially(0, view -> view.getMessageReader().read(new char[0]));
+
+            entryCount[0] = 0;
+            char[] characters = new char[4096];
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadID);
+            parser.parseSequentially(0, view -> {
+                entryCount[0]++;
+                Reader reader = view.getMessageReader();
+                while(reader.read(characters) != -1);
+            });
+            long allocatedForViews = threadBean.getThreadAllocatedBytes(threadID) - allocatedBefore;
+
+            allocatedBefore = threadBean.getThreadAllocatedBytes(threadID);
+            parser.parseSequentially(0, view -> view.toLogEntry());
+            long allocatedForLogEntries = threadBean.getThreadAllocatedBytes(threadID) - allocatedBefore;
+
+            System.out.printf("%d entries%n", entryCount[0]);
+            System.out.printf("Views: %.1f bytes per entry%n", (double)allocatedForViews / entryCount[0]);
+            System.out.printf("LogEntries: %.1f bytes per entry%n", (double)allocatedForLogEntries / entryCount[0]);
+        }
+    }
+}
@@ -37,6 +37,23 @@ public enum LogLevel {
         return levels.getOrDefault(id, null);
     }
 
+    private static final LogLevel[] allLevels = values();
+
+    /**
+     * Returns the LogLevel with the given name without creating a String
+     * @param name the name of the logLevel
+     * @return the LogLevel or null if there is no LogLevel with the given name
+     */
+    public static LogLevel fromName(CharSequence name) {
+        for (LogLevel logLevel : allLevels) {
+            if (logLevel.name().contentEquals(name)) {
+                return logLevel;
+            }
+        }
+
+        return null;
+    }
+
     @Deprecated
     public static LogLevel getSlow(short id){
         for (LogLevel logLevel : values()){
@@ -1,6 +1,7 @@
 package com.efficientlogfileanalysis.luceneSearch;
 
 import com.efficientlogfileanalysis.index.Index;
+import com.efficientlogfileanalysis.index.IndexShard;
 import com.efficientlogfileanalysis.logs.data.LogEntry;
 import com.efficientlogfileanalysis.logs.data.LogLevel;
 import com.efficientlogfileanalysis.data.Settings;
@@ -9,30 +10,27 @@ import com.efficientlogfileanalysis.luceneSearch.data.Filter;
 import com.efficientlogfileanalysis.luceneSearch.data.SearchEntry;
 
 import com.efficientlogfileanalysis.logs.LogReader;
-import com.efficientlogfileanalysis.util.ByteConverter;
 import com.efficientlogfileanalysis.util.Timer;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
-import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.sandbox.search.IndexSortSortedNumericDocValuesRangeQuery;
 import org.apache.lucene.search.*;
-import org.apache.lucene.search.grouping.GroupDocs;
-import org.apache.lucene.search.grouping.GroupingSearch;
-import org.apache.lucene.search.grouping.TopGroups;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
-import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.QueryBuilder;
 
 import java.io.Closeable;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -44,30 +42,211 @@ import java.util.stream.Collectors;
  */
 public class Search implements Closeable {
 
-    DirectoryReader directoryReader;
-    private IndexSearcher searcher;
+    /**
+     * The order of the index reversed, the newest entries first
+     */
+    private static final Sort REVERSE_INDEX_SORT = new Sort(
+        Arrays.stream(Index.INDEX_SORT.getSort())
+            .map(field -> new SortField(field.getField(), field.getType(), true))
+            .toArray(SortField[]::new)
+    );
+
+    /**
+     * The searchers of the shards which have been read by this Search
+     */
+    private final Map<IndexShard, IndexSearcher> shardSearchers = new HashMap<>();
+
+    /**
+     * The searchers over the shards of a time range by their shards and the readers combining the shards
+     */
+    private final Map<List<IndexShard>, IndexSearcher> searchers = new HashMap<>();
+    private final List<MultiReader> readers = new ArrayList<>();
+
+    /**
+     * Reads the metadata of the entries in a segment out of their doc values<br>
+     * The values of a document can only be read after <code>setDocument</code> has been called with it,
+     * the documents have to be set in increasing order and each value can only be read once per document.
+     */
+    private static class EntryValues
+    {
+        private final NumericDocValues fileIndex;
+        private final NumericDocValues logEntryID;
+        private final NumericDocValues date;
+        private final NumericDocValues logLevel;
+        private final NumericDocValues module;
+        private final NumericDocValues classname;
+
+        private int doc;
+
+        private EntryValues(LeafReader reader) throws IOException
+        {
+            fileIndex = DocValues.getNumeric(reader, "fileIndex");
+            logEntryID = DocValues.getNumeric(reader, "logEntryID");
+            date = DocValues.getNumeric(reader, "date");
+            logLevel = DocValues.getNumeric(reader, "logLevel");
+            module = DocValues.getNumeric(reader, "module");
+            classname = DocValues.getNumeric(reader, "classname");
+        }
+
+        private void setDocument(int doc)
+        {
+            this.doc = doc;
+        }
+
+        private short getFileID() throws IOException
+        {
+            return (short)read(fileIndex);
+        }
+
+        private long getLogEntryID() throws IOException
+        {
+            return read(logEntryID);
+        }
+
+        private long getDate() throws IOException
+        {
+            return read(date);
+        }
+
+        private LogLevel getLogLevel() throws IOException
+        {
+            return LogLevel.fromID((byte)read(logLevel));
+        }
+
+        /**
+         * Creates the entry without its message
+         */
+        private LogEntry toLogEntry() throws IOException
+        {
+            Index index = Index.getInstance();
+
+            long time = getDate();
+            LogLevel level = getLogLevel();
+            String moduleName = index.getModuleName((int)read(module));
+            String className = index.getClassName((int)read(classname));
+
+            return new LogEntry(time, level, moduleName, className, null, getLogEntryID());
+        }
+
+        private long read(NumericDocValues values) throws IOException
+        {
+            return values.advanceExact(doc) ? values.longValue() : -1;
+        }
+    }
+
+    /**
+     * Collects every matching entry with the doc values of its segment
+     */
+    private abstract static class EntryCollector extends SimpleCollector
+    {
+        private EntryValues values;
+
+        protected abstract void collect(EntryValues values) throws IOException;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException
+        {
+            values = new EntryValues(context.reader());
+        }
+
+        @Override
+        public void collect(int doc) throws IOException
+        {
+            values.setDocument(doc);
+            collect(values);
+        }
+
+        @Override
+        public ScoreMode scoreMode()
+        {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
 
     /**
      * Creates a new Search Object<br>
-     * Opens up the Index Directory set in the settings<br>
-     * @throws IOException is thrown if the directory can't be read
+     * The shards of the index are only read once a search needs them, a search only reads the shards overlapping the time range
+     * of its filter. The current searcher of a shard is acquired the first time the shard is read, it is shared by every search
+     * and only reopened if the shard has changed. The Search sees a shard as it was at this point in time,
+     * even if entries are added or the index is committed in the meantime.
      */
-    public Search() throws IOException
+    public Search()
     {
-        //Open the Index
-        Directory indexDirectory = FSDirectory.open(Paths.get(Index.PATH_TO_INDEX + File.separator + "lucene"));
-        directoryReader = DirectoryReader.open(indexDirectory);
-        searcher = new IndexSearcher(directoryReader);
     }
 
     /**
-     * Closes the Index
+     * Releases the searchers of the shards
      * The Search object can't be used afterwards
      * @throws IOException
      */
     @Override
     public void close() throws IOException {
-        directoryReader.close();
+        for(MultiReader reader : readers) {
+            reader.close();
+        }
+
+        for(Map.Entry<IndexShard, IndexSearcher> shardSearcher : shardSearchers.entrySet())
+        {
+            if(shardSearcher.getValue() != null) {
+                shardSearcher.getKey().release(shardSearcher.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns a searcher over the shards which may contain entries matching the filter
+     * @param filter the filter of a search, only its time range is used
+     * @return the searcher of the shard or a searcher combining the shards if there are multiple ones
+     * @throws IOException if the shards can't be read
+     */
+    private IndexSearcher getSearcher(Filter filter) throws IOException
+    {
+        return getSearcher(filter.getBeginDate(), filter.getEndDate());
+    }
+
+    /**
+     * Returns a searcher over the shards overlapping a time range
+     */
+    private IndexSearcher getSearcher(long beginDate, long endDate) throws IOException
+    {
+        List<IndexShard> shards = new ArrayList<>();
+        List<IndexReader> shardReaders = new ArrayList<>();
+
+        for(IndexShard shard : Index.getInstance().getShards(beginDate, endDate))
+        {
+            IndexSearcher shardSearcher = shardSearchers.get(shard);
+
+            if(shardSearcher == null && !shardSearchers.containsKey(shard))
+            {
+                shardSearcher = shard.acquire();
+                shardSearchers.put(shard, shardSearcher);
+            }
+
+            //shards which haven't been written yet are empty
+            if(shardSearcher != null)
+            {
+                shards.add(shard);
+                shardReaders.add(shardSearcher.getIndexReader());
+            }
+        }
+
+        if(shards.size() == 1) {
+            return shardSearchers.get(shards.get(0));
+        }
+
+        IndexSearcher searcher = searchers.get(shards);
+
+        if(searcher == null)
+        {
+            //the readers of the shards are released by the Search, not by the MultiReader
+            MultiReader reader = new MultiReader(shardReaders.toArray(new IndexReader[0]), false);
+            readers.add(reader);
+
+            searcher = new IndexSearcher(reader);
+            searchers.put(shards, searcher);
+        }
+
+        return searcher;
     }
 
     /**
@@ -82,10 +261,13 @@ public class Search implements Closeable {
         BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
 
         //Add the time range
+        //the entries of a segment are sorted by their date, which means that the range is found with a binary search over the doc values,
+        //the points are only used for segments which aren't sorted
         queryBuilder.add(
-            LongPoint.newRangeQuery("date",
+            new IndexSortSortedNumericDocValuesRangeQuery("date",
                     filter.getBeginDate(),
-                    filter.getEndDate()
+                    filter.getEndDate(),
+                    LongPoint.newRangeQuery("date", filter.getBeginDate(), filter.getEndDate())
             ), BooleanClause.Occur.MUST
         );
 
@@ -143,6 +325,23 @@ public class Search implements Closeable {
             );
         }
 
+        if(filter.getSignature() != null)
+        {
+            int signatureID = Index.getInstance().getSignatureID(filter.getSignature());
+            queryBuilder.add(
+                IntPoint.newExactQuery("signature", signatureID),
+                BooleanClause.Occur.MUST
+            );
+        }
+
+        if(filter.getTemplateID() != -1)
+        {
+            queryBuilder.add(
+                IntPoint.newExactQuery("template", filter.getTemplateID()),
+                BooleanClause.Occur.MUST
+            );
+        }
+
         if(filter.getMessage() != null)
         {
             //Approach 1: search for sentence with sloppiness (word order can differ)
@@ -196,36 +395,44 @@ public class Search implements Closeable {
     }
 
     /**
-     * Returns all Search Entries present in a search
+     * Reads the hits of a search without their messages out of the doc values<br>
+     * The hits are read in the order of their documents, which reads the doc values from start to end.
+     * @param searcher the searcher which has found the hits
      * @param hits an array of score docs found in a lucene search
-     * @return the data for all the search entries
-     * @throws IOException if the log folder can't be accessed
+     * @return the entries in the same order as the hits
+     * @throws IOException if the index can't be read
      */
-    private List<SearchEntry> getResultsFromSearch(ScoreDoc[] hits) throws IOException
+    private List<LogEntry> readLogEntries(IndexSearcher searcher, ScoreDoc[] hits) throws IOException
     {
-        String path = Settings.getInstance().getLogFilePath();
-
-        HashMap<Short, SearchEntry> logFiles = new HashMap<>();
+        //the document and the position of each hit, sorted by the document
+        long[] documents = new long[hits.length];
+        for(int i = 0; i < hits.length; i++) {
+            documents[i] = (long)hits[i].doc << 32 | i;
+        }
+        Arrays.sort(documents);
 
-        try (LogReader logReader = new LogReader(path))
-        {
-            for(ScoreDoc hit : hits)
-            {
-                Document document = searcher.doc(hit.doc);
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LogEntry[] logEntries = new LogEntry[hits.length];
 
-                short fileID = document.getField("fileIndex").numericValue().shortValue();
-                String fileName = Index.getInstance().getFileName(fileID);
-                long entryIndex = document.getField("logEntryID").numericValue().longValue();
+        int leafIndex = -1;
+        LeafReaderContext leaf = null;
+        EntryValues values = null;
 
-                long logEntryTime = logReader.readDateOfEntry(fileName, entryIndex);
-                LogLevel logLevel = logReader.readLogLevelOfEntry(fileName, entryIndex);
+        for(long document : documents)
+        {
+            int doc = (int)(document >>> 32);
 
-                logFiles.putIfAbsent(fileID, new SearchEntry(fileName));
-                logFiles.get(fileID).addLogEntry(entryIndex, logLevel, logEntryTime);
+            while(leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc())
+            {
+                leaf = leaves.get(++leafIndex);
+                values = new EntryValues(leaf.reader());
             }
+
+            values.setDocument(doc - leaf.docBase);
+            logEntries[(int)document] = values.toLogEntry();
         }
 
-        return new ArrayList<>(logFiles.values());
+        return Arrays.asList(logEntries);
     }
 
     /**
@@ -237,76 +444,77 @@ public class Search implements Closeable {
     public List<SearchEntry> search(Filter filter) throws IOException
     {
         Query query = parseFilter(filter).build();
+        Index index = Index.getInstance();
+        HashMap<Short, SearchEntry> logFiles = new HashMap<>();
 
         System.out.println("Lucene start...");
-        ScoreDoc[] hits = searcher.search(query, Integer.MAX_VALUE).scoreDocs;
-        System.out.println("Lucene finished");
+        //the file, position, level and date of the hits are read out of the doc values, the logfiles aren't touched
+        getSearcher(filter).search(query, new EntryCollector() {
+            @Override
+            protected void collect(EntryValues values) throws IOException
+            {
+                short fileID = values.getFileID();
+                SearchEntry searchEntry = logFiles.get(fileID);
 
-        return getResultsFromSearch(hits);
-    }
+                if(searchEntry == null)
+                {
+                    //entries of files which have been removed after the shard has been read are skipped
+                    String fileName = index.getFileName(fileID);
+                    if(fileName == null) {
+                        return;
+                    }
+
+                    searchEntry = new SearchEntry(fileName);
+                    logFiles.put(fileID, searchEntry);
+                }
 
-    private List<Long> getEntryIDsFromResult(ScoreDoc[] hits) throws IOException {
-        List<Long> logEntries = new ArrayList<>();
-        for(ScoreDoc hit : hits)
-        {
-            Document document = searcher.doc(hit.doc);
-            long entryID = document.getField("logEntryID").numericValue().longValue();
+                searchEntry.addLogEntry(values.getLogEntryID(), values.getLogLevel(), values.getDate());
+            }
+        });
+        System.out.println("Lucene finished");
 
-            logEntries.add(entryID);
-        }
-        return logEntries;
+        return new ArrayList<>(logFiles.values());
     }
 
     /**
      * Returns a list of all logLevels present in each file
-     * @return a list containing a list of all levels present in a file
+     * @return a list containing a list of all levels present in a file by the ID of the file,
+     * the list of an ID which doesn't belong to a file (anymore) is empty
      */
-    public List<List<Byte>> searchForLogLevelsInFiles() {
-        ArrayList<List<Byte>> files = new ArrayList<>();
-        Filter.FilterBuilder filterBuilder;
-        Query query;
-        GroupingSearch groupingSearch;
-        TopGroups topGroups;
-        List<Byte> levelsPerFile;
-
-        //files.ensureCapacity(FileIDManager.getInstance().values.getKeySet().size());
-        files.ensureCapacity(Index.getInstance().getFileIDs().size());
-
-        //go through all files
-        //for(short fileID : FileIDManager.getInstance().values.getKeySet()) {
-        for(short fileID : Index.getInstance().getFileIDs()) {
-            filterBuilder = Filter
-                    .builder()
-                    .fileID(fileID);
-
-            query = parseFilter(filterBuilder.build()).build();
-            groupingSearch = new GroupingSearch("logLevel");
-
-            //sets how the returned groups are sorted
-            //the default criteria is "RELEVANCE" which is why Field_doc (the index order) is faster
-            groupingSearch.setGroupSort(new Sort(SortField.FIELD_DOC));
-
-            //only return one result for each group:
-            groupingSearch.setGroupDocsLimit(1);
+    public List<List<Byte>> searchForLogLevelsInFiles() throws IOException {
+        int amountOfFiles = getAmountOfFileIDs();
+        int amountOfLevels = getAmountOfLogLevelIDs();
+
+        //the levels of all files are found with a single pass over the doc values
+        boolean[][] levelsOfFiles = new boolean[amountOfFiles][amountOfLevels];
+        Filter filter = Filter.builder().build();
+        getSearcher(filter).search(parseFilter(filter).build(), new EntryCollector() {
+            @Override
+            protected void collect(EntryValues values) throws IOException
+            {
+                short fileID = values.getFileID();
+                LogLevel logLevel = values.getLogLevel();
 
-            //perform group search
-            topGroups = null;
-            try {
-                topGroups = groupingSearch.search(searcher, query, 0, LogLevel.values().length);
-            } catch (IOException ioe) {
-                ioe.printStackTrace();
-            } finally {
-                //TODO snoms asserts entfernen!
-                assert topGroups != null;
+                if(fileID >= 0 && fileID < amountOfFiles && logLevel != null) {
+                    levelsOfFiles[fileID][logLevel.getId()] = true;
+                }
             }
+        });
 
-            levelsPerFile = new ArrayList<>(topGroups.groups.length);
-            for(GroupDocs gdoc : topGroups.groups)
+        ArrayList<List<Byte>> files = new ArrayList<>();
+        files.ensureCapacity(amountOfFiles);
+
+        //go through all file IDs, the IDs of removed files are empty
+        for(short fileID = 0; fileID < amountOfFiles; fileID++) {
+            List<Byte> levelsPerFile = new ArrayList<>();
+            for(byte levelID = 0; levelID < amountOfLevels; levelID++)
             {
-                levelsPerFile.add(((BytesRef) gdoc.groupValue).bytes[0]);
+                if(levelsOfFiles[fileID][levelID]) {
+                    levelsPerFile.add(levelID);
+                }
             }
 
-            files.add(fileID, levelsPerFile);
+            files.add(levelsPerFile);
         }
 
         return files;
@@ -319,28 +527,145 @@ public class Search implements Closeable {
 
         Query query = parseFilter(filter).build();
 
-        GroupingSearch groupingSearch = new GroupingSearch("logLevel");
-
-        groupingSearch.setGroupSort(new Sort(SortField.FIELD_DOC));
-
-        TopGroups topGroups = groupingSearch.search(searcher, query, 0, 100000);
+        int[] counts = countByDocValues(filter, query, "logLevel", getAmountOfLogLevelIDs());
 
         HashMap<LogLevel, Integer> logLevelData = new HashMap<>();
 
-        for(GroupDocs groupDoc : topGroups.groups)
+        for(LogLevel logLevel : LogLevel.values())
         {
-            System.out.println(groupDoc.groupValue);
+            if(counts[logLevel.getId()] > 0) {
+                logLevelData.put(logLevel, counts[logLevel.getId()]);
+            }
+        }
+        return logLevelData;
+    }
+
+    /**
+     * Returns the amount of log level IDs, all IDs are smaller than it
+     */
+    private static int getAmountOfLogLevelIDs()
+    {
+        int amountOfIDs = 0;
+        for(LogLevel logLevel : LogLevel.values()) {
+            amountOfIDs = Math.max(amountOfIDs, logLevel.getId() + 1);
+        }
+        return amountOfIDs;
+    }
+
+    /**
+     * Returns the amount of file IDs, all IDs are smaller than it
+     */
+    private static int getAmountOfFileIDs()
+    {
+        int amountOfIDs = 0;
+        for(short fileID : Index.getInstance().getFileIDs()) {
+            amountOfIDs = Math.max(amountOfIDs, fileID + 1);
+        }
+        return amountOfIDs;
+    }
+
 
-            byte logLevelID = ((BytesRef) groupDoc.groupValue).bytes[0];
-            LogLevel logLevel = LogLevel.fromID(logLevelID);
+    /**
+     * Returns how often each stack trace signature appears in the entries matching a filter<br>
+     * The signatures are counted with a single pass over the doc values of the matching entries
+     * @param filter specifies which entries should be counted
+     * @return the amount of entries of each signature which appears at least once, the most frequent signature first
+     * @throws IOException if the index can't be read
+     */
+    public LinkedHashMap<String, Integer> getSignatureCount(Filter filter) throws IOException
+    {
+        Index index = Index.getInstance();
+        int[] counts = countByDocValues(filter, parseFilter(filter).build(), "signature", index.getAmountOfSignatures());
+
+        LinkedHashMap<String, Integer> signatureData = new LinkedHashMap<>();
+        for(int signatureID : sortByCount(counts)) {
+            signatureData.put(index.getSignature(signatureID), counts[signatureID]);
+        }
+
+        return signatureData;
+    }
 
-            long totalHits = groupDoc.totalHits.value;
+    /**
+     * Returns how often each message template appears in the entries matching a filter<br>
+     * The templates are counted with a single pass over the doc values of the matching entries
+     * @param filter specifies which entries should be counted
+     * @return the amount of entries by the ID of their template for each template which appears at least once,
+     * the most frequent template first
+     * @throws IOException if the index can't be read
+     */
+    public LinkedHashMap<Integer, Integer> getTemplateCount(Filter filter) throws IOException
+    {
+        int[] counts = countByDocValues(filter, parseFilter(filter).build(), "template", Index.getInstance().getAmountOfTemplates());
 
-            logLevelData.put(logLevel, (int)totalHits);
+        LinkedHashMap<Integer, Integer> templateData = new LinkedHashMap<>();
+        for(int templateID : sortByCount(counts)) {
+            templateData.put(templateID, counts[templateID]);
         }
-        return logLevelData;
+
+        return templateData;
+    }
+
+    /**
+     * Counts the matching entries by the value of a numeric doc values field
+     * @param filter the filter the query has been created from, it selects the shards
+     * @param query the query matching the entries
+     * @param field the name of the field, its values have to be IDs between 0 and amountOfValues
+     * @param amountOfValues the amount of different values, values added later on aren't counted
+     * @return the amount of entries by their value
+     * @throws IOException if the index can't be read
+     */
+    private int[] countByDocValues(Filter filter, Query query, String field, int amountOfValues) throws IOException
+    {
+        int[] counts = new int[amountOfValues];
+
+        getSearcher(filter).search(query, new SimpleCollector() {
+            private NumericDocValues values;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) throws IOException
+            {
+                values = DocValues.getNumeric(context.reader(), field);
+            }
+
+            @Override
+            public void collect(int doc) throws IOException
+            {
+                if(values.advanceExact(doc))
+                {
+                    long value = values.longValue();
+
+                    if(value < counts.length) {
+                        counts[(int)value]++;
+                    }
+                }
+            }
+
+            @Override
+            public ScoreMode scoreMode()
+            {
+                return ScoreMode.COMPLETE_NO_SCORES;
+            }
+        });
+
+        return counts;
     }
 
+    /**
+     * Returns the values which have been counted at least once, the most frequent value first
+     */
+    private static List<Integer> sortByCount(int[] counts)
+    {
+        List<Integer> values = new ArrayList<>();
+        for(int value = 0; value < counts.length; value++)
+        {
+            if(counts[value] > 0) {
+                values.add(value);
+            }
+        }
+        values.sort((first, second) -> Integer.compare(counts[second], counts[first]));
+
+        return values;
+    }
 
     /**
      * Searches the log files with the given filter for matches and then returns information about its parent log file and all the matches as ids in that log file but sorted
@@ -352,26 +677,78 @@ public class Search implements Closeable {
     {
         Query query = parseFilter(filter).build();
 
+        IndexSearcher searcher = getSearcher(filter);
+
         System.out.println("Lucene start...");
-        ScoreDoc[] hits = searcher.search(query, Integer.MAX_VALUE, new Sort(new SortField("date", SortField.Type.LONG))).scoreDocs;
+        ScoreDoc[] hits = searcher.search(query, Integer.MAX_VALUE, Index.INDEX_SORT).scoreDocs;
         System.out.println("Lucene finished");
 
-        List<LogEntry> logEntries = new ArrayList<>();
-        try (LogReader logReader = new LogReader(Settings.getInstance().getLogFilePath()))
+        return readLogEntries(searcher, hits);
+    }
+
+    /**
+     * Searches for the oldest or newest entries which match the given filter<br>
+     * The oldest entries are found in the order of the index, the search stops as soon as it has found enough of them.
+     * The newest entries are searched in a time window before the newest entry of the index, which grows until it contains enough entries,
+     * only the shards of the window are searched.
+     * The entries of a window are found with a binary search in the sorted index, which means that neither of the searches
+     * has to look at every matching entry.
+     * @param filter data that every log entry needs to match
+     * @param amount the maximum amount of entries
+     * @param newestFirst true if the newest entries should be returned, false for the oldest ones
+     * @return the entries sorted by their date without their messages, the newest one first if newestFirst is true
+     * @throws IOException if the index can't be read
+     */
+    public List<LogEntry> searchForLogEntriesByDate(Filter filter, int amount, boolean newestFirst) throws IOException
+    {
+        IndexSearcher searcher = getSearcher(filter);
+
+        if(!newestFirst) {
+            return readLogEntries(searcher, searcher.search(parseFilter(filter).build(), amount, Index.INDEX_SORT, false).scoreDocs);
+        }
+
+        IndexReader reader = searcher.getIndexReader();
+        byte[] minDate = PointValues.getMinPackedValue(reader, "date");
+        byte[] maxDate = PointValues.getMaxPackedValue(reader, "date");
+
+        if(minDate == null || amount <= 0) {
+            return new ArrayList<>();
+        }
+
+        long begin = Math.max(filter.getBeginDate(), LongPoint.decodeDimension(minDate, 0));
+        long end = Math.min(filter.getEndDate(), LongPoint.decodeDimension(maxDate, 0));
+
+        //the first window is about as long as the entries would need if they were spread evenly over the time of the index
+        long window = Math.max(1, (end - begin) / Math.max(1, reader.numDocs()) * amount * 2);
+        IndexSearcher windowSearcher;
+        ScoreDoc[] hits;
+
+        while(true)
         {
-            for(ScoreDoc hit : hits)
-            {
-                Document document = searcher.doc(hit.doc);
+            long windowBegin = end - begin > window ? end - window : begin;
 
-                long entryID = document.getField("logEntryID").numericValue().longValue();
-                short fileID = document.getField("fileIndex").numericValue().shortValue();
+            BooleanQuery.Builder queryBuilder = parseFilter(filter);
+            queryBuilder.add(
+                new IndexSortSortedNumericDocValuesRangeQuery("date",
+                    windowBegin,
+                    Long.MAX_VALUE,
+                    LongPoint.newRangeQuery("date", windowBegin, Long.MAX_VALUE)
+                ), BooleanClause.Occur.FILTER
+            );
 
-                String fileName = Index.getInstance().getFileName(fileID);
-                logEntries.add(logReader.readLogEntryWithoutMessage(fileName, entryID));
+            //only the shards of the window are searched
+            windowSearcher = getSearcher(windowBegin, end);
+            hits = windowSearcher.search(queryBuilder.build(), amount, REVERSE_INDEX_SORT, false).scoreDocs;
+
+            //the window contains every entry after its beginning, which means that it contains the newest entries once it is full
+            if(hits.length == amount || windowBegin == begin) {
+                break;
             }
+
+            window = window > Long.MAX_VALUE / 4 ? Long.MAX_VALUE : window * 4;
         }
 
-        return logEntries;
+        return readLogEntries(windowSearcher, hits);
     }
 
     /**
@@ -384,9 +761,38 @@ public class Search implements Closeable {
     {
         Query query = parseFilter(filter).build();
 
-        ScoreDoc[] hits = searcher.search(query, Integer.MAX_VALUE).scoreDocs;
+        List<Long> logEntries = new ArrayList<>();
+        getSearcher(filter).search(query, new EntryCollector() {
+            @Override
+            protected void collect(EntryValues values) throws IOException
+            {
+                logEntries.add(values.getLogEntryID());
+            }
+        });
 
-        return getEntryIDsFromResult(hits);
+        return logEntries;
+    }
+
+    /**
+     * Searches for the entries which match the given filter and reads them without their messages out of the index
+     * @param filter data that every log entry needs to match
+     * @return the matched log entries in the order of the index, their messages are null
+     * @throws IOException if the index can't be read
+     */
+    public List<LogEntry> searchForLogEntries(Filter filter) throws IOException
+    {
+        Query query = parseFilter(filter).build();
+
+        List<LogEntry> logEntries = new ArrayList<>();
+        getSearcher(filter).search(query, new EntryCollector() {
+            @Override
+            protected void collect(EntryValues values) throws IOException
+            {
+                logEntries.add(values.toLogEntry());
+            }
+        });
+
+        return logEntries;
     }
 
     public List<LogEntry> searchForNearestLogEntries(short fileID, long entryID)
@@ -398,23 +804,38 @@ public class Search implements Closeable {
         return entries;
     }
 
-    public Tuple<List<Long>, ScoreDoc> searchForLogEntryIDsWithPagination(Filter filter, int maxEntryAmount, ScoreDoc offset) throws IOException
+    /**
+     * Searches for the entries which match the given filter in pages sorted by their date<br>
+     * A page starts after the date, file and position of the last entry of the previous page, which stays valid
+     * even if entries are added in the meantime. Every page is found in the order of the index and the search stops
+     * once the page is full, which means that a page costs the same no matter how far it is from the first one.
+     * @param filter data that every log entry needs to match
+     * @param maxEntryAmount the maximum amount of entries of the page
+     * @param offset the sort values (date, fileIndex, logEntryID) of the last entry of the previous page or null for the first page
+     * @return the entries of the page without their messages and the sort values of its last entry, which is null if the page is empty
+     * @throws IOException if the index can't be read
+     */
+    public Tuple<List<LogEntry>, Object[]> searchForLogEntriesWithPagination(Filter filter, int maxEntryAmount, Object[] offset) throws IOException
     {
         Query query = parseFilter(filter).build();
+        IndexSearcher searcher = getSearcher(filter);
 
         ScoreDoc[] hits;
         if(offset == null)
         {
-            hits = searcher.search(query, maxEntryAmount).scoreDocs;
+            hits = searcher.search(query, maxEntryAmount, Index.INDEX_SORT, false).scoreDocs;
         }
         else
         {
-            hits = searcher.searchAfter(offset, query, maxEntryAmount).scoreDocs;
+            //the sort values identify an entry, the document only matters for entries with the same values,
+            //which is the last entry itself
+            FieldDoc after = new FieldDoc(searcher.getIndexReader().maxDoc() - 1, Float.NaN, offset);
+            hits = searcher.searchAfter(after, query, maxEntryAmount, Index.INDEX_SORT, false).scoreDocs;
         }
 
-        List<Long> logEntries = getEntryIDsFromResult(hits);
+        List<LogEntry> logEntries = readLogEntries(searcher, hits);
 
-        ScoreDoc lastHit = hits.length == 0 ? null : hits[hits.length-1];
+        Object[] lastHit = hits.length == 0 ? null : ((FieldDoc) hits[hits.length-1]).fields;
 
         return new Tuple<>(logEntries, lastHit);
     }
@@ -429,41 +850,15 @@ public class Search implements Closeable {
     {
         Query query = parseFilter(filter).build();
 
-        GroupingSearch groupingSearch = new GroupingSearch("fileIndex");
-
-        //sets how the returned groups are sorted
-        //the default criteria is "RELEVANCE" which is why Field_doc (the index order) is faster
-        groupingSearch.setGroupSort(new Sort(SortField.FIELD_DOC));
-
-        //only return one result for each file:
-        groupingSearch.setGroupDocsLimit(1);
-
-        //perform group search
-        TopGroups topGroups = groupingSearch.search(searcher, query, 0, 1000);
+        int[] counts = countByDocValues(filter, query, "fileIndex", getAmountOfFileIDs());
 
         List<Short> affectedFiles = new ArrayList<>();
 
-        for(GroupDocs doc : topGroups.groups)
+        for(short fileID = 0; fileID < counts.length; fileID++)
         {
-            short fileIndex = ByteConverter.byteToShort(((BytesRef) doc.groupValue).bytes);
-            affectedFiles.add(fileIndex);
-
-            /*
-                DEBUG: Print all found log entries
-
-                ScoreDoc[] entries = doc.scoreDocs;
-                LogReader logReader = new LogReader();
-                for(ScoreDoc entry : entries)
-                {
-                    System.out.println("\t" + entry);
-
-                    Document document = searcher.doc(entry.doc);
-                    short fileIndex = document.getField("fileIndex").numericValue().shortValue();
-                    long entryIndex = document.getField("logEntryID").numericValue().longValue();
-
-                    System.out.println("\t\t" + logReader.getLogEntry(Settings.getInstance().getLogFilePath(), fileIndex, entryIndex));
-                }
-             */
+            if(counts[fileID] > 0) {
+                affectedFiles.add(fileID);
+            }
         }
 
         return affectedFiles;
@@ -21,6 +21,8 @@ public class Filter {
     private String module;
     private String className;
     private String exception;
+    private String signature;
+    private int templateID;
     private short fileID;
     private String message;
 
@@ -34,6 +36,8 @@ public class Filter {
             module      =   null;
             className   =   null;
             exception   =   null;
+            signature   =   null;
+            templateID  =   -1;
             fileID      =   -1;
             message     =   null;
         }
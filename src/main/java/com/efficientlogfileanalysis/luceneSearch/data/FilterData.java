@@ -18,6 +18,8 @@ public class FilterData
     private String module;
     private String className;
     private String exception;
+    private String signature;
+    private Integer templateID;
     private String message;
 
     /**
@@ -57,6 +59,16 @@ public class FilterData
             filterBuilder.exception(this.exception);
         }
 
+        if(this.signature != null)
+        {
+            filterBuilder.signature(this.signature);
+        }
+
+        if(this.templateID != null)
+        {
+            filterBuilder.templateID(this.templateID);
+        }
+
         if(this.message != null && !this.message.isEmpty())
         {
             filterBuilder.message(this.message);
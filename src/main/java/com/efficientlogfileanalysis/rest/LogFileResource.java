@@ -3,6 +3,8 @@ package com.efficientlogfileanalysis.rest;
 import com.efficientlogfileanalysis.logs.data.LogEntry;
 import com.efficientlogfileanalysis.data.Settings;
 import com.efficientlogfileanalysis.index.Index;
+import com.efficientlogfileanalysis.logs.FileChannelPool;
+import com.efficientlogfileanalysis.logs.LogEntryCache;
 import com.efficientlogfileanalysis.logs.LogReader;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -11,8 +13,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -61,15 +63,7 @@ public class LogFileResource {
     {
         try( LogReader logReader = new LogReader(Settings.getInstance().getLogFilePath()))
         {
-            List<LogEntry> logEntries = new ArrayList<>();
-
-            for(long entryID : requestedIDs)
-            {
-                logEntries.add(logReader.getLogEntry(
-                    logFileName,
-                    entryID
-                ));
-            }
+            List<LogEntry> logEntries = logReader.getLogEntries(logFileName, requestedIDs);
 
             return Response.ok(logEntries).build();
         }
@@ -79,18 +73,24 @@ public class LogFileResource {
         }
     }
 
+    /**
+     * Returns the entries around an entry
+     * @param byteRange returns the entries which start at most this many bytes before or after the entry
+     * @param amountOfEntries if greater than 0, returns this many entries before and after the entry instead
+     */
     @GET
     @Path("/nearby")
     @Produces("application/json")
     public Response getNearbyEntries(
             @QueryParam("filename") String filename,
             @QueryParam("entryID") long entryID,
-            @QueryParam("byteRange") int byteRange
+            @QueryParam("byteRange") int byteRange,
+            @QueryParam("amountOfEntries") @DefaultValue("0") int amountOfEntries
     )
     {
         try(LogReader reader = new LogReader(Settings.getInstance().getLogFilePath()))
         {
-            return Response.ok(reader.getNearbyEntries(filename, entryID, byteRange)).build();
+            return Response.ok(readNearbyEntries(reader, filename, entryID, byteRange, amountOfEntries)).build();
         }
         catch (IOException e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -110,13 +110,14 @@ public class LogFileResource {
     public Response getNearbyEntriesRaw(
             @QueryParam("filename") String filename,
             @QueryParam("entryID") long entryID,
-            @QueryParam("byteRange") int byteRange
+            @QueryParam("byteRange") int byteRange,
+            @QueryParam("amountOfEntries") @DefaultValue("0") int amountOfEntries
     )
     {
         try(LogReader reader = new LogReader(Settings.getInstance().getLogFilePath()))
         {
             short fileID = Index.getInstance().getFileID(filename);
-            List<LogEntry> entries = reader.getNearbyEntries(filename, entryID, byteRange);
+            List<LogEntry> entries = readNearbyEntries(reader, filename, entryID, byteRange, amountOfEntries);
 
             List<RawEntryData> rawData = entries.stream().map(e -> new RawEntryData(e.getEntryID(), e.toString())).collect(Collectors.toList());
             return Response.ok(rawData).build();
@@ -126,6 +127,51 @@ public class LogFileResource {
         }
     }
 
+    private static List<LogEntry> readNearbyEntries(LogReader reader, String filename, long entryID, int byteRange, int amountOfEntries) throws IOException
+    {
+        if(amountOfEntries > 0) {
+            return reader.getNearbyEntries(filename, entryID, amountOfEntries, amountOfEntries);
+        }
+
+        return reader.getNearbyEntries(filename, entryID, byteRange);
+    }
+
+    /**
+     * Returns how often the logfiles could be read through an already opened channel
+     * @return the hits, misses, evictions and invalidations of the FileChannelPool
+     */
+    @GET
+    @Path("fileHandles")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFileHandleStatistics()
+    {
+        return Response.ok(FileChannelPool.getInstance().getStatistics()).build();
+    }
+
+    /**
+     * Returns how often logEntries could be read out of the memory instead of the logfiles
+     * @return the hits, misses, evictions and size of the LogEntryCache
+     */
+    @GET
+    @Path("entryCache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getEntryCacheStatistics()
+    {
+        return Response.ok(LogEntryCache.getInstance().getStatistics()).build();
+    }
+
+    /**
+     * Returns the files whose entries have been removed from the index because it reached its maximum size
+     * @return the time range of the removed entries by the name of the file
+     */
+    @GET
+    @Path("evicted")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getEvictedFiles()
+    {
+        return Response.ok(Index.getInstance().getEvictedFiles()).build();
+    }
+
     @GET
     @Path("classNames")
     @Produces(MediaType.APPLICATION_JSON)
@@ -149,4 +195,20 @@ public class LogFileResource {
         Set<String> moduleNames = Index.getInstance().getExceptionNames();
         return Response.ok(moduleNames).build();
     }
+
+    @GET
+    @Path("signatures")
+    public Response getAllSignatures()
+    {
+        Set<String> signatures = Index.getInstance().getSignatures();
+        return Response.ok(signatures).build();
+    }
+
+    @GET
+    @Path("templates")
+    public Response getAllTemplates()
+    {
+        Map<Integer, String> templates = Index.getInstance().getTemplates();
+        return Response.ok(templates).build();
+    }
 }
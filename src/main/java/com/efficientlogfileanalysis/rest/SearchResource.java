@@ -14,11 +14,11 @@ import jakarta.ws.rs.core.Response;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.apache.lucene.search.ScoreDoc;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Path("/search")
 public class SearchResource {
@@ -90,6 +90,69 @@ public class SearchResource {
         }
     }
 
+    /**
+     * Counts the entries matching the given filter by the signature of their stack trace
+     * @param filterData contains filter information
+     * @return the amount of entries of each signature, the most frequent signature first
+     */
+    @POST
+    @Path("/signatures")
+    @Produces("application/json")
+    public Response countSignatures(FilterData filterData)
+    {
+        Filter filter = filterData.parse();
+
+        try (Search search = new Search())
+        {
+            return Response.ok(search.getSignatureCount(filter)).build();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TemplateData
+    {
+        private int templateID;
+        private String template;
+        private int count;
+    }
+
+    /**
+     * Groups the entries matching the given filter by the template of their message
+     * @param filterData contains filter information
+     * @return the templates with the amount of their entries, the most frequent template first
+     */
+    @POST
+    @Path("/templates")
+    @Produces("application/json")
+    public Response countTemplates(FilterData filterData)
+    {
+        Filter filter = filterData.parse();
+
+        try (Search search = new Search())
+        {
+            List<TemplateData> templates = new ArrayList<>();
+            Index index = Index.getInstance();
+
+            for(Map.Entry<Integer, Integer> templateCount : search.getTemplateCount(filter).entrySet())
+            {
+                int templateID = templateCount.getKey();
+                templates.add(new TemplateData(templateID, index.getTemplate(templateID), templateCount.getValue()));
+            }
+
+            return Response.ok(templates).build();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Returns all entries matching the given filterData in a specific logfile
      * @param filterData contains filter information that every logEntry needs to match
@@ -110,16 +173,42 @@ public class SearchResource {
 
         try (Search search = new Search())
         {
-            List<LogEntry> result = new ArrayList<>();
-            List<Long> entryIDs = search.searchForLogEntryIDs(filter);
+            //the entries are read out of the index, the logfile isn't touched
+            List<LogEntry> result = search.searchForLogEntries(filter);
 
-            try (LogReader logReader = new LogReader(Settings.getInstance().getLogFilePath()))
-            {
-                for(long entryID : entryIDs)
-                {
-                    result.add(logReader.readLogEntryWithoutMessage(fileName, entryID));
-                }
-            }
+            return Response.ok(result).build();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Returns the newest or oldest entries matching the given filterData in a specific logfile
+     * @param filterData contains filter information that every logEntry needs to match
+     * @param fileName the name of the logfile to be searched
+     * @param order either newest or oldest
+     * @param amount the maximum amount of entries
+     * @return the matching entries without the logMessage, sorted by their date starting with the newest or oldest one
+     */
+    @POST
+    @Path("/file/{fileName}/{order: newest|oldest}/{amount}")
+    @Produces("application/json")
+    public Response searchInFileByDate(
+        FilterData filterData,
+        @PathParam("fileName") String fileName,
+        @PathParam("order") String order,
+        @PathParam("amount") int amount
+    )
+    {
+        Filter filter = filterData.parse();
+        filter.setFileID(Index.getInstance().getFileID(fileName));
+
+        try (Search search = new Search())
+        {
+            //the search stops once it has found enough entries instead of reading every match
+            List<LogEntry> result = search.searchForLogEntriesByDate(filter, amount, order.equals("newest"));
 
             return Response.ok(result).build();
         }
@@ -143,8 +232,9 @@ public class SearchResource {
     @AllArgsConstructor
     public static class LuceneSearchEntry
     {
-        public int docNumber;
-        public float docScore;
+        public long date;
+        public short fileID;
+        public long logEntryID;
     }
 
     @Data
@@ -174,7 +264,11 @@ public class SearchResource {
     {
         //Get LastSearchEntry Data
         LuceneSearchEntry lastSearchData = pageRequestData.lastSearchEntry;
-        ScoreDoc lastSearchEntry = lastSearchData == null ? null : new ScoreDoc(lastSearchData.docNumber, lastSearchData.docScore);
+        Object[] lastSearchEntry = lastSearchData == null ? null : new Object[] {
+            lastSearchData.date,
+            (long)lastSearchData.fileID,
+            lastSearchData.logEntryID
+        };
 
         //Get the ID of the requested file
         Filter filter = pageRequestData.filterData.parse();
@@ -184,7 +278,7 @@ public class SearchResource {
 
         try (Search search = new Search())
         {
-            Tuple<List<Long>, ScoreDoc> result = search.searchForLogEntryIDsWithPagination(filter, amount, lastSearchEntry);
+            Tuple<List<LogEntry>, Object[]> result = search.searchForLogEntriesWithPagination(filter, amount, lastSearchEntry);
 
             if(result.value1.isEmpty())
             {
@@ -192,19 +286,14 @@ public class SearchResource {
             }
 
             ResultPageResponseData responseData = new ResultPageResponseData();
-            responseData.setLastSearchEntry(new LuceneSearchEntry(result.value2.doc, result.value2.score));
-
-            String logPath = Settings.getInstance().getLogFilePath();
-            List<LogEntry> logEntries = new ArrayList<>();
-
-            try (LogReader logReader = new LogReader(logPath))
-            {
-                for(long entryID : result.value1)
-                {
-                    //get preceding log entries
-                    logEntries.add(logReader.readLogEntryWithoutMessage(fileName, entryID));
-                }
-            }
+            responseData.setLastSearchEntry(new LuceneSearchEntry(
+                (long)result.value2[0],
+                (short)(long)result.value2[1],
+                (long)result.value2[2]
+            ));
+
+            //the entries are read out of the index, the logfile isn't touched
+            List<LogEntry> logEntries = result.value1;
 
             responseData.setLogEntries(logEntries);
 
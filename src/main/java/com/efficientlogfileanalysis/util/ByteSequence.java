@@ -0,0 +1,177 @@
+package com.efficientlogfileanalysis.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A CharSequence which points to a range of bytes inside a ByteBuffer.<br>
+ * The sequence can be moved to another range without creating a new object.
+ * <code>charAt</code> interprets every byte as a single character, which is correct for ascii text.
+ * <code>toString</code> decodes the bytes using the given charset.<br>
+ * hashCode and equals compare the bytes, which means that a ByteSequence can be used to look up
+ * values in a map whose keys are (copied) ByteSequences.
+ */
+public class ByteSequence implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int start;
+    private int end;
+
+    /**
+     * Creates an empty sequence
+     */
+    public ByteSequence()
+    {
+        this(new byte[0]);
+    }
+
+    /**
+     * Creates a sequence containing the given bytes
+     * @param bytes the content of the sequence
+     */
+    public ByteSequence(byte[] bytes)
+    {
+        set(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Moves the sequence to another range
+     * @param buffer the buffer containing the bytes
+     * @param start the position of the first byte
+     * @param end the position after the last byte
+     */
+    public void set(ByteBuffer buffer, int start, int end)
+    {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Moves the sequence to a range of another sequence
+     * @param sequence the sequence containing the bytes
+     * @param start the index of the first byte within the other sequence
+     * @param end the index after the last byte within the other sequence
+     */
+    public void set(ByteSequence sequence, int start, int end)
+    {
+        set(sequence.buffer, sequence.start + start, sequence.start + end);
+    }
+
+    /**
+     * Returns the byte at the given index
+     * @param index the index within the sequence
+     * @return the byte at the index
+     */
+    public byte byteAt(int index)
+    {
+        return buffer.get(start + index);
+    }
+
+    /**
+     * Returns the position of the first byte inside the underlying buffer
+     */
+    public int getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Returns the position after the last byte inside the underlying buffer
+     */
+    public int getEnd()
+    {
+        return end;
+    }
+
+    @Override
+    public int length()
+    {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return (char)(byteAt(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        ByteSequence subSequence = new ByteSequence();
+        subSequence.set(buffer, this.start + start, this.start + end);
+        return subSequence;
+    }
+
+    /**
+     * Creates a copy of the sequence which doesn't depend on the underlying buffer anymore
+     * @return a new ByteSequence containing the same bytes
+     */
+    public ByteSequence copy()
+    {
+        return new ByteSequence(toByteArray());
+    }
+
+    /**
+     * Copies the bytes of the sequence into a new array
+     * @return the bytes of the sequence
+     */
+    public byte[] toByteArray()
+    {
+        byte[] bytes = new byte[length()];
+
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = byteAt(i);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Decodes the bytes of the sequence
+     * @param charset the charset used for decoding
+     * @return the content of the sequence as a String
+     */
+    public String toString(Charset charset)
+    {
+        return new String(toByteArray(), charset);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toString(Charset.defaultCharset());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = 1;
+
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if(this == other) return true;
+        if(!(other instanceof ByteSequence)) return false;
+
+        ByteSequence that = (ByteSequence) other;
+        if(length() != that.length()) return false;
+
+        for(int i = 0; i < length(); i++)
+        {
+            if(byteAt(i) != that.byteAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -114,6 +114,34 @@ async function searchInFile(filterData, filename)
     return await response.json();
 }
 
+/**
+ * Function used to fetch the newest or oldest log entries in a specified file
+ * @param filterData specified filterData object based on search input
+ * @param filename specified filename of file
+ * @param entryAmount the maximum amount of entries
+ * @param newest true for the newest entries, false for the oldest ones
+ * @returns {Promise<any>} an array of log entry elements sorted by their date, the newest or oldest one first
+ */
+async function searchInFileByDate(filterData, filename, entryAmount, newest)
+{
+    resetFetching();
+    let response = await fetch(`api/search/file/${filename}/${newest ? "newest" : "oldest"}/${entryAmount}`, {
+        method : "POST",
+        signal : mySignal,
+        body : JSON.stringify(filterData),
+        headers : {
+            "content-type" : "application/json"
+        }
+    });
+
+    if(!response.ok)
+    {
+        alert("Not okay :(");
+        return;
+    }
+    return await response.json();
+}
+
 async function searchInFileAmount(filterData, filename, lastSearchEntry, entryAmount)
 {
     resetFetching();
@@ -413,6 +441,24 @@ async function displayFileLogEntries(filename){
             init: function(api, node, config) {
                 $(node).removeClass('dt-button');
             }
+        },
+        {
+            text: 'neueste Logeinträge',
+            className: 'btn button-style',
+            action: async function ( e, dt, node, config ) {
+                //stops loading the whole file, its newest entries are searched directly
+                abortFetching();
+                let newestEntries = await searchInFileByDate(filter, filename, 1000, true);
+
+                dt.clear();
+                for(let i=0; i<newestEntries.length; i++){
+                    dt.row.add([formatDate2(new Date(newestEntries[i].time)),newestEntries[i].logLevel,newestEntries[i].module,newestEntries[i].className]).node().id = newestEntries[i].entryID;
+                }
+                dt.order([0, 'desc']).draw();
+            },
+            init: function(api, node, config) {
+                $(node).removeClass('dt-button');
+            }
         }
         ],
     });
@@ -432,7 +478,8 @@ async function displayFileLogEntries(filename){
         $('#logEntryTable').DataTable().button( 0 ).disable();
     });
     while((data = await searchInFileAmount(filter, filename, lastSearchEntry, 1000)) != null){
-        lastSearchEntry = {"docNumber":data.lastSearchEntry.docNumber, "docScore":data.lastSearchEntry.docScore};
+        //the date, file and position of the last entry, the next page starts after it
+        lastSearchEntry = data.lastSearchEntry;
         let currentData = data.logEntries;
 
         for(let i=0; i<currentData.length; i++){
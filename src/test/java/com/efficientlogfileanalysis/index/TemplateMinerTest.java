@@ -0,0 +1,184 @@
+package com.efficientlogfileanalysis.index;
+
+import com.efficientlogfileanalysis.index.data.I_TypeConverter;
+import com.efficientlogfileanalysis.index.data.SerializableMap;
+import com.efficientlogfileanalysis.util.ByteSequence;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Matches messages to templates, generalises the templates and creates the miner out of its dictionary again
+ */
+class TemplateMinerTest {
+
+    private static SerializableMap<Integer, String> createDictionary()
+    {
+        return new SerializableMap<>(I_TypeConverter.INTEGER_TYPE_CONVERTER, I_TypeConverter.STRING_TYPE_CONVERTER);
+    }
+
+    private static int match(TemplateMiner miner, String message)
+    {
+        return miner.match(new ByteSequence(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Messages of several kinds whose variable parts change
+     */
+    private static List<String> createMessages(int amount)
+    {
+        Random random = new Random(42);
+        String[] users = {"alice", "bob", "carol", "dave"};
+        List<String> messages = new ArrayList<>();
+
+        for(int i = 0; i < amount; i++)
+        {
+            switch(random.nextInt(5))
+            {
+                case 0: messages.add("hide end: MAP0" + random.nextInt(100) + " timestamp: " + (1656937674040L + random.nextInt())); break;
+                case 1: messages.add("session opened for " + users[random.nextInt(users.length)]); break;
+                case 2: messages.add("order " + random.nextInt(10_000) + " shipped to warehouse " + random.nextInt(10)); break;
+                case 3: messages.add("connection closed"); break;
+                default: messages.add("request failed after " + random.nextInt(5000) + " ms\njava.lang.IllegalStateException\n\tat Foo.bar(Foo.java:" + i + ")"); break;
+            }
+        }
+
+        return messages;
+    }
+
+    @Test
+    void variablesWithDigitsBelongToTheSameTemplate()
+    {
+        TemplateMiner miner = new TemplateMiner(createDictionary());
+
+        int templateID = match(miner, "hide end: MAP036 timestamp: 1656937674040");
+        assertEquals(templateID, match(miner, "hide end: MAP012 timestamp: 1656937690111"));
+        assertEquals("hide end: <*> timestamp: <*>", miner.getTemplate(templateID));
+
+        assertNotEquals(templateID, match(miner, "connection closed"));
+        assertEquals(2, miner.getAmountOfTemplates());
+    }
+
+    @Test
+    void differingWordsGeneraliseTheTemplate()
+    {
+        TemplateMiner miner = new TemplateMiner(createDictionary());
+
+        int templateID = match(miner, "session opened for alice");
+        assertEquals("session opened for alice", miner.getTemplate(templateID));
+
+        //the ID stays the same while the template becomes more general
+        assertEquals(templateID, match(miner, "session opened for bob"));
+        assertEquals("session opened for <*>", miner.getTemplate(templateID));
+        assertEquals(templateID, match(miner, "session opened for alice"));
+        assertEquals(1, miner.getAmountOfTemplates());
+    }
+
+    @Test
+    void onlyTheFirstLineIsUsed()
+    {
+        TemplateMiner miner = new TemplateMiner(createDictionary());
+
+        int templateID = match(miner, "request failed\njava.lang.IllegalStateException\n\tat Foo.bar(Foo.java:1)");
+        assertEquals(templateID, match(miner, "request failed\njava.lang.NullPointerException"));
+        assertEquals("request failed", miner.getTemplate(templateID));
+    }
+
+    @Test
+    void messagesWithAnotherAmountOfTokensGetAnotherTemplate()
+    {
+        TemplateMiner miner = new TemplateMiner(createDictionary());
+
+        assertNotEquals(match(miner, "user alice logged in"), match(miner, "user alice logged in again"));
+    }
+
+    @Test
+    void rebuildingTheTreeKeepsTheTemplates()
+    {
+        SerializableMap<Integer, String> dictionary = createDictionary();
+        TemplateMiner miner = new TemplateMiner(dictionary);
+        List<String> messages = createMessages(5_000);
+
+        List<Integer> templateIDs = new ArrayList<>();
+        for(String message : messages) {
+            templateIDs.add(match(miner, message));
+        }
+        Map<Integer, String> templates = miner.getTemplates();
+
+        //like reading the dictionary when the index is opened again
+        SerializableMap<Integer, String> readDictionary = createDictionary();
+        readDictionary.putAll(dictionary);
+        TemplateMiner rebuiltMiner = new TemplateMiner(readDictionary);
+
+        for(int i = 0; i < messages.size(); i++) {
+            assertEquals((int)templateIDs.get(i), match(rebuiltMiner, messages.get(i)), messages.get(i));
+        }
+        assertEquals(templates, rebuiltMiner.getTemplates());
+
+        //new templates get IDs after the existing ones
+        int newTemplateID = match(rebuiltMiner, "a completely new message");
+        assertEquals(Collections.max(templates.keySet()) + 1, newTemplateID);
+
+        miner.rebuild();
+        assertEquals(templates, miner.getTemplates());
+    }
+
+    @Test
+    void matchingInParallelFindsTheSameTemplates() throws Exception
+    {
+        List<String> messages = createMessages(20_000);
+
+        TemplateMiner sequentialMiner = new TemplateMiner(createDictionary());
+        for(String message : messages) {
+            match(sequentialMiner, message);
+        }
+
+        TemplateMiner parallelMiner = new TemplateMiner(createDictionary());
+        Map<String, Integer> templateOfMessage = new ConcurrentHashMap<>();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            List<Future<?>> tasks = new ArrayList<>();
+            for(int thread = 0; thread < 4; thread++)
+            {
+                int firstMessage = thread;
+                tasks.add(threads.submit(() -> {
+                    for(int i = firstMessage; i < messages.size(); i += 4) {
+                        templateOfMessage.put(messages.get(i), match(parallelMiner, messages.get(i)));
+                    }
+                }));
+            }
+            for(Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        finally {
+            threads.shutdown();
+        }
+
+        //the IDs depend on the order of the messages, the templates themselves don't
+        assertEquals(
+            sequentialMiner.getTemplates().values().stream().sorted().collect(Collectors.toList()),
+            parallelMiner.getTemplates().values().stream().sorted().collect(Collectors.toList())
+        );
+
+        //every message belongs to the same template afterwards, no matter which thread matched it first
+        for(String message : messages) {
+            assertEquals(parallelMiner.getTemplate(templateOfMessage.get(message)), parallelMiner.getTemplate(match(parallelMiner, message)));
+        }
+    }
+}
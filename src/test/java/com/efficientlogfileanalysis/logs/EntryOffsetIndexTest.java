@@ -0,0 +1,150 @@
+package com.efficientlogfileanalysis.logs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes the positions of entries and reads them again
+ */
+class EntryOffsetIndexTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Creates ascending positions whose distances need one to five bytes as varints
+     */
+    private static long[] createPositions(int amount, long firstPosition)
+    {
+        Random random = new Random(amount);
+        long[] positions = new long[amount];
+        long position = firstPosition;
+
+        for(int i = 0; i < amount; i++)
+        {
+            positions[i] = position;
+            int bits = 1 + random.nextInt(random.nextInt(20) == 0 ? 34 : 14);
+            position += 1 + (random.nextLong() & ((1L << bits) - 1));
+        }
+
+        return positions;
+    }
+
+    private static void write(Path file, long startOfNewEntries, long[] positions) throws IOException
+    {
+        try(EntryOffsetIndex.Writer writer = new EntryOffsetIndex.Writer(file, startOfNewEntries))
+        {
+            for(long position : positions) {
+                writer.add(position);
+            }
+        }
+    }
+
+    /**
+     * Looks up every position together with its neighbours and compares them with the written positions
+     */
+    private static void assertRoundTrip(Path file, long[] positions, int entriesBefore, int entriesAfter) throws IOException
+    {
+        for(int i = 0; i < positions.length; i++)
+        {
+            long[] expected = Arrays.copyOfRange(positions, Math.max(0, i - entriesBefore), Math.min(positions.length, i + entriesAfter + 1));
+            assertArrayEquals(expected, EntryOffsetIndex.findSurroundingEntries(file, positions[i], entriesBefore, entriesAfter), "entry " + i);
+        }
+    }
+
+    @Test
+    void readsTheWrittenPositions() throws IOException
+    {
+        Path file = directory.resolve("positions.offsets");
+        long[] positions = createPositions(20_000, 0);
+        write(file, 0, positions);
+
+        //the positions span many pages
+        assertTrue(Files.size(file) > 5 * EntryOffsetIndex.PAGE_SIZE);
+        assertRoundTrip(file, positions, 3, 5);
+        assertRoundTrip(file, positions, 0, 0);
+    }
+
+    @Test
+    void findsNeighboursOnOtherPages() throws IOException
+    {
+        Path file = directory.resolve("positions.offsets");
+        long[] positions = createPositions(5_000, 1234);
+        write(file, 0, positions);
+
+        //more neighbours than fit on a single page
+        int index = positions.length / 2;
+        long[] surroundingEntries = EntryOffsetIndex.findSurroundingEntries(file, positions[index], 2_000, 2_000);
+        assertArrayEquals(Arrays.copyOfRange(positions, index - 2_000, index + 2_001), surroundingEntries);
+    }
+
+    @Test
+    void returnsNullForUnknownPositions() throws IOException
+    {
+        Path file = directory.resolve("positions.offsets");
+        long[] positions = createPositions(1_000, 100);
+        write(file, 0, positions);
+
+        assertNull(EntryOffsetIndex.findSurroundingEntries(file, positions[10] + 1, 1, 1));
+        assertNull(EntryOffsetIndex.findSurroundingEntries(file, 0, 1, 1));
+        assertNull(EntryOffsetIndex.findSurroundingEntries(directory.resolve("missing.offsets"), 100, 1, 1));
+    }
+
+    @Test
+    void appendsToTheWrittenPositions() throws IOException
+    {
+        Path file = directory.resolve("positions.offsets");
+        long[] positions = createPositions(30_000, 0);
+
+        //the file is indexed in three parts, the borders lie in the middle of a page
+        int firstBorder = 7_777;
+        int secondBorder = 19_001;
+        write(file, 0, Arrays.copyOfRange(positions, 0, firstBorder));
+        write(file, positions[firstBorder], Arrays.copyOfRange(positions, firstBorder, secondBorder));
+        write(file, positions[secondBorder], Arrays.copyOfRange(positions, secondBorder, positions.length));
+
+        assertRoundTrip(file, positions, 2, 2);
+    }
+
+    @Test
+    void replacesThePositionsAfterTheStartOfNewEntries() throws IOException
+    {
+        Path file = directory.resolve("positions.offsets");
+        long[] positions = createPositions(10_000, 0);
+        write(file, 0, positions);
+
+        //the file has been changed after the first 4000 entries, the rest is indexed again with other positions
+        long[] changedPositions = createPositions(3_000, positions[4_000] + 17);
+        write(file, positions[4_000], changedPositions);
+
+        long[] expected = new long[4_000 + changedPositions.length];
+        System.arraycopy(positions, 0, expected, 0, 4_000);
+        System.arraycopy(changedPositions, 0, expected, 4_000, changedPositions.length);
+
+        assertRoundTrip(file, expected, 1, 1);
+        assertNull(EntryOffsetIndex.findSurroundingEntries(file, positions[9_000], 1, 1));
+    }
+
+    @Test
+    void indexesAFileFromTheBeginningAgain() throws IOException
+    {
+        Path file = directory.resolve("positions.offsets");
+        write(file, 0, createPositions(10_000, 0));
+
+        long[] positions = createPositions(500, 0);
+        write(file, 0, positions);
+
+        assertRoundTrip(file, positions, 1, 1);
+        assertTrue(Files.size(file) <= 2 * EntryOffsetIndex.PAGE_SIZE);
+    }
+}
@@ -0,0 +1,107 @@
+package com.efficientlogfileanalysis.logs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the LogDateDecoder with SimpleDateFormat, especially around the changes of the daylight saving time
+ */
+class LogDateDecoderTest {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(LogDateDecoder.DEFAULT_PATTERN).withLocale(Locale.ENGLISH);
+
+    private TimeZone defaultTimeZone;
+
+    @BeforeEach
+    void rememberTimeZone()
+    {
+        defaultTimeZone = TimeZone.getDefault();
+    }
+
+    @AfterEach
+    void restoreTimeZone()
+    {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    /**
+     * Decodes every date in a range with one decoder, so that the cached second and offset are used as well
+     */
+    private static void assertSameAsSimpleDateFormat(LocalDateTime from, LocalDateTime to, long stepInMillis) throws ParseException
+    {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(LogDateDecoder.DEFAULT_PATTERN, Locale.ENGLISH);
+        LogDateDecoder decoder = new LogDateDecoder();
+        ZoneRules rules = ZoneId.systemDefault().getRules();
+
+        for(LocalDateTime time = from; time.isBefore(to); time = time.plusNanos(stepInMillis * 1_000_000))
+        {
+            String date = time.format(FORMATTER);
+            long expected = simpleDateFormat.parse(date).getTime();
+            ZoneOffsetTransition transition = rules.getTransition(time);
+
+            //SimpleDateFormat uses the later offset within a repeated hour, the decoder uses the earlier one like java.time does
+            if(transition != null && transition.isOverlap()) {
+                expected -= transition.getDuration().abs().toMillis();
+            }
+
+            assertEquals(expected, decoder.decode(date), date);
+        }
+    }
+
+    @Test
+    void decodesAWholeYear() throws ParseException
+    {
+        for(String zone : new String[]{"Europe/Vienna", "America/New_York", "Australia/Lord_Howe", "UTC"})
+        {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            assertSameAsSimpleDateFormat(LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 1, 0, 0), 599_007);
+        }
+    }
+
+    @Test
+    void decodesEverySecondAroundTheTransitions() throws ParseException
+    {
+        for(String zone : new String[]{"Europe/Vienna", "America/New_York", "Australia/Lord_Howe"})
+        {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            ZoneRules rules = ZoneId.of(zone).getRules();
+
+            //the beginning and the end of the daylight saving time
+            ZoneOffsetTransition transition = rules.nextTransition(LocalDateTime.of(2022, 1, 1, 0, 0).atZone(ZoneId.of(zone)).toInstant());
+            for(int i = 0; i < 2; i++)
+            {
+                LocalDateTime before = transition.getDateTimeBefore();
+                assertSameAsSimpleDateFormat(before.minusHours(2), before.plusHours(2), 1_013);
+
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+    }
+
+    @Test
+    void decodesTheRepeatedHourLikeJavaTime()
+    {
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Vienna"));
+        LogDateDecoder decoder = new LogDateDecoder();
+
+        LocalDateTime time = LocalDateTime.of(2022, 10, 30, 2, 30);
+        assertTrue(ZoneId.systemDefault().getRules().getTransition(time).isOverlap());
+
+        long expected = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        assertEquals(expected, decoder.decode(time.format(FORMATTER)));
+    }
+}
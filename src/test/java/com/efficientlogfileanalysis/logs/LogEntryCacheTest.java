@@ -0,0 +1,168 @@
+package com.efficientlogfileanalysis.logs;
+
+import com.efficientlogfileanalysis.logs.data.LogEntry;
+import com.efficientlogfileanalysis.logs.data.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the memory limit and the counters of the LogEntryCache
+ */
+class LogEntryCacheTest {
+
+    /**
+     * The estimated size of the entries created by <code>createEntry</code>: 160 bytes for the entry
+     * and 40 bytes plus 2 bytes per character for each of its three Strings
+     */
+    private static final long SIZE_OF_ENTRY = 160 + (40 + 2 * 4) + (40 + 2 * 5) + (40 + 2 * 10);
+
+    private static LogEntry createEntry(long entryID)
+    {
+        return new LogEntry(1656943200000L + entryID, LogLevel.INFO, "main", "Class", "message...", entryID);
+    }
+
+    @Test
+    void countsHitsAndMisses()
+    {
+        LogEntryCache cache = new LogEntryCache(1024 * 1024);
+
+        assertNull(cache.get((short)0, 0));
+        cache.put((short)0, createEntry(0));
+
+        LogEntry entry = cache.get((short)0, 0);
+        assertEquals(createEntry(0), entry);
+        assertNull(cache.get((short)1, 0));
+
+        LogEntryCache.Statistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(1, statistics.getCachedEntries());
+        assertEquals(SIZE_OF_ENTRY, statistics.getCachedBytes());
+        assertEquals(1.0 / 3, statistics.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    void returnsCopiesOfTheEntries()
+    {
+        LogEntryCache cache = new LogEntryCache(1024 * 1024);
+        LogEntry entry = createEntry(0);
+        cache.put((short)0, entry);
+
+        //changing the added or the returned entry doesn't change the cached one
+        entry.setMessage("changed");
+        LogEntry cachedEntry = cache.get((short)0, 0);
+        assertNotSame(entry, cachedEntry);
+        assertEquals("message...", cachedEntry.getMessage());
+
+        cachedEntry.setMessage("changed");
+        assertEquals("message...", cache.get((short)0, 0).getMessage());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntries()
+    {
+        LogEntryCache cache = new LogEntryCache(10 * SIZE_OF_ENTRY);
+
+        for(long entryID = 0; entryID < 10; entryID++) {
+            cache.put((short)0, createEntry(entryID));
+        }
+        assertEquals(10 * SIZE_OF_ENTRY, cache.getStatistics().getCachedBytes());
+        assertEquals(0, cache.getStatistics().getEvictions());
+
+        //the first entry has been used last, so the second one is evicted
+        assertNotNull(cache.get((short)0, 0));
+        cache.put((short)0, createEntry(10));
+
+        assertNull(cache.get((short)0, 1));
+        assertNotNull(cache.get((short)0, 0));
+        assertNotNull(cache.get((short)0, 10));
+
+        LogEntryCache.Statistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getEvictions());
+        assertEquals(10, statistics.getCachedEntries());
+        assertTrue(statistics.getCachedBytes() <= statistics.getMaxBytes());
+    }
+
+    @Test
+    void staysWithinTheByteBudget()
+    {
+        LogEntryCache cache = new LogEntryCache(64 * 1024);
+
+        for(long entryID = 0; entryID < 10_000; entryID++)
+        {
+            LogEntry entry = createEntry(entryID);
+            entry.setMessage(new String(new char[(int)(entryID % 500)]).replace('\0', 'x'));
+            cache.put((short)(entryID % 3), entry);
+
+            assertTrue(cache.getStatistics().getCachedBytes() <= 64 * 1024);
+        }
+
+        LogEntryCache.Statistics statistics = cache.getStatistics();
+        assertEquals(10_000, statistics.getCachedEntries() + statistics.getEvictions());
+    }
+
+    @Test
+    void replacingAnEntryKeepsTheSizeCorrect()
+    {
+        LogEntryCache cache = new LogEntryCache(1024 * 1024);
+        cache.put((short)0, createEntry(0));
+        cache.put((short)0, createEntry(0));
+
+        assertEquals(1, cache.getStatistics().getCachedEntries());
+        assertEquals(SIZE_OF_ENTRY, cache.getStatistics().getCachedBytes());
+    }
+
+    @Test
+    void ignoresEntriesLargerThanTheCache()
+    {
+        LogEntryCache cache = new LogEntryCache(SIZE_OF_ENTRY - 1);
+        cache.put((short)0, createEntry(0));
+
+        assertNull(cache.get((short)0, 0));
+        assertEquals(0, cache.getStatistics().getCachedBytes());
+        assertEquals(0, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    void invalidatesTheEntriesOfAFile()
+    {
+        LogEntryCache cache = new LogEntryCache(1024 * 1024);
+
+        for(long entryID = 0; entryID < 5; entryID++)
+        {
+            cache.put((short)0, createEntry(entryID));
+            cache.put((short)1, createEntry(entryID));
+        }
+
+        cache.invalidate((short)0);
+
+        LogEntryCache.Statistics statistics = cache.getStatistics();
+        assertEquals(5, statistics.getInvalidations());
+        assertEquals(5, statistics.getCachedEntries());
+        assertEquals(5 * SIZE_OF_ENTRY, statistics.getCachedBytes());
+        assertNull(cache.get((short)0, 3));
+        assertNotNull(cache.get((short)1, 3));
+
+        cache.invalidateAll();
+
+        statistics = cache.getStatistics();
+        assertEquals(10, statistics.getInvalidations());
+        assertEquals(0, statistics.getCachedEntries());
+        assertEquals(0, statistics.getCachedBytes());
+    }
+
+    @Test
+    void aCacheWithoutMemoryIsDisabled()
+    {
+        LogEntryCache cache = new LogEntryCache(0);
+        cache.put((short)0, createEntry(0));
+
+        assertNull(cache.get((short)0, 0));
+        assertEquals(0, cache.getStatistics().getCachedEntries());
+    }
+}
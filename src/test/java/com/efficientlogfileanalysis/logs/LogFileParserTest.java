@@ -0,0 +1,134 @@
+package com.efficientlogfileanalysis.logs;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares reading a file in parallel ranges with reading it from start to end
+ */
+class LogFileParserTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Path logFile;
+    private static final List<Long> writtenEntryIDs = new ArrayList<>();
+
+    /**
+     * Writes a file which is split into several ranges, the entries have up to 40 lines, so the borders of the ranges
+     * lie in the middle of the entries
+     */
+    @BeforeAll
+    static void writeLogFile() throws IOException
+    {
+        logFile = directory.resolve("parallel.log");
+        Random random = new Random(4711);
+        long position = 0;
+
+        try(BufferedWriter writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8))
+        {
+            while(position < 40 * 1024 * 1024)
+            {
+                StringBuilder entry = new StringBuilder(String.format(
+                    "04 Jul 2022 %02d:%02d:%02d,%03d INFO  [thread-%d] Service:? - request %d finished",
+                    position * 24 / (40 * 1024 * 1024), random.nextInt(60), random.nextInt(60), random.nextInt(1000),
+                    random.nextInt(8), random.nextInt()
+                ));
+
+                if(random.nextInt(10) == 0)
+                {
+                    entry.append("\njava.lang.IllegalStateException: request failed");
+                    for(int line = random.nextInt(40); line > 0; line--) {
+                        entry.append("\n\tat com.example.Service.handle(Service.java:").append(line).append(')');
+                    }
+                }
+                entry.append('\n');
+
+                writtenEntryIDs.add(position);
+                writer.write(entry.toString());
+                position += entry.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+    }
+
+    private static List<long[]> parseSequentially(long offset) throws IOException
+    {
+        List<long[]> entries = new ArrayList<>();
+
+        try(LogFileParser parser = new LogFileParser(logFile.toString())) {
+            parser.parseSequentially(offset, entry -> entries.add(new long[]{entry.getEntryID(), entry.getEndOfEntry(), entry.getTime()}));
+        }
+
+        return entries;
+    }
+
+    private static List<long[]> parseInParallel(long offset, int parallelism) throws IOException
+    {
+        List<long[]> entries = new ArrayList<>();
+
+        try(LogFileParser parser = new LogFileParser(logFile.toString())) {
+            parser.parseInParallel(offset, parallelism, entry -> entries.add(new long[]{entry.getEntryID(), entry.getEndOfEntry(), entry.getTime()}));
+        }
+
+        return entries;
+    }
+
+    private static void assertSameEntries(List<long[]> expected, List<long[]> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+
+        for(int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i)[0], actual.get(i)[0], "entryID of entry " + i);
+            assertEquals(expected.get(i)[1], actual.get(i)[1], "end of entry " + i);
+            assertEquals(expected.get(i)[2], actual.get(i)[2], "date of entry " + i);
+        }
+    }
+
+    @Test
+    void sequentialParsingFindsEveryEntry() throws IOException
+    {
+        List<long[]> entries = parseSequentially(0);
+
+        assertEquals(writtenEntryIDs.size(), entries.size());
+        for(int i = 0; i < entries.size(); i++) {
+            assertEquals((long)writtenEntryIDs.get(i), entries.get(i)[0]);
+        }
+        assertEquals(Files.size(logFile), entries.get(entries.size() - 1)[1]);
+    }
+
+    @Test
+    void parallelParsingReturnsTheSameEntries() throws IOException
+    {
+        List<long[]> expected = parseSequentially(0);
+
+        for(int parallelism : new int[]{1, 2, 3, 8}) {
+            assertSameEntries(expected, parseInParallel(0, parallelism));
+        }
+    }
+
+    @Test
+    void parallelParsingStartsAtTheOffset() throws IOException
+    {
+        //an offset in the middle of the file, as if the file had been indexed up to there
+        long offset = writtenEntryIDs.get(writtenEntryIDs.size() / 3);
+        List<long[]> expected = parseSequentially(offset);
+
+        assertTrue(expected.size() < writtenEntryIDs.size());
+        assertEquals(offset, expected.get(0)[0]);
+        assertSameEntries(expected, parseInParallel(offset, 4));
+    }
+}
@@ -0,0 +1,189 @@
+package com.efficientlogfileanalysis.luceneSearch;
+
+import com.efficientlogfileanalysis.data.Settings;
+import com.efficientlogfileanalysis.data.Tuple;
+import com.efficientlogfileanalysis.index.Index;
+import com.efficientlogfileanalysis.index.IndexCreator;
+import com.efficientlogfileanalysis.logs.data.LogEntry;
+import com.efficientlogfileanalysis.logs.data.LogLevel;
+import com.efficientlogfileanalysis.luceneSearch.data.Filter;
+import com.efficientlogfileanalysis.util.DateConverter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pages through the entries of several files which are spread over several hourly shards
+ */
+class SearchPaginationTest {
+
+    private static final String[] FILES = {"a.log", "b.log", "c.log"};
+    private static final LocalDateTime BEGIN = LocalDateTime.of(2022, 7, 4, 13, 30);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm:ss,SSS").withLocale(Locale.ENGLISH);
+
+    @TempDir
+    static Path logFolder;
+
+    private static String previousLogFolder;
+    private static int amountOfEntries;
+
+    /**
+     * Writes files whose entries cover six hours, many entries of a file and of different files have the same date.
+     * The thread of an entry is the name of its file, which identifies the entries in the results.
+     */
+    @BeforeAll
+    static void createIndex() throws IOException
+    {
+        Settings settings = Settings.getInstance();
+        previousLogFolder = settings.getLogFilePath();
+        settings.setLogFilePath(logFolder.toString());
+        settings.setShardDuration("hour");
+
+        Random random = new Random(7);
+        for(String file : FILES)
+        {
+            try(BufferedWriter writer = Files.newBufferedWriter(logFolder.resolve(file), StandardCharsets.UTF_8))
+            {
+                for(LocalDateTime time = BEGIN; time.isBefore(BEGIN.plusHours(6)); time = time.plusSeconds(random.nextInt(20)))
+                {
+                    LogLevel logLevel = LogLevel.values()[random.nextInt(LogLevel.values().length)];
+                    writer.write(String.format("%s %-5s [%s] Service:? - entry %d%n", time.format(FORMATTER), logLevel, file, random.nextInt()));
+                    amountOfEntries++;
+                }
+            }
+        }
+
+        Index index = Index.getInstance();
+        index.deleteIndex();
+
+        IndexCreator indexCreator = new IndexCreator(index);
+        for(String file : FILES) {
+            indexCreator.indexSingleLogFile(file);
+        }
+        index.commit();
+    }
+
+    @AfterAll
+    static void deleteIndex() throws IOException
+    {
+        Index.getInstance().deleteIndex();
+
+        Settings settings = Settings.getInstance();
+        settings.setShardDuration("day");
+        settings.setLogFilePath(previousLogFolder);
+    }
+
+    /**
+     * Reads every page of a search
+     */
+    private static List<LogEntry> readAllPages(Filter filter, int sizeOfPage) throws IOException
+    {
+        List<LogEntry> entries = new ArrayList<>();
+
+        try(Search search = new Search())
+        {
+            Object[] lastEntry = null;
+
+            while(true)
+            {
+                Tuple<List<LogEntry>, Object[]> page = search.searchForLogEntriesWithPagination(filter, sizeOfPage, lastEntry);
+                if(page.value1.isEmpty()) {
+                    break;
+                }
+
+                assertTrue(page.value1.size() <= sizeOfPage);
+                entries.addAll(page.value1);
+                lastEntry = page.value2;
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Checks that no entry is returned twice and that the entries are sorted by their date
+     */
+    private static void assertEveryEntryOnce(List<LogEntry> entries)
+    {
+        Set<String> entryKeys = new HashSet<>();
+
+        for(int i = 0; i < entries.size(); i++)
+        {
+            LogEntry entry = entries.get(i);
+            assertTrue(entryKeys.add(entry.getModule() + ":" + entry.getEntryID()), "entry " + i + " has been returned twice");
+
+            if(i > 0) {
+                assertTrue(entries.get(i - 1).getTime() <= entry.getTime(), "entry " + i + " is not sorted");
+            }
+        }
+    }
+
+    @Test
+    void returnsEveryEntryExactlyOnce() throws IOException
+    {
+        List<LogEntry> entries = readAllPages(Filter.builder().build(), 7);
+
+        assertEquals(amountOfEntries, entries.size());
+        assertEveryEntryOnce(entries);
+    }
+
+    @Test
+    void pagesContainTheSameEntriesAsASortedSearch() throws IOException
+    {
+        Filter filter = Filter.builder().build();
+        filter.getLogLevels().add(LogLevel.ERROR.getId());
+        filter.getLogLevels().add(LogLevel.WARN.getId());
+
+        List<LogEntry> sortedEntries;
+        try(Search search = new Search()) {
+            sortedEntries = search.sortedSearch(filter);
+        }
+
+        for(int sizeOfPage : new int[]{1, 13, 1000})
+        {
+            List<LogEntry> entries = readAllPages(filter, sizeOfPage);
+
+            assertEveryEntryOnce(entries);
+            assertEquals(sortedEntries, entries);
+        }
+    }
+
+    @Test
+    void pagesOfATimeRangeOnlyContainItsEntries() throws IOException
+    {
+        //from the middle of the first shard to the middle of the fourth one
+        long beginDate = DateConverter.toLong(BEGIN.plusMinutes(15));
+        long endDate = DateConverter.toLong(BEGIN.plusHours(3));
+        Filter filter = Filter.builder().beginDate(beginDate).endDate(endDate).build();
+
+        List<LogEntry> entries = readAllPages(filter, 50);
+        assertEveryEntryOnce(entries);
+        assertTrue(entries.size() > 0);
+
+        for(LogEntry entry : entries) {
+            assertTrue(beginDate <= entry.getTime() && entry.getTime() <= endDate);
+        }
+
+        try(Search search = new Search()) {
+            assertEquals(search.sortedSearch(filter), entries);
+        }
+    }
+}